@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb.benchmarks;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Store;
+import org.junit.jupiter.api.extension.ExtensionContext.Store.CloseableResource;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A minimal stand-in for the JUnit engine: an extension context without annotated element whose root store
+ * keeps values until {@link #close()} is called, which is what the engine does at the end of a session.
+ */
+final class BenchmarkContext {
+
+  private final Map<Object, Object> values = new ConcurrentHashMap<>();
+
+  private final ExtensionContext context;
+
+  BenchmarkContext() {
+
+    Store store = (Store) Proxy.newProxyInstance(Store.class.getClassLoader(), new Class<?>[]{Store.class},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getOrComputeIfAbsent":
+            @SuppressWarnings("unchecked")
+            Function<Object, Object> creator = (Function<Object, Object>) args[1];
+            return values.computeIfAbsent(args[0], creator);
+          case "get":
+            return values.get(args[0]);
+          case "put":
+            values.put(args[0], args[1]);
+            return null;
+          case "remove":
+            return values.remove(args[0]);
+          default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+      });
+
+    context = (ExtensionContext) Proxy.newProxyInstance(ExtensionContext.class.getClassLoader(),
+      new Class<?>[]{ExtensionContext.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getRoot":
+            return proxy;
+          case "getStore":
+            return store;
+          case "getUniqueId":
+          case "getDisplayName":
+            return "benchmark";
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "equals":
+            return proxy == args[0];
+          default:
+            if (method.getReturnType() == Optional.class) {
+              return Optional.empty();
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }
+      });
+
+  }
+
+  ExtensionContext get() {
+    return context;
+  }
+
+  void close() throws Throwable {
+    List<Object> resources = new ArrayList<>(values.values());
+    values.clear();
+    for (Object resource : resources) {
+      if (resource instanceof CloseableResource) {
+        ((CloseableResource) resource).close();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb.benchmarks;
+
+import com.mongodb.client.MongoDatabase;
+import io.fares.junit.mongodb.MongoFixture;
+import io.fares.junit.mongodb.MongoTestBase;
+import io.fares.junit.mongodb.MongoTopology;
+import io.fares.junit.mongodb.MongodStorage;
+import io.fares.junit.mongodb.ResetStrategy;
+
+import java.io.IOException;
+
+/**
+ * Exposes the lifecycle of {@link MongoTestBase} to the benchmarks. Every instance listens on an ephemeral
+ * port so benchmarks never collide with a mongod that is already running on the machine.
+ */
+class BenchmarkMongo extends MongoTestBase {
+
+  BenchmarkMongo(String profile) {
+    withMongoPort(0);
+    withStorage(Profiles.storage(profile));
+  }
+
+  BenchmarkMongo resetWith(ResetStrategy strategy) {
+    withResetStrategy(strategy);
+    return this;
+  }
+
+  BenchmarkMongo deployedAs(String topology) {
+    withTopology(Topologies.topology(topology));
+    return this;
+  }
+
+  BenchmarkMongo standby(boolean standby) {
+    withStandby(standby);
+    return this;
+  }
+
+  BenchmarkMongo synchronousShutdown() {
+    withSynchronousShutdown(true);
+    return this;
+  }
+
+  BenchmarkMongo withFixtureOf(MongoFixture fixture) {
+    withFixture(fixture);
+    return this;
+  }
+
+  void start() throws IOException {
+    startMongo();
+  }
+
+  void stop() {
+    shutdownMongo();
+  }
+
+  long reset() throws IOException {
+    return resetMongo();
+  }
+
+  static void stopStandby() {
+    stopStandbyInstances();
+  }
+
+  @Override
+  public MongoDatabase getDatabase() {
+    return super.getDatabase();
+  }
+
+  /**
+   * The storage profiles the benchmarks compare.
+   */
+  static final class Profiles {
+
+    static final String DEFAULT = "default";
+
+    static final String FAST_TEST = "fastTest";
+
+    private Profiles() {
+    }
+
+    static MongodStorage storage(String profile) {
+      switch (profile) {
+        case DEFAULT:
+          return MongodStorage.DEFAULT;
+        case FAST_TEST:
+          return MongodStorage.fastTest();
+        default:
+          throw new IllegalArgumentException("unknown profile " + profile);
+      }
+    }
+
+  }
+
+  /**
+   * The deployments the benchmarks compare.
+   */
+  static final class Topologies {
+
+    static final String STANDALONE = "standalone";
+
+    static final String REPLICA_SET = "replicaSet";
+
+    static final String SHARDED = "sharded";
+
+    private Topologies() {
+    }
+
+    static MongoTopology topology(String topology) {
+      switch (topology) {
+        case STANDALONE:
+          return MongoTopology.STANDALONE;
+        case REPLICA_SET:
+          return MongoTopology.replicaSet(3);
+        case SHARDED:
+          return MongoTopology.sharded();
+        default:
+          throw new IllegalArgumentException("unknown topology " + topology);
+      }
+    }
+
+  }
+
+}
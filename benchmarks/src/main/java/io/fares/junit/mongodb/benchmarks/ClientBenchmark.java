@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb.benchmarks;
+
+import com.mongodb.MongoClient;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of creating the client a test gets handed, with and without the first round trip that opens
+ * the connection pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientBenchmark {
+
+  private BenchmarkMongo mongo;
+
+  @Setup
+  public void setUp() throws Exception {
+    mongo = new BenchmarkMongo(BenchmarkMongo.Profiles.DEFAULT);
+    mongo.start();
+  }
+
+  @TearDown
+  public void tearDown() {
+    mongo.stop();
+  }
+
+  @Benchmark
+  public void createAndClose() {
+    new MongoClient(mongo.getMongoHost(), mongo.getMongoPort()).close();
+  }
+
+  @Benchmark
+  public Document createConnectAndClose() {
+    MongoClient client = new MongoClient(mongo.getMongoHost(), mongo.getMongoPort());
+    try {
+      return client.getDatabase("admin").runCommand(new Document("ping", 1));
+    } finally {
+      client.close();
+    }
+  }
+
+}
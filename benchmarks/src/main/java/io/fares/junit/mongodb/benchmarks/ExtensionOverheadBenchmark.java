@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb.benchmarks;
+
+import io.fares.junit.mongodb.MongoForAllExtension;
+import io.fares.junit.mongodb.MongoForEachExtension;
+import io.fares.junit.mongodb.MongoRule;
+import io.fares.junit.mongodb.ResetStrategy;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead the extensions and the rule add to a single empty test, driven through the same callbacks
+ * the JUnit engine invokes.
+ * <ul>
+ * <li><code>forEach</code> starts and stops a dedicated mongod around every test</li>
+ * <li><code>forEachReset</code> leases a shared mongod and drops the test database after every test</li>
+ * <li><code>forAll</code> starts mongod once per class, a test only pays for the reset</li>
+ * <li><code>rule</code> is the JUnit 4 rule which behaves like <code>forEach</code></li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExtensionOverheadBenchmark {
+
+  private static final Description TEST = Description.createTestDescription(ExtensionOverheadBenchmark.class, "test");
+
+  private static final Statement EMPTY_TEST = new Statement() {
+    @Override
+    public void evaluate() {
+    }
+  };
+
+  @Param({"forEach", "forEachReset", "forAll", "rule"})
+  public String extension;
+
+  @Param({BenchmarkMongo.Profiles.DEFAULT, BenchmarkMongo.Profiles.FAST_TEST})
+  public String profile;
+
+  private BenchmarkContext context;
+
+  private MongoForEachExtension forEach;
+
+  private MongoForAllExtension forAll;
+
+  private MongoRule rule;
+
+  @Setup
+  public void setUp() throws Exception {
+
+    context = new BenchmarkContext();
+
+    switch (extension) {
+      case "forEach":
+        forEach = MongoForEachExtension.builder().ephemeralPort().storage(BenchmarkMongo.Profiles.storage(profile))
+          .build();
+        break;
+      case "forEachReset":
+        forEach = MongoForEachExtension.builder().ephemeralPort().storage(BenchmarkMongo.Profiles.storage(profile))
+          .resetStrategy(ResetStrategy.DROP_DATABASE).build();
+        break;
+      case "forAll":
+        forAll = MongoForAllExtension.builder().ephemeralPort().storage(BenchmarkMongo.Profiles.storage(profile))
+          .resetStrategy(ResetStrategy.DROP_DATABASE).build();
+        forAll.beforeAll(context.get());
+        break;
+      case "rule":
+        rule = new MongoRule("localhost", 0).storage(BenchmarkMongo.Profiles.storage(profile));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown extension " + extension);
+    }
+
+  }
+
+  @TearDown
+  public void tearDown() throws Throwable {
+    if (forAll != null) {
+      forAll.afterAll(context.get());
+    }
+    context.close();
+  }
+
+  @Benchmark
+  public void test() throws Throwable {
+    if (forEach != null) {
+      forEach.beforeEach(context.get());
+      forEach.afterEach(context.get());
+    } else if (forAll != null) {
+      forAll.afterEach(context.get());
+    } else {
+      rule.apply(EMPTY_TEST, TEST).evaluate();
+    }
+  }
+
+}
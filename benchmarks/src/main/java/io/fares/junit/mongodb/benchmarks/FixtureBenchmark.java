@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb.benchmarks;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import io.fares.junit.mongodb.MongoFixture;
+import io.fares.junit.mongodb.ResetStrategy;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seeding a fixture with one insert per document compared to restoring the snapshot of a
+ * {@link MongoFixture} after the reset between two tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FixtureBenchmark {
+
+  @Param({"10000"})
+  public int documents;
+
+  private BenchmarkMongo seeding;
+
+  private BenchmarkMongo restoring;
+
+  @Setup
+  public void setUp() throws Exception {
+    seeding = new BenchmarkMongo(BenchmarkMongo.Profiles.DEFAULT).resetWith(ResetStrategy.DROP_DATABASE);
+    seeding.start();
+    restoring = new BenchmarkMongo(BenchmarkMongo.Profiles.DEFAULT).resetWith(ResetStrategy.DROP_DATABASE)
+      .withFixtureOf(MongoFixture.of("benchmark-" + documents, this::seed));
+    restoring.start();
+  }
+
+  @TearDown
+  public void tearDown() {
+    restoring.stop();
+    seeding.stop();
+    MongoFixture.clearSnapshots();
+  }
+
+  @TearDown(Level.Invocation)
+  public void dropSeeded() {
+    seeding.getDatabase().drop();
+  }
+
+  private void seed(MongoDatabase database) {
+    MongoCollection<Document> collection = database.getCollection("fixture");
+    for (int i = 0; i < documents; i++) {
+      collection.insertOne(new Document("seq", i).append("name", "document-" + i));
+    }
+  }
+
+  @Benchmark
+  public void seedEveryTest() {
+    seed(seeding.getDatabase());
+  }
+
+  @Benchmark
+  public long restoreSnapshot() throws Exception {
+    // the reset drops the database and loads the fixture for the next test
+    return restoring.reset();
+  }
+
+}
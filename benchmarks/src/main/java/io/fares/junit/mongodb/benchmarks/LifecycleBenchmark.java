@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of {@code MongoTestBase.startMongo()} followed by {@code shutdownMongo()} with a dedicated
+ * mongod, which is what every test pays with a per test extension. Replica sets and sharded clusters are
+ * compared against a standalone mongod to keep their bring-up time close to it. With a standby the next
+ * mongod starts while the previous iteration completes, which is the wait a test sees in standby mode.
+ * Shutdown is synchronous so that no mongod of an earlier iteration is still exiting while the next one is
+ * measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LifecycleBenchmark {
+
+  @Param({BenchmarkMongo.Profiles.DEFAULT, BenchmarkMongo.Profiles.FAST_TEST})
+  public String profile;
+
+  @Param({BenchmarkMongo.Topologies.STANDALONE, BenchmarkMongo.Topologies.REPLICA_SET,
+    BenchmarkMongo.Topologies.SHARDED})
+  public String topology;
+
+  @Param({"false", "true"})
+  public boolean standby;
+
+  private BenchmarkMongo mongo;
+
+  @Setup
+  public void setUp() {
+    mongo = new BenchmarkMongo(profile).deployedAs(topology).standby(standby).synchronousShutdown();
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkMongo.stopStandby();
+  }
+
+  @Benchmark
+  public long startAndShutdown() throws Exception {
+    mongo.start();
+    long timeToReady = mongo.getTimeToReady();
+    mongo.stop();
+    return timeToReady;
+  }
+
+}
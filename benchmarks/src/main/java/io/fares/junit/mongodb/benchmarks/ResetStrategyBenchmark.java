@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb.benchmarks;
+
+import io.fares.junit.mongodb.ResetStrategy;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of cleaning the test database between tests with each {@link ResetStrategy}. Before every reset
+ * the database holds a number of collections with an index, the test writes documents to some of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResetStrategyBenchmark {
+
+  @Param({"DROP_DATABASE", "TRUNCATE_COLLECTIONS", "TRUNCATE_WRITTEN_COLLECTIONS", "UNIQUE_DATABASE"})
+  public ResetStrategy strategy;
+
+  @Param({BenchmarkMongo.Profiles.DEFAULT, BenchmarkMongo.Profiles.FAST_TEST})
+  public String profile;
+
+  @Param({"10"})
+  public int collections;
+
+  @Param({"1", "10"})
+  public int written;
+
+  @Param({"100"})
+  public int documents;
+
+  private BenchmarkMongo mongo;
+
+  @Setup
+  public void setUp() throws Exception {
+    mongo = new BenchmarkMongo(profile).resetWith(strategy);
+    mongo.start();
+  }
+
+  @TearDown
+  public void tearDown() {
+    mongo.stop();
+  }
+
+  @Setup(Level.Invocation)
+  public void populate() {
+    List<Document> batch = new ArrayList<>(documents);
+    for (int i = 0; i < documents; i++) {
+      batch.add(new Document("seq", i).append("name", "document-" + i));
+    }
+    for (int c = 0; c < collections; c++) {
+      mongo.getDatabase().getCollection("collection" + c).createIndex(new Document("name", 1));
+      if (c < written) {
+        mongo.getDatabase().getCollection("collection" + c).insertMany(new ArrayList<>(batch));
+      }
+    }
+  }
+
+  @Benchmark
+  public long reset() throws Exception {
+    return mongo.reset();
+  }
+
+}
@@ -1,24 +1,225 @@
 package io.fares.junit.mongodb;
 
 import com.mongodb.MongoClient;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoDatabase;
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Optional;
 
+import static org.junit.platform.commons.support.AnnotationSupport.findAnnotation;
+import static org.junit.platform.commons.support.AnnotationSupport.findRepeatableAnnotations;
 import static org.junit.platform.commons.support.AnnotationSupport.isAnnotated;
 
-abstract class AbstractMongoExtension extends MongoTestBase implements MongoExtension {
+abstract class AbstractMongoExtension extends MongoTestBase implements MongoExtension, ParameterResolver {
+
+  static final Namespace NAMESPACE = Namespace.create(AbstractMongoExtension.class);
+
+  private final PhaseCollector collector = new PhaseCollector();
+
+  private boolean reportTimings = false;
 
   protected void startMongoWhenEnabled(ExtensionContext context) throws IOException {
     if (isMongoEnabled(context)) {
+      bindToSession(context);
       startMongo();
+      loadAnnotatedDataSets(context, true, true);
+      publish(context);
     }
   }
 
   protected void stopMongoWhenEnabled(ExtensionContext context) throws IOException {
     if (isMongoEnabled(context)) {
+      dumpMongodLogOnFailure(context);
       shutdownMongo();
+      publish(context);
+    }
+  }
+
+  /**
+   * Write the buffered mongod output to the log if the test or container failed.
+   *
+   * @param context the context of the current test or container
+   */
+  final void dumpMongodLogOnFailure(ExtensionContext context) {
+    if (context.getExecutionException().isPresent()) {
+      dumpMongodLog("failure of " + context.getDisplayName());
+    }
+  }
+
+  /**
+   * Profile the test if profiling is enabled or the test declares {@link MongoOperationLimits} and record its
+   * queries if plans are inspected.
+   *
+   * @param context the context of the current test
+   */
+  final void startInspections(ExtensionContext context) {
+    startProfiler(findLimits(context) != null);
+    startPlanInspection();
+  }
+
+  /**
+   * Publish the slowest operations and the query plans of the test, then check the operations against its
+   * {@link MongoOperationLimits} and the plans against the plan policy.
+   *
+   * @param context the context of the current test
+   * @throws AssertionError an operation exceeds the limits of the test or a query plan has a problem
+   */
+  final void finishInspections(ExtensionContext context) {
+
+    MongoProfile profile = stopProfiler();
+    MongoPlanReport plans = finishPlanInspection();
+
+    if (profile != null) {
+      context.publishReportEntry(profile.toReportEntries());
+    }
+    if (plans != null) {
+      context.publishReportEntry(plans.toReportEntries());
+    }
+
+    MongoOperationLimits limits = findLimits(context);
+    if (profile != null && limits != null) {
+      profile.assertWithin(limits);
+    }
+    if (plans != null) {
+      plans.assertAcceptable();
+    }
+
+  }
+
+  private static MongoOperationLimits findLimits(ExtensionContext context) {
+    Optional<MongoOperationLimits> limits = context.getTestMethod()
+      .flatMap(method -> findAnnotation(method, MongoOperationLimits.class));
+    if (!limits.isPresent()) {
+      limits = context.getTestClass().flatMap(type -> findAnnotation(type, MongoOperationLimits.class));
+    }
+    return limits.orElse(null);
+  }
+
+  /**
+   * Load the {@link MongoDataSet} data sets declared on the test class and or the test method into the
+   * database of the current test.
+   *
+   * @param context     the context of the current test or container
+   * @param classLevel  <code>true</code> to load the data sets of the test class
+   * @param methodLevel <code>true</code> to load the data sets of the test method
+   * @throws IOException a data set could not be loaded
+   */
+  protected void loadDataSets(ExtensionContext context, boolean classLevel, boolean methodLevel) throws IOException {
+    loadAnnotatedDataSets(context, classLevel, methodLevel);
+  }
+
+  /**
+   * Drop the collections the {@link MongoDataSet} data sets of the test method loaded into and load the data
+   * sets of the test class back into these collections. This removes the documents of the test method when
+   * the database is not reset between tests.
+   *
+   * @param context the context of the current test
+   * @throws IOException a data set of the test class could not be loaded
+   */
+  protected void unloadDataSets(ExtensionContext context) throws IOException {
+
+    List<MongoDataSet> dataSets = findDataSets(context, false, true);
+    if (dataSets.isEmpty()) {
+      return;
+    }
+
+    Set<String> collections = MongoDataSetLoader.collectionsOf(dataSets);
+    MongoDatabase database = super.getDatabase();
+    for (String collection : collections) {
+      database.getCollection(collection).drop();
+    }
+
+    List<MongoDataSet> classDataSets = findDataSets(context, true, false);
+    if (!classDataSets.isEmpty()) {
+      newDataSetLoader(context).load(database, classDataSets, collections::contains);
+    }
+
+  }
+
+  private void loadAnnotatedDataSets(ExtensionContext context, boolean classLevel, boolean methodLevel)
+    throws IOException {
+    List<MongoDataSet> dataSets = findDataSets(context, classLevel, methodLevel);
+    if (!dataSets.isEmpty()) {
+      newDataSetLoader(context).load(super.getDatabase(), dataSets);
+    }
+  }
+
+  private static List<MongoDataSet> findDataSets(ExtensionContext context, boolean classLevel,
+                                                 boolean methodLevel) {
+    List<MongoDataSet> dataSets = new ArrayList<>();
+    if (classLevel) {
+      context.getTestClass().ifPresent(type -> dataSets.addAll(findRepeatableAnnotations(type, MongoDataSet.class)));
+    }
+    if (methodLevel) {
+      context.getTestMethod().ifPresent(method ->
+        dataSets.addAll(findRepeatableAnnotations(method, MongoDataSet.class)));
+    }
+    return dataSets;
+  }
+
+  private static MongoDataSetLoader newDataSetLoader(ExtensionContext context) {
+    ClassLoader classLoader = context.getTestClass()
+      .map(Class::getClassLoader)
+      .orElse(AbstractMongoExtension.class.getClassLoader());
+    return new MongoDataSetLoader(classLoader);
+  }
+
+  /**
+   * Publish the phase timings recorded since the last publication as report entries of the current test
+   * and add them to the summary of the test run.
+   *
+   * @param context the context of the current test or container
+   */
+  protected void publishTimings(ExtensionContext context) {
+    publish(context);
+  }
+
+  /**
+   * Publish the phase timings of every lifecycle as JUnit report entries and log a summary of the slowest
+   * test classes when the test run completes.
+   *
+   * @param reportTimings <code>true</code> to report timings
+   * @return this extension
+   */
+  AbstractMongoExtension withReportTimings(boolean reportTimings) {
+    if (reportTimings && !this.reportTimings) {
+      addLifecycleListener(collector);
+    }
+    this.reportTimings = reportTimings;
+    return this;
+  }
+
+  private void publish(ExtensionContext context) {
+
+    if (!reportTimings) {
+      return;
+    }
+
+    Map<MongoPhase, Long> timings = collector.drain();
+    if (timings.isEmpty()) {
+      return;
     }
+
+    Map<String, String> entries = new LinkedHashMap<>();
+    timings.forEach((phase, elapsed) -> entries.put(phase.reportKey(), String.valueOf(elapsed)));
+    context.publishReportEntry(entries);
+
+    String testClass = context.getTestClass().map(Class::getName).orElse(context.getDisplayName());
+    context.getRoot().getStore(NAMESPACE)
+      .getOrComputeIfAbsent(MongoTimingSummary.class, key -> new MongoTimingSummary(), MongoTimingSummary.class)
+      .add(testClass, timings);
+
   }
 
   /**
@@ -26,7 +227,7 @@ abstract class AbstractMongoExtension extends MongoTestBase implements MongoExte
    */
   @Override
   public boolean isStarted() {
-    return super.getMongoClient() != null;
+    return isMongoStarted();
   }
 
   /**
@@ -36,10 +237,99 @@ abstract class AbstractMongoExtension extends MongoTestBase implements MongoExte
     return super.getMongoClient();
   }
 
+  @Override
+  public <T> T getMongoClient(Class<T> type) {
+    return super.getMongoClient(type);
+  }
+
+  /**
+   * @return the database the current test should use
+   */
+  @Override
+  public MongoDatabase getDatabase() {
+    return super.getDatabase();
+  }
+
+  /**
+   * The session lives in the root store so the launcher waits for mongod instances still shutting down and
+   * stops the shared ones once all tests completed.
+   */
+  private void bindToSession(ExtensionContext context) {
+    MongodSession session = context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(
+      MongodSession.class, key -> new MongodSession(MongodInstanceRegistry.getInstance()), MongodSession.class);
+    if (isShared()) {
+      session.shareInstances();
+    }
+  }
+
+  /**
+   * Supports injection of the {@link MongoClient}, the {@link MongoDatabase} of the current test and the
+   * {@link ServerAddress} mongod listens on.
+   */
+  @Override
+  public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+    Class<?> type = parameterContext.getParameter().getType();
+    return MongoClientFactory.supports(type) || type == MongoDatabase.class || type == ServerAddress.class;
+  }
+
+  @Override
+  public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+    Class<?> type = parameterContext.getParameter().getType();
+    if (type == ServerAddress.class) {
+      return new ServerAddress(getMongoHost(), getMongoPort());
+    }
+    return type == MongoDatabase.class ? getDatabase() : getMongoClient(type);
+  }
+
   private boolean isMongoEnabled(ExtensionContext context) {
     return !context.getElement()
       .map(el -> isAnnotated(el, WithoutMongo.class))
       .orElse(false);
   }
 
+  /**
+   * Collects the phases completed since the extension last published them.
+   */
+  private static final class PhaseCollector implements MongoLifecycleListener {
+
+    private final Map<MongoPhase, Long> timings = new EnumMap<>(MongoPhase.class);
+
+    @Override
+    public synchronized void phaseCompleted(MongoPhase phase, long elapsedMillis) {
+      timings.merge(phase, elapsedMillis, Long::sum);
+    }
+
+    synchronized Map<MongoPhase, Long> drain() {
+      Map<MongoPhase, Long> drained = new EnumMap<>(MongoPhase.class);
+      drained.putAll(timings);
+      timings.clear();
+      return drained;
+    }
+
+  }
+
+  private static final class MongodSession implements ExtensionContext.Store.CloseableResource {
+
+    private final MongodInstanceRegistry registry;
+
+    private volatile boolean shared;
+
+    private MongodSession(MongodInstanceRegistry registry) {
+      this.registry = registry;
+    }
+
+    void shareInstances() {
+      shared = true;
+    }
+
+    @Override
+    public void close() {
+      if (shared) {
+        registry.close();
+      }
+      MongodReaper.getInstance().awaitAll(MongodReaper.AWAIT_MILLIS);
+    }
+
+  }
+
 }
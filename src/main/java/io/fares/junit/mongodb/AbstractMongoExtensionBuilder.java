@@ -1,7 +1,12 @@
 package io.fares.junit.mongodb;
 
+import com.mongodb.MongoClientOptions;
 import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
 
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
 abstract class AbstractMongoExtensionBuilder<B extends AbstractMongoExtensionBuilder, E extends AbstractMongoExtension> {
 
   private E extension;
@@ -25,8 +30,9 @@ abstract class AbstractMongoExtensionBuilder<B extends AbstractMongoExtensionBui
   /**
    * Set the mongod port on which the database will listen
    *
-   * @param port the port number
+   * @param port the port number or <code>0</code> for an ephemeral port
    * @return this builder
+   * @see #ephemeralPort()
    */
   @SuppressWarnings("unchecked")
   public B port(int port) {
@@ -34,6 +40,19 @@ abstract class AbstractMongoExtensionBuilder<B extends AbstractMongoExtensionBui
     return (B) this;
   }
 
+  /**
+   * Let mongod listen on a free port which is reserved across all JVMs on this machine. The allocated port
+   * is available from {@link MongoTestBase#getMongoPort()} once mongod is started or can be injected as
+   * {@link com.mongodb.ServerAddress} test method parameter.
+   *
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B ephemeralPort() {
+    extension.withMongoPort(0);
+    return (B) this;
+  }
+
   /**
    * Specify the exact version of the monogdb instance to be started.
    *
@@ -71,6 +90,406 @@ abstract class AbstractMongoExtensionBuilder<B extends AbstractMongoExtensionBui
     return (B) this;
   }
 
+  /**
+   * Set the overall deadline for a started mongod to answer commands.
+   *
+   * @param timeout the maximum time to wait for the server to become ready
+   * @param unit    the unit of the timeout
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B readinessTimeout(long timeout, TimeUnit unit) {
+    extension.withReadinessTimeout(timeout, unit);
+    return (B) this;
+  }
+
+  /**
+   * Set the time a stopping mongod is given to exit before it is killed.
+   *
+   * @param timeout the maximum time to wait for the server to exit
+   * @param unit    the unit of the timeout
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B shutdownTimeout(long timeout, TimeUnit unit) {
+    extension.withShutdownTimeout(timeout, unit);
+    return (B) this;
+  }
+
+  /**
+   * Lease the mongod from a JVM wide registry instead of starting a dedicated process. All extensions with
+   * the same version, host and port share one running server which is stopped at the end of the test run.
+   *
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B shared() {
+    extension.withShared(true);
+    return (B) this;
+  }
+
+  /**
+   * Keep one mongod running and reset the test database between tests instead of restarting the process.
+   * The mongod is leased from the registry of shared instances.
+   *
+   * @param strategy how the test database is cleaned between tests
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B resetStrategy(ResetStrategy strategy) {
+    extension.withResetStrategy(strategy);
+    return (B) this;
+  }
+
+  /**
+   * Allow tests to run in parallel against one shared mongod. Each test thread works in its own database
+   * which is dropped after each test unless a different {@link ResetStrategy} is configured. Inject the
+   * right database with a {@link com.mongodb.client.MongoDatabase} test method parameter or use
+   * {@link MongoExtension#getDatabase()} from the test thread.
+   *
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B parallel() {
+    extension.withParallel(true);
+    return (B) this;
+  }
+
+  /**
+   * Create the clients handed to the tests with these options. The options of the other client methods of
+   * this builder are applied on top of the options that are configured when they are called.
+   *
+   * @param options the client options
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B clientOptions(MongoClientOptions options) {
+    extension.withClientOptions(options);
+    return (B) this;
+  }
+
+  /**
+   * Size the connection pool of the clients, e.g. for tests that drive mongod from many threads.
+   *
+   * @param maxSize          the maximum number of connections to mongod
+   * @param maxWaitQueueSize the maximum number of threads waiting for a connection, rounded up to a multiple
+   *                         of the pool size
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B connectionPool(int maxSize, int maxWaitQueueSize) {
+    extension.withClientOptions(options()
+      .connectionsPerHost(maxSize)
+      .threadsAllowedToBlockForConnectionMultiplier(Math.max(1, (maxWaitQueueSize + maxSize - 1) / maxSize))
+      .build());
+    return (B) this;
+  }
+
+  /**
+   * Set how long a client waits for a suitable server before an operation fails.
+   *
+   * @param timeout the server selection timeout
+   * @param unit    the unit of the timeout
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B serverSelectionTimeout(long timeout, TimeUnit unit) {
+    extension.withClientOptions(options().serverSelectionTimeout((int) unit.toMillis(timeout)).build());
+    return (B) this;
+  }
+
+  /**
+   * Set the connect and read timeouts of the client sockets, a timeout of 0 never times out.
+   *
+   * @param connectTimeout the connect timeout
+   * @param readTimeout    the read timeout
+   * @param unit           the unit of both timeouts
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B socketTimeouts(long connectTimeout, long readTimeout, TimeUnit unit) {
+    extension.withClientOptions(options()
+      .connectTimeout((int) unit.toMillis(connectTimeout))
+      .socketTimeout((int) unit.toMillis(readTimeout))
+      .build());
+    return (B) this;
+  }
+
+  /**
+   * Set how often the clients check the state of mongod.
+   *
+   * @param frequency the heartbeat frequency
+   * @param unit      the unit of the frequency
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B heartbeatFrequency(long frequency, TimeUnit unit) {
+    extension.withClientOptions(options().heartbeatFrequency((int) unit.toMillis(frequency)).build());
+    return (B) this;
+  }
+
+  private MongoClientOptions.Builder options() {
+    return MongoClientOptions.builder(extension.getClientOptions());
+  }
+
+  /**
+   * Configure how mongod stores its data.
+   *
+   * @param storage the storage options, {@link MongodStorage#fastTest()} for example
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B storage(MongodStorage storage) {
+    extension.withStorage(storage);
+    return (B) this;
+  }
+
+  /**
+   * Launch the mongod of the next test in the background while the current test runs. Each test still
+   * gets its own mongod, which listens on a free port.
+   *
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B standby() {
+    extension.withStandby(true);
+    return (B) this;
+  }
+
+  /**
+   * Keep mongod running between test runs and attach to it instead of starting a new process, for fast
+   * local iterations. Setting the <code>mongodb.junit.daemon</code> system property has the same effect.
+   *
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B daemon() {
+    extension.withDaemon(true);
+    return (B) this;
+  }
+
+  /**
+   * Keep the last lines of the mongod output in a ring buffer and log them only when a test fails. Lines
+   * that match the filter are logged as they arrive. By default the last
+   * {@value MongodOutput#DEFAULT_BUFFER_LINES} lines are retained and warnings and errors are logged.
+   *
+   * @param lines  the number of lines to retain or <code>0</code> to log every line
+   * @param filter the lines to log as they arrive or <code>null</code>
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B logBuffer(int lines, Pattern filter) {
+    extension.withLogBuffer(lines, filter);
+    return (B) this;
+  }
+
+  /**
+   * Record the operations of each test with the mongod profiler and publish the slowest of them as report
+   * entries. Tests annotated with {@link MongoOperationLimits} are profiled either way.
+   *
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B profile() {
+    extension.withProfiling(true);
+    return (B) this;
+  }
+
+  /**
+   * Explain the distinct query shapes of each test and report collection scans and in-memory sorts. The
+   * plans are published as report entries.
+   *
+   * @param policy what happens when a plan has a problem
+   * @return this builder
+   */
+  public B inspectPlans(MongoPlanPolicy policy) {
+    return inspectPlans(policy, null);
+  }
+
+  /**
+   * Explain the distinct query shapes of each test, report collection scans and in-memory sorts and compare
+   * the plans with a baseline file. Shapes missing from the file are added to it, changed plans are taken
+   * over when the <code>mongodb.junit.plans.update</code> system property is set.
+   *
+   * @param policy   what happens when a plan has a problem
+   * @param baseline the file with the plans of earlier runs
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B inspectPlans(MongoPlanPolicy policy, Path baseline) {
+    extension.withPlanInspection(policy, baseline);
+    return (B) this;
+  }
+
+  /**
+   * Wait on the test thread for mongod to exit instead of stopping it in the background.
+   *
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B synchronousShutdown() {
+    extension.withSynchronousShutdown(true);
+    return (B) this;
+  }
+
+  /**
+   * Set the deployment that is started for the tests.
+   *
+   * @param topology the topology, {@link MongoTopology#replicaSet(int)} for example
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B topology(MongoTopology topology) {
+    extension.withTopology(topology);
+    return (B) this;
+  }
+
+  /**
+   * Start a replica set instead of a standalone mongod, required to test transactions and change streams.
+   *
+   * @param members the number of members
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B replicaSet(int members) {
+    extension.withTopology(MongoTopology.replicaSet(members));
+    return (B) this;
+  }
+
+  /**
+   * Start a minimal sharded cluster, the tests connect to its mongos.
+   *
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B sharded() {
+    extension.withTopology(MongoTopology.sharded());
+    return (B) this;
+  }
+
+  /**
+   * Use the preset for test speed, mongod keeps all data in memory and never flushes it.
+   *
+   * @return this builder
+   * @see MongodStorage#fastTest()
+   */
+  @SuppressWarnings("unchecked")
+  public B fastTestProfile() {
+    extension.withStorage(MongodStorage.fastTest());
+    return (B) this;
+  }
+
+  /**
+   * Set the storage engine of mongod.
+   *
+   * @param engine the engine name, {@link MongodStorage#EPHEMERAL_FOR_TEST} for example
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B storageEngine(String engine) {
+    extension.withStorage(extension.getStorage().withEngine(engine));
+    return (B) this;
+  }
+
+  /**
+   * Create the data directory of mongod below the given path instead of the temp directory.
+   *
+   * @param dbPath the parent of the data directory, a tmpfs like <code>/dev/shm</code> for example
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B dbPath(String dbPath) {
+    extension.withStorage(extension.getStorage().withDbPath(dbPath));
+    return (B) this;
+  }
+
+  /**
+   * Enable or disable the journal, mongod runs without journal unless enabled.
+   *
+   * @param journal <code>true</code> to enable journaling
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B journal(boolean journal) {
+    extension.withStorage(extension.getStorage().withJournal(journal));
+    return (B) this;
+  }
+
+  /**
+   * Limit the WiredTiger cache of mongod.
+   *
+   * @param cacheSizeGB the cache size in gigabytes, <code>0.25</code> for example
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B wiredTigerCacheSizeGB(double cacheSizeGB) {
+    extension.withStorage(extension.getStorage().withWiredTigerCacheSizeGB(cacheSizeGB));
+    return (B) this;
+  }
+
+  /**
+   * Set the seconds between flushes of the data files.
+   *
+   * @param syncDelay the delay in seconds, <code>0</code> disables background flushes
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B syncDelay(int syncDelay) {
+    extension.withStorage(extension.getStorage().withSyncDelay(syncDelay));
+    return (B) this;
+  }
+
+  /**
+   * Load a fixture into the test database before every test. The fixture is seeded on its first load and
+   * restored from a snapshot afterwards, combine it with a {@link ResetStrategy} to keep one mongod running.
+   *
+   * @param fixture the fixture to load
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B fixture(MongoFixture fixture) {
+    extension.withFixture(fixture);
+    return (B) this;
+  }
+
+  /**
+   * Load a fixture into the test database before every test.
+   *
+   * @param name   the name under which the snapshot of the fixture is shared in the JVM
+   * @param seeder the code that seeds the fixture on its first load
+   * @return this builder
+   * @see #fixture(MongoFixture)
+   */
+  @SuppressWarnings("unchecked")
+  public B fixture(String name, MongoSeeder seeder) {
+    extension.withFixture(MongoFixture.of(name, seeder));
+    return (B) this;
+  }
+
+  /**
+   * Publish how long mongod took to resolve, extract, launch, become ready, connect, reset and shut down
+   * as JUnit report entries and log the test classes with the highest mongo overhead at the end of the run.
+   *
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B reportTimings() {
+    extension.withReportTimings(true);
+    return (B) this;
+  }
+
+  /**
+   * Tell a listener how long each lifecycle phase took.
+   *
+   * @param listener the listener
+   * @return this builder
+   */
+  @SuppressWarnings("unchecked")
+  public B lifecycleListener(MongoLifecycleListener listener) {
+    extension.withLifecycleListener(listener);
+    return (B) this;
+  }
+
   public E build() {
     return extension;
   }
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Creates the clients handed to the tests of one mongod instance. The legacy {@link MongoClient}, the
+ * {@link com.mongodb.client.MongoClient} and the reactive streams client are each created on first use, so a
+ * test that never talks to mongod does not pay for connection pools and server monitors. All clients are
+ * derived from the same {@link MongoClientOptions}, so they share pool, socket and server selection settings
+ * and report to the same command listeners.
+ */
+final class MongoClientFactory {
+
+  static final String REACTIVE_STREAMS_CLIENT = "com.mongodb.reactivestreams.client.MongoClient";
+
+  private final List<ServerAddress> seeds;
+
+  private final String replicaSet;
+
+  private final MongoClientOptions options;
+
+  private final LongConsumer connected;
+
+  private MongoClient legacyClient;
+
+  private com.mongodb.client.MongoClient syncClient;
+
+  private AutoCloseable reactiveClient;
+
+  /**
+   * @param seeds      the servers to connect to
+   * @param replicaSet the name of the replica set the servers belong to or <code>null</code> for a single server
+   * @param options    the options all clients are derived from
+   * @param connected  receives the milliseconds it took to create the legacy client and open its pool
+   */
+  MongoClientFactory(List<ServerAddress> seeds, String replicaSet, MongoClientOptions options,
+                     LongConsumer connected) {
+    this.seeds = seeds;
+    this.replicaSet = replicaSet;
+    this.options = replicaSet == null ? options : MongoClientOptions.builder(options)
+      .requiredReplicaSetName(replicaSet)
+      .build();
+    this.connected = connected;
+  }
+
+  /**
+   * @param type the client type a test asks for
+   * @return <code>true</code> if the factory can create clients of the type
+   */
+  static boolean supports(Class<?> type) {
+    return type == MongoClient.class
+      || type == com.mongodb.client.MongoClient.class
+      || REACTIVE_STREAMS_CLIENT.equals(type.getName());
+  }
+
+  /**
+   * @return the legacy client, the first call creates it and opens its connection pool with a round trip
+   */
+  synchronized MongoClient getLegacyClient() {
+    if (legacyClient == null) {
+      long start = System.nanoTime();
+      // a replica set client discovers all members so that transactions and change streams work
+      MongoClient client = replicaSet == null
+        ? new MongoClient(seeds.get(0), options)
+        : new MongoClient(seeds, options);
+      try {
+        client.getDatabase("admin").runCommand(new Document("ping", 1));
+      } catch (RuntimeException e) {
+        client.close();
+        throw e;
+      }
+      legacyClient = client;
+      connected.accept(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    return legacyClient;
+  }
+
+  /**
+   * Get the client of the requested type, the first call for a type creates the client.
+   *
+   * @param type the legacy {@link MongoClient}, {@link com.mongodb.client.MongoClient} or the reactive streams
+   *             <code>MongoClient</code>
+   * @param <T>  the client type
+   * @return the client of the requested type
+   * @throws IllegalArgumentException the type is not a supported client
+   */
+  synchronized <T> T get(Class<T> type) {
+
+    if (type == MongoClient.class) {
+      return type.cast(getLegacyClient());
+    }
+
+    if (type == com.mongodb.client.MongoClient.class) {
+      if (syncClient == null) {
+        syncClient = MongoClients.create(settings());
+      }
+      return type.cast(syncClient);
+    }
+
+    if (REACTIVE_STREAMS_CLIENT.equals(type.getName())) {
+      if (reactiveClient == null) {
+        reactiveClient = ReactiveStreams.create(settings());
+      }
+      return type.cast(reactiveClient);
+    }
+
+    throw new IllegalArgumentException(type.getName() + " is not a supported mongo client");
+
+  }
+
+  /**
+   * Close all clients that were created.
+   */
+  synchronized void close() {
+    if (legacyClient != null) {
+      legacyClient.close();
+      legacyClient = null;
+    }
+    if (syncClient != null) {
+      syncClient.close();
+      syncClient = null;
+    }
+    if (reactiveClient != null) {
+      try {
+        reactiveClient.close();
+      } catch (Exception e) {
+        throw new IllegalStateException("failed to close the reactive streams client", e);
+      }
+      reactiveClient = null;
+    }
+  }
+
+  /**
+   * Translate the legacy options into the settings of the newer drivers.
+   *
+   * @return the settings the sync and reactive streams clients are created with
+   */
+  MongoClientSettings settings() {
+
+    MongoClientSettings.Builder settings = MongoClientSettings.builder()
+      .applyToClusterSettings(cluster -> {
+        cluster.hosts(seeds).serverSelectionTimeout(options.getServerSelectionTimeout(), TimeUnit.MILLISECONDS)
+          .localThreshold(options.getLocalThreshold(), TimeUnit.MILLISECONDS);
+        if (replicaSet != null) {
+          cluster.requiredReplicaSetName(replicaSet);
+        }
+      })
+      .applyToConnectionPoolSettings(pool -> pool
+        .maxSize(options.getConnectionsPerHost())
+        .minSize(options.getMinConnectionsPerHost())
+        .maxWaitQueueSize(options.getThreadsAllowedToBlockForConnectionMultiplier() * options.getConnectionsPerHost())
+        .maxWaitTime(options.getMaxWaitTime(), TimeUnit.MILLISECONDS)
+        .maxConnectionIdleTime(options.getMaxConnectionIdleTime(), TimeUnit.MILLISECONDS)
+        .maxConnectionLifeTime(options.getMaxConnectionLifeTime(), TimeUnit.MILLISECONDS))
+      .applyToSocketSettings(socket -> socket
+        .connectTimeout(options.getConnectTimeout(), TimeUnit.MILLISECONDS)
+        .readTimeout(options.getSocketTimeout(), TimeUnit.MILLISECONDS))
+      .applyToServerSettings(server -> server
+        .heartbeatFrequency(options.getHeartbeatFrequency(), TimeUnit.MILLISECONDS)
+        .minHeartbeatFrequency(options.getMinHeartbeatFrequency(), TimeUnit.MILLISECONDS))
+      .readPreference(options.getReadPreference())
+      .writeConcern(options.getWriteConcern())
+      .readConcern(options.getReadConcern())
+      .retryWrites(options.getRetryWrites());
+
+    if (options.getApplicationName() != null) {
+      settings.applicationName(options.getApplicationName());
+    }
+
+    options.getCommandListeners().forEach(settings::addCommandListener);
+
+    return settings.build();
+
+  }
+
+  /**
+   * Keeps the reactive streams driver off the class path of tests that do not use it.
+   */
+  private static final class ReactiveStreams {
+
+    private static AutoCloseable create(MongoClientSettings settings) {
+      return com.mongodb.reactivestreams.client.MongoClients.create(settings);
+    }
+
+  }
+
+}
@@ -0,0 +1,388 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoDatabase;
+import de.flapdoodle.embed.mongo.MongosExecutable;
+import de.flapdoodle.embed.mongo.MongosProcess;
+import de.flapdoodle.embed.mongo.config.MongosConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.Timeout;
+import de.flapdoodle.embed.mongo.distribution.Feature;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.bson.Document;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The processes of a replica set or sharded cluster. All mongod members are launched at the same time,
+ * each replica set is initiated as soon as its members answer commands and the primary is awaited with the
+ * readiness probe, so bringing up a cluster takes about as long as starting a single mongod.
+ */
+final class MongoCluster {
+
+  static final String CONFIG_REPLICA_SET = "config";
+
+  static final String SHARD_REPLICA_SET_PREFIX = "shard";
+
+  private static final int COMMAND_TIMEOUT_MILLIS = 1000;
+
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private static final ExecutorService launcher = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "mongo-cluster-" + threadCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final List<MongodInstance> members;
+
+  private final MongosExecutable routerExecutable;
+
+  private final MongosProcess router;
+
+  private final int routerPort;
+
+  private final long shutdownTimeout;
+
+  private final MongodLogBuffer routerLog;
+
+  private MongoCluster(List<MongodInstance> members, MongosExecutable routerExecutable, MongosProcess router,
+                       int routerPort, long shutdownTimeout, MongodLogBuffer routerLog) {
+    this.members = members;
+    this.routerExecutable = routerExecutable;
+    this.router = router;
+    this.routerPort = routerPort;
+    this.shutdownTimeout = shutdownTimeout;
+    this.routerLog = routerLog;
+  }
+
+  /**
+   * Start the topology of the settings and wait until it accepts writes.
+   *
+   * @param settings         the cluster to start
+   * @param readinessTimeout the overall deadline in milliseconds for the cluster to become ready
+   * @param shutdownTimeout  the time in milliseconds each process is given to exit when it is stopped
+   * @param output           where the process output goes
+   * @return the running cluster, its port is the port of the primary or of mongos
+   * @throws IOException a process could not be started or the cluster did not become ready in time
+   */
+  static MongodInstance start(MongodSettings settings, long readinessTimeout, long shutdownTimeout,
+                              MongodOutput output)
+    throws IOException {
+
+    final long start = System.nanoTime();
+    final long deadline = start + TimeUnit.MILLISECONDS.toNanos(readinessTimeout);
+
+    MongoTopology topology = settings.getTopology();
+    List<MongodSettings> memberSettings = new ArrayList<>();
+
+    if (topology.getType() == MongoTopology.Type.REPLICA_SET) {
+      for (int i = 0; i < topology.getMembers(); i++) {
+        memberSettings.add(settings.member(i == 0 ? settings.getPort() : 0, topology.getReplicaSetName(),
+          MongodSettings.Role.MEMBER));
+      }
+    } else {
+      memberSettings.add(settings.member(0, CONFIG_REPLICA_SET, MongodSettings.Role.CONFIG_SERVER));
+      for (int i = 0; i < topology.getShards(); i++) {
+        memberSettings.add(settings.member(0, SHARD_REPLICA_SET_PREFIX + i, MongodSettings.Role.SHARD_SERVER));
+      }
+    }
+
+    List<MongodInstance> members = startMembers(memberSettings, readinessTimeout, shutdownTimeout, output);
+
+    Map<MongoPhase, Long> timings = new EnumMap<>(MongoPhase.class);
+    for (MongodInstance member : members) {
+      member.takeStartupTimings().forEach((phase, elapsed) -> timings.merge(phase, elapsed, Math::max));
+    }
+
+    MongoCluster cluster = new MongoCluster(members, null, null, 0, shutdownTimeout, null);
+
+    try {
+
+      long phase = System.nanoTime();
+
+      MongodInstance entry;
+      List<ServerAddress> seeds = new ArrayList<>();
+
+      if (topology.getType() == MongoTopology.Type.REPLICA_SET) {
+
+        initiate(members, remaining(deadline));
+        entry = members.get(0);
+        for (MongodInstance member : members) {
+          seeds.add(new ServerAddress(settings.getHost(), member.getPort()));
+        }
+
+      } else {
+
+        List<Callable<Void>> initiations = new ArrayList<>();
+        for (MongodInstance member : members) {
+          initiations.add(() -> {
+            initiate(Collections.singletonList(member), remaining(deadline));
+            return null;
+          });
+        }
+        await(initiations);
+
+        cluster = startRouter(settings, members, deadline, shutdownTimeout, output);
+        entry = members.get(1);
+        seeds.add(new ServerAddress(settings.getHost(), cluster.routerPort));
+
+        try (MongoClient client = directClient(seeds.get(0))) {
+          MongoDatabase admin = client.getDatabase("admin");
+          for (MongodInstance shard : members.subList(1, members.size())) {
+            admin.runCommand(new Document("addShard", shard.getSettings().getReplicaSet() + "/" + address(shard)));
+          }
+        }
+
+      }
+
+      timings.put(MongoPhase.INITIATE, elapsedSince(phase));
+
+      long timeToReady = elapsedSince(start);
+
+      if (output.getLog().isDebugEnabled()) {
+        output.getLog().debug("{} ready after {} ms {}", settings, timeToReady, timings);
+      }
+
+      return MongodInstance.of(cluster, settings, seeds.get(0).getPort(), entry, seeds, timeToReady, timings);
+
+    } catch (IOException | RuntimeException e) {
+      cluster.dumpLog("failed start");
+      cluster.stop();
+      throw e;
+    }
+
+  }
+
+  private static List<MongodInstance> startMembers(List<MongodSettings> settings, long readinessTimeout,
+                                                   long shutdownTimeout, MongodOutput output)
+    throws IOException {
+
+    List<Future<MongodInstance>> starting = new ArrayList<>(settings.size());
+    for (MongodSettings member : settings) {
+      starting.add(launcher.submit(() -> MongodInstance.start(member, readinessTimeout, shutdownTimeout, output)));
+    }
+
+    List<MongodInstance> members = new ArrayList<>(settings.size());
+    IOException failure = null;
+
+    for (Future<MongodInstance> member : starting) {
+      try {
+        members.add(member.get());
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof IOException
+            ? (IOException) e.getCause()
+            : new IOException("failed to start cluster member", e.getCause());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (failure == null) {
+          failure = new InterruptedIOException("interrupted while starting cluster members");
+        }
+      }
+    }
+
+    if (failure != null) {
+      new MongoCluster(members, null, null, 0, shutdownTimeout, null).stop();
+      throw failure;
+    }
+
+    return members;
+
+  }
+
+  /**
+   * Initiate a replica set on its first member. Only the first member may become primary so that the
+   * election does not have to wait for the other members.
+   */
+  private static void initiate(List<MongodInstance> members, long timeoutMillis) throws IOException {
+
+    MongodSettings first = members.get(0).getSettings();
+
+    List<Document> config = new ArrayList<>(members.size());
+    for (int i = 0; i < members.size(); i++) {
+      config.add(new Document("_id", i)
+        .append("host", address(members.get(i)))
+        .append("priority", i == 0 ? 1 : 0));
+    }
+
+    Document initiate = new Document("_id", first.getReplicaSet()).append("members", config);
+    if (first.getRole() == MongodSettings.Role.CONFIG_SERVER) {
+      initiate.append("configsvr", true);
+    }
+
+    try (MongoClient client = directClient(new ServerAddress(first.getHost(), members.get(0).getPort()))) {
+      client.getDatabase("admin").runCommand(new Document("replSetInitiate", initiate));
+    }
+
+    new MongoReadinessProbe(first.getHost(), members.get(0).getPort()).awaitReplicaSet(members.size(), timeoutMillis);
+
+  }
+
+  private static MongoCluster startRouter(MongodSettings settings, List<MongodInstance> members, long deadline,
+                                          long shutdownTimeout, MongodOutput output) throws IOException {
+
+    IFeatureAwareVersion version = settings.getVersion();
+    String configServer = address(members.get(0));
+
+    if (!settings.isEphemeralPort()) {
+      MongodReaper.getInstance().awaitAddress(settings.getHost(), settings.getPort(), shutdownTimeout);
+    }
+
+    for (int attempt = 1; ; attempt++) {
+
+      int port = settings.isEphemeralPort() ? MongoPortAllocator.getInstance().reserve() : settings.getPort();
+
+      MongosConfigBuilder config = new MongosConfigBuilder().version(version)
+        .net(new Net(port, Network.localhostIsIPv6()))
+        .timeout(new Timeout(remaining(deadline)));
+
+      if (version.enabled(Feature.MONGOS_CONFIGDB_SET_STYLE)) {
+        config.configDB(configServer).replicaSet(CONFIG_REPLICA_SET);
+      } else {
+        config.configDB(CONFIG_REPLICA_SET + "/" + configServer);
+      }
+
+      MongodLogBuffer routerLog = output.newBuffer("mongos on " + settings.getHost() + ":" + port);
+      MongosExecutable executable = MongodDistributionCache.routerStarter(output.getLog(), routerLog)
+        .prepare(config.build());
+      MongosProcess router = null;
+
+      try {
+        router = executable.start();
+        new MongoReadinessProbe(settings.getHost(), port).awaitReady(remaining(deadline));
+        return new MongoCluster(members, executable, router, port, shutdownTimeout, routerLog);
+      } catch (IOException | RuntimeException e) {
+        if (router != null) {
+          MongodShutdown.stop(router, shutdownTimeout);
+        }
+        executable.stop();
+        if (routerLog != null) {
+          routerLog.close();
+          routerLog.dump("failed start");
+        }
+        if (!settings.isEphemeralPort() || attempt >= MongodInstance.MAX_START_ATTEMPTS) {
+          throw e;
+        }
+        output.getLog().warn("failed to start mongos on port {}, retrying on another port", port, e);
+      }
+
+    }
+
+  }
+
+  private static MongoClient directClient(ServerAddress address) {
+    return new MongoClient(address, MongoClientOptions.builder()
+      .serverSelectionTimeout(COMMAND_TIMEOUT_MILLIS)
+      .connectTimeout(COMMAND_TIMEOUT_MILLIS)
+      .build());
+  }
+
+  private static void await(List<Callable<Void>> tasks) throws IOException {
+    try {
+      for (Future<Void> done : launcher.invokeAll(tasks)) {
+        done.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("failed to initiate cluster", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while initiating cluster");
+    }
+  }
+
+  private static String address(MongodInstance member) {
+    return member.getSettings().getHost() + ":" + member.getPort();
+  }
+
+  private static long remaining(long deadline) {
+    return Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), MongoReadinessProbe.MAX_BACKOFF_MILLIS);
+  }
+
+  private static long elapsedSince(long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  /**
+   * Write the retained output of mongos and all members to the log.
+   *
+   * @param reason why the output is written
+   */
+  void dumpLog(String reason) {
+    if (routerLog != null) {
+      routerLog.dump(reason);
+    }
+    for (MongodInstance member : members) {
+      member.dumpLog(reason);
+    }
+  }
+
+  /**
+   * Stop mongos and then all members in parallel.
+   *
+   * @return the milliseconds it took for all processes to exit
+   */
+  long stop() {
+
+    final long start = System.nanoTime();
+
+    if (router != null) {
+      MongodShutdown.stop(router, shutdownTimeout);
+      routerExecutable.stop();
+      if (routerLog != null) {
+        routerLog.close();
+      }
+    }
+
+    List<Callable<Long>> stops = new ArrayList<>(members.size());
+    for (MongodInstance member : members) {
+      stops.add(member::stop);
+    }
+
+    try {
+      launcher.invokeAll(stops);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    return elapsedSince(start);
+
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Loads documents from JSON, Extended JSON or BSON files into the test database before a test. On a test
+ * class the data set is loaded for every test when mongod is started per test or reset between tests, on a
+ * test method only for that test.
+ * <p>
+ * Files are streamed one document at a time and inserted with unordered bulk writes, so even large data
+ * sets never have to fit on the heap. JSON files may hold a single document, one document per line or an
+ * array of documents as written by <code>mongoexport</code>. BSON files are <code>mongodump</code> output.
+ * <pre>
+ * &#64;Test
+ * &#64;MongoDataSet(locations = {"customers.json", "orders.bson"})
+ * public void testSomething(MongoDatabase db) {
+ * }
+ * </pre>
+ */
+@Retention(RUNTIME)
+@Documented
+@Inherited
+@Target({TYPE, METHOD})
+@Repeatable(MongoDataSets.class)
+public @interface MongoDataSet {
+
+  /**
+   * @return the files to load, classpath resources unless prefixed with <code>file:</code>
+   */
+  String[] locations();
+
+  /**
+   * @return the collection to load into, by default the file name without extension
+   */
+  String collection() default "";
+
+  /**
+   * @return the number of documents inserted with one bulk write
+   */
+  int batchSize() default MongoDataSetLoader.DEFAULT_BATCH_SIZE;
+
+  /**
+   * @return <code>true</code> to load different collections in parallel
+   */
+  boolean parallel() default true;
+
+}
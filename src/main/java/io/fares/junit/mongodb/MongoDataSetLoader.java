@@ -0,0 +1,653 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams the files of {@link MongoDataSet} annotations into the test database. Only one batch of raw BSON
+ * documents per collection is held in memory at any time. Uncompressed <code>.bson</code> files on the file
+ * system are memory mapped and their documents are handed to the driver as slices of the mapping.
+ */
+final class MongoDataSetLoader {
+
+  private static final Logger log = LoggerFactory.getLogger(MongoDataSetLoader.class);
+
+  static final int DEFAULT_BATCH_SIZE = 1000;
+
+  static final String FILE_PREFIX = "file:";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  static final int MAP_WINDOW_SIZE = 256 * 1024 * 1024;
+
+  private static final CodecRegistry MAPPED_CODECS = CodecRegistries.fromCodecs(new MappedBsonDocumentCodec());
+
+  private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private final ClassLoader classLoader;
+
+  /**
+   * @param classLoader the class loader that resolves classpath locations
+   */
+  MongoDataSetLoader(ClassLoader classLoader) {
+    this.classLoader = classLoader;
+  }
+
+  /**
+   * Load the data sets, collections are loaded in parallel unless a data set disables it.
+   *
+   * @param database the test database
+   * @param dataSets the data sets to load
+   * @return the number of documents loaded
+   * @throws IOException a file could not be read or holds an invalid document
+   */
+  long load(MongoDatabase database, List<MongoDataSet> dataSets) throws IOException {
+    return load(database, dataSets, collection -> true);
+  }
+
+  /**
+   * Load the files of the data sets that go into the selected collections.
+   *
+   * @param database the test database
+   * @param dataSets the data sets to load
+   * @param selected the collections to load into
+   * @return the number of documents loaded
+   * @throws IOException a file could not be read or holds an invalid document
+   */
+  long load(MongoDatabase database, List<MongoDataSet> dataSets, Predicate<String> selected) throws IOException {
+
+    Map<String, List<Location>> collections = new LinkedHashMap<>();
+    boolean parallel = true;
+
+    for (MongoDataSet dataSet : dataSets) {
+      parallel &= dataSet.parallel();
+      for (String location : dataSet.locations()) {
+        String collection = collectionOf(dataSet, location);
+        if (selected.test(collection)) {
+          collections.computeIfAbsent(collection, key -> new ArrayList<>())
+            .add(new Location(location, dataSet.batchSize()));
+        }
+      }
+    }
+
+    long start = System.nanoTime();
+    long loaded = 0;
+
+    if (!parallel || collections.size() < 2) {
+      for (Map.Entry<String, List<Location>> collection : collections.entrySet()) {
+        loaded += load(database, collection.getKey(), collection.getValue());
+      }
+    } else {
+      loaded = loadInParallel(database, collections);
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("loaded {} documents into {} collections in {} ms", loaded, collections.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    return loaded;
+
+  }
+
+  private long loadInParallel(MongoDatabase database, Map<String, List<Location>> collections) throws IOException {
+
+    int threads = Math.min(collections.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "mongo-dataset-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    try {
+
+      List<Future<Long>> futures = new ArrayList<>(collections.size());
+      for (Map.Entry<String, List<Location>> collection : collections.entrySet()) {
+        futures.add(executor.submit(() -> load(database, collection.getKey(), collection.getValue())));
+      }
+
+      long loaded = 0;
+      for (Future<Long> future : futures) {
+        loaded += future.get();
+      }
+      return loaded;
+
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("failed to load data set", cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while loading data set", e);
+    } finally {
+      executor.shutdownNow();
+    }
+
+  }
+
+  private long load(MongoDatabase database, String collection, List<Location> locations) throws IOException {
+
+    long loaded = 0;
+
+    for (Location location : locations) {
+      try (DocumentSource<?> source = open(location.path)) {
+        loaded += insert(database, collection, source, location.batchSize);
+      }
+    }
+
+    return loaded;
+
+  }
+
+  /**
+   * Load a <code>.bson</code> file on the file system through a memory mapping.
+   *
+   * @param database   the test database
+   * @param collection the collection to load into
+   * @param file       the file in <code>mongodump</code> format
+   * @param batchSize  the number of documents inserted with one unordered bulk insert
+   * @return the number of documents loaded
+   * @throws IOException the file could not be read or holds an invalid document
+   */
+  static long loadMapped(MongoDatabase database, String collection, Path file, int batchSize) throws IOException {
+    try (DocumentSource<?> source = new MappedBsonDocumentSource(file, MAP_WINDOW_SIZE)) {
+      return insert(database, collection, source, batchSize);
+    }
+  }
+
+  private static <T> long insert(MongoDatabase database, String name, DocumentSource<T> source, int batchSize)
+    throws IOException {
+
+    MongoCollection<T> collection = database.getCollection(name, source.documentClass())
+      .withCodecRegistry(CodecRegistries.fromRegistries(MAPPED_CODECS, database.getCodecRegistry()));
+
+    long loaded = 0;
+    List<T> batch = new ArrayList<>(batchSize);
+
+    T document;
+    while ((document = source.next()) != null) {
+      batch.add(document);
+      if (batch.size() == batchSize) {
+        collection.insertMany(batch, UNORDERED);
+        loaded += batch.size();
+        batch.clear();
+      }
+    }
+
+    if (!batch.isEmpty()) {
+      collection.insertMany(batch, UNORDERED);
+      loaded += batch.size();
+    }
+
+    return loaded;
+
+  }
+
+  /**
+   * Open a location, uncompressed BSON files are mapped when they are on the file system.
+   */
+  DocumentSource<?> open(String location) throws IOException {
+    Path file = mappableFile(location);
+    return file != null ? new MappedBsonDocumentSource(file, MAP_WINDOW_SIZE) : stream(location);
+  }
+
+  private Path mappableFile(String location) {
+
+    if (!location.endsWith(".bson")) {
+      return null;
+    }
+
+    if (location.startsWith(FILE_PREFIX)) {
+      return Paths.get(location.substring(FILE_PREFIX.length()));
+    }
+
+    URL url = classLoader.getResource(resourceName(location));
+    if (url == null || !"file".equals(url.getProtocol())) {
+      return null;
+    }
+
+    try {
+      return Paths.get(url.toURI());
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+
+  }
+
+  private static String resourceName(String location) {
+    return location.startsWith("/") ? location.substring(1) : location;
+  }
+
+  /**
+   * Open a location as a stream of documents that are copied into heap arrays.
+   */
+  DocumentSource<RawBsonDocument> stream(String location) throws IOException {
+
+    InputStream in;
+    if (location.startsWith(FILE_PREFIX)) {
+      in = Files.newInputStream(Paths.get(location.substring(FILE_PREFIX.length())));
+    } else {
+      in = classLoader.getResourceAsStream(resourceName(location));
+      if (in == null) {
+        throw new FileNotFoundException("data set " + location + " not found on the classpath");
+      }
+    }
+
+    String name = location;
+    in = new BufferedInputStream(in, BUFFER_SIZE);
+    if (name.endsWith(".gz")) {
+      in = new GZIPInputStream(in, BUFFER_SIZE);
+      name = name.substring(0, name.length() - 3);
+    }
+
+    return name.endsWith(".bson")
+      ? new BsonDocumentSource(in)
+      : new JsonDocumentSource(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+  }
+
+  /**
+   * @param dataSets the data sets
+   * @return the collections the data sets load into
+   */
+  static Set<String> collectionsOf(List<MongoDataSet> dataSets) {
+    Set<String> collections = new LinkedHashSet<>();
+    for (MongoDataSet dataSet : dataSets) {
+      for (String location : dataSet.locations()) {
+        collections.add(collectionOf(dataSet, location));
+      }
+    }
+    return collections;
+  }
+
+  private static String collectionOf(MongoDataSet dataSet, String location) {
+    return dataSet.collection().isEmpty() ? collectionName(location) : dataSet.collection();
+  }
+
+  /**
+   * @return the file name of the location without directories and extensions
+   */
+  static String collectionName(String location) {
+    String name = location.substring(Math.max(location.lastIndexOf('/'), location.lastIndexOf(':')) + 1);
+    if (name.endsWith(".gz")) {
+      name = name.substring(0, name.length() - 3);
+    }
+    int extension = name.lastIndexOf('.');
+    return extension > 0 ? name.substring(0, extension) : name;
+  }
+
+  /**
+   * A stream of documents read from a file.
+   */
+  interface DocumentSource<T> extends Closeable {
+
+    /**
+     * @return the next document or <code>null</code> at the end of the file
+     * @throws IOException the file could not be read or holds an invalid document
+     */
+    T next() throws IOException;
+
+    /**
+     * @return the type of the documents, used to select the codec that writes them
+     */
+    Class<T> documentClass();
+
+  }
+
+  /**
+   * Reads <code>mongodump</code> output, a sequence of BSON documents. The bytes are wrapped without decoding.
+   */
+  static final class BsonDocumentSource implements DocumentSource<RawBsonDocument> {
+
+    private final InputStream in;
+
+    private final byte[] header = new byte[4];
+
+    BsonDocumentSource(InputStream in) {
+      this.in = in;
+    }
+
+    @Override
+    public RawBsonDocument next() throws IOException {
+
+      int read = readFully(header, 0, header.length);
+      if (read == 0) {
+        return null;
+      }
+      if (read < header.length) {
+        throw new EOFException("truncated BSON document");
+      }
+
+      int size = (header[0] & 0xFF) | (header[1] & 0xFF) << 8 | (header[2] & 0xFF) << 16 | (header[3] & 0xFF) << 24;
+      if (size < 5) {
+        throw new IOException("invalid BSON document size " + size);
+      }
+
+      byte[] bytes = new byte[size];
+      System.arraycopy(header, 0, bytes, 0, header.length);
+      if (readFully(bytes, header.length, size - header.length) < size - header.length) {
+        throw new EOFException("truncated BSON document");
+      }
+
+      return new RawBsonDocument(bytes);
+
+    }
+
+    private int readFully(byte[] buffer, int offset, int length) throws IOException {
+      int total = 0;
+      while (total < length) {
+        int read = in.read(buffer, offset + total, length - total);
+        if (read < 0) {
+          break;
+        }
+        total += read;
+      }
+      return total;
+    }
+
+    @Override
+    public Class<RawBsonDocument> documentClass() {
+      return RawBsonDocument.class;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+  }
+
+  /**
+   * Splits a JSON stream into its top level documents without parsing more than one document at a time.
+   * Whitespace, commas and the brackets of an enclosing array between documents are skipped.
+   */
+  static final class JsonDocumentSource implements DocumentSource<RawBsonDocument> {
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[8192];
+
+    private final StringBuilder document = new StringBuilder(1024);
+
+    private int position;
+
+    private int limit;
+
+    JsonDocumentSource(Reader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public RawBsonDocument next() throws IOException {
+
+      document.setLength(0);
+
+      int depth = 0;
+      boolean inString = false;
+      boolean escaped = false;
+      char quote = 0;
+
+      while (true) {
+
+        if (position == limit) {
+          limit = reader.read(buffer);
+          position = 0;
+          if (limit < 0) {
+            limit = 0;
+            if (depth > 0) {
+              throw new EOFException("truncated JSON document");
+            }
+            return null;
+          }
+        }
+
+        char c = buffer[position++];
+
+        if (depth == 0) {
+          if (c == '{') {
+            depth = 1;
+            document.append(c);
+          } else if (!Character.isWhitespace(c) && c != ',' && c != '[' && c != ']') {
+            throw new IOException("unexpected '" + c + "' between JSON documents");
+          }
+          continue;
+        }
+
+        document.append(c);
+
+        if (inString) {
+          if (escaped) {
+            escaped = false;
+          } else if (c == '\\') {
+            escaped = true;
+          } else if (c == quote) {
+            inString = false;
+          }
+        } else if (c == '"' || c == '\'') {
+          inString = true;
+          quote = c;
+        } else if (c == '{') {
+          depth++;
+        } else if (c == '}' && --depth == 0) {
+          return RawBsonDocument.parse(document.toString());
+        }
+
+      }
+
+    }
+
+    @Override
+    public Class<RawBsonDocument> documentClass() {
+      return RawBsonDocument.class;
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+
+  }
+
+  /**
+   * Reads <code>mongodump</code> output through a read only memory mapping. The file is mapped in windows
+   * that always start at a document boundary, each document is a slice of the current window.
+   */
+  static final class MappedBsonDocumentSource implements DocumentSource<MappedBsonDocument> {
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final int windowSize;
+
+    private ByteBuffer window;
+
+    private long windowStart;
+
+    private long position;
+
+    MappedBsonDocumentSource(Path file, int windowSize) throws IOException {
+      this.channel = FileChannel.open(file, StandardOpenOption.READ);
+      this.size = channel.size();
+      this.windowSize = windowSize;
+    }
+
+    @Override
+    public MappedBsonDocument next() throws IOException {
+
+      if (position == size) {
+        return null;
+      }
+      if (size - position < 4) {
+        throw new EOFException("truncated BSON document");
+      }
+
+      int length = window(4).getInt((int) (position - windowStart));
+      if (length < 5) {
+        throw new IOException("invalid BSON document size " + length);
+      }
+      if (size - position < length) {
+        throw new EOFException("truncated BSON document");
+      }
+
+      ByteBuffer document = window(length).duplicate();
+      int offset = (int) (position - windowStart);
+      document.limit(offset + length);
+      document.position(offset);
+
+      position += length;
+
+      return new MappedBsonDocument(document.slice());
+
+    }
+
+    private ByteBuffer window(int length) throws IOException {
+      if (window == null || position + length > windowStart + window.capacity()) {
+        windowStart = position;
+        long mapped = Math.min(Math.max(windowSize, length), size - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, mapped);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+      }
+      return window;
+    }
+
+    @Override
+    public Class<MappedBsonDocument> documentClass() {
+      return MappedBsonDocument.class;
+    }
+
+    @Override
+    public void close() throws IOException {
+      window = null;
+      channel.close();
+    }
+
+  }
+
+  /**
+   * A BSON document that is still in the memory mapped file it was read from.
+   */
+  static final class MappedBsonDocument {
+
+    private final ByteBuffer bytes;
+
+    MappedBsonDocument(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    /**
+     * @return a view of the document bytes
+     */
+    ByteBuffer getByteBuffer() {
+      return bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+  }
+
+  /**
+   * Pipes the bytes of a {@link MappedBsonDocument} into the driver's output buffer. The driver copies each
+   * document through a heap array of its size while piping, only the batches stay out of the heap.
+   */
+  static final class MappedBsonDocumentCodec implements Codec<MappedBsonDocument> {
+
+    @Override
+    public void encode(BsonWriter writer, MappedBsonDocument value, EncoderContext encoderContext) {
+      try (BsonReader reader = new BsonBinaryReader(value.getByteBuffer())) {
+        writer.pipe(reader);
+      }
+    }
+
+    @Override
+    public MappedBsonDocument decode(BsonReader reader, DecoderContext decoderContext) {
+      throw new UnsupportedOperationException("mapped documents are write only");
+    }
+
+    @Override
+    public Class<MappedBsonDocument> getEncoderClass() {
+      return MappedBsonDocument.class;
+    }
+
+  }
+
+  private static final class Location {
+
+    private final String path;
+
+    private final int batchSize;
+
+    private Location(String path, int batchSize) {
+      if (batchSize <= 0) {
+        throw new IllegalArgumentException("batch size must be positive");
+      }
+      this.path = path;
+      this.batchSize = batchSize;
+    }
+
+  }
+
+}
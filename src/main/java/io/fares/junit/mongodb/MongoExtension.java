@@ -1,6 +1,7 @@
 package io.fares.junit.mongodb;
 
 import com.mongodb.MongoClient;
+import com.mongodb.client.MongoDatabase;
 
 public interface MongoExtension {
 
@@ -14,6 +15,44 @@ public interface MongoExtension {
    */
   MongoClient getMongoClient();
 
+  /**
+   * Returns a client of the requested type. Supported are the legacy {@link MongoClient}, the newer
+   * {@link com.mongodb.client.MongoClient} and, when the reactive streams driver is on the class path,
+   * <code>com.mongodb.reactivestreams.client.MongoClient</code>. The newer clients are created on first use
+   * and share the pool settings of the legacy client. Implementations that only provide the legacy client
+   * support no other type.
+   *
+   * @param type the client type
+   * @param <T>  the client type
+   * @return the client or <code>null</code> if disabled
+   * @throws IllegalArgumentException the type is not a supported client
+   */
+  default <T> T getMongoClient(Class<T> type) {
+    if (!type.isAssignableFrom(MongoClient.class)) {
+      throw new IllegalArgumentException(type.getName() + " is not a supported mongo client");
+    }
+    return type.cast(getMongoClient());
+  }
+
+  /**
+   * Returns the name of the database the current test should use. This is {@link #UNIT_TEST_DB} unless
+   * {@link ResetStrategy#UNIQUE_DATABASE} hands each test its own database.
+   *
+   * @return the name of the test database
+   */
+  default String getDatabaseName() {
+    return UNIT_TEST_DB;
+  }
+
+  /**
+   * @return the database the current test should use or <code>null</code> if disabled
+   * @see #getDatabaseName()
+   */
+  default MongoDatabase getDatabase() {
+    MongoClient client = getMongoClient();
+    return client != null ? client.getDatabase(getDatabaseName()) : null;
+  }
+
   /**
    * @return <code>true</code> if the mongo database is started <code>false</code> otherwise
    */
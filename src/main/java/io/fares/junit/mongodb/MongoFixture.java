@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoDatabase;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A named data set that is seeded once per JVM. After the first load the database content is dumped to a
+ * temporary BSON file and every later load streams the dump back with unordered bulk inserts instead of
+ * running the seeding code again.
+ * <pre>
+ * static final MongoFixture CUSTOMERS = MongoFixture.of("customers", db -&gt; {
+ *   // slow seeding code that runs once
+ * });
+ *
+ * &#64;RegisterExtension
+ * static MongoForEachExtension mongo = MongoForEachExtension.builder().fixture(CUSTOMERS).build();
+ * </pre>
+ */
+public final class MongoFixture {
+
+  private static final Logger log = LoggerFactory.getLogger(MongoFixture.class);
+
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  private static final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+  private final String name;
+
+  private final MongoSeeder seeder;
+
+  private final int batchSize;
+
+  private MongoFixture(String name, MongoSeeder seeder, int batchSize) {
+    this.name = Objects.requireNonNull(name, "name");
+    this.seeder = Objects.requireNonNull(seeder, "seeder");
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param name   the name under which the snapshot is shared by all tests in the JVM, a name belongs to one
+   *               seeder so fixtures that share it are declared once as a constant
+   * @param seeder the code that seeds the data set on the first load
+   * @return the fixture
+   */
+  public static MongoFixture of(String name, MongoSeeder seeder) {
+    return new MongoFixture(name, seeder, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * @param batchSize the number of documents restored with one bulk insert
+   * @return a copy of this fixture with the batch size
+   */
+  public MongoFixture withBatchSize(int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batch size must be positive");
+    }
+    return new MongoFixture(name, seeder, batchSize);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Load the fixture into the database, seeding it on the first load and restoring the snapshot afterwards.
+   *
+   * @param database the empty test database
+   * @throws IOException the seeding code failed or the snapshot could not be written or read
+   * @throws IllegalStateException another seeder already uses the name of this fixture
+   */
+  void load(MongoDatabase database) throws IOException {
+
+    Snapshot snapshot = snapshots.computeIfAbsent(name, key -> new Snapshot(seeder));
+    if (snapshot.seeder != seeder) {
+      throw new IllegalStateException("fixture " + name + " is already seeded by another seeder");
+    }
+
+    MongoFixtureSnapshot taken;
+
+    synchronized (snapshot) {
+      if (snapshot.taken == null) {
+        try {
+          seeder.seed(database);
+        } catch (IOException | RuntimeException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new IOException("failed to seed fixture " + name, e);
+        }
+        snapshot.taken = MongoFixtureSnapshot.take(database);
+        return;
+      }
+      taken = snapshot.taken;
+    }
+
+    taken.restore(database, batchSize);
+
+  }
+
+  /**
+   * Forget all snapshots and delete their dumps so that the next load of every fixture runs its seeding code
+   * again.
+   */
+  public static void clearSnapshots() {
+    for (Iterator<Snapshot> it = snapshots.values().iterator(); it.hasNext(); ) {
+      Snapshot snapshot = it.next();
+      it.remove();
+      synchronized (snapshot) {
+        if (snapshot.taken != null) {
+          try {
+            snapshot.taken.delete();
+          } catch (IOException e) {
+            log.debug("failed to delete snapshot dump", e);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "fixture " + name;
+  }
+
+  private static final class Snapshot {
+
+    private final MongoSeeder seeder;
+
+    private MongoFixtureSnapshot taken;
+
+    private Snapshot(MongoSeeder seeder) {
+      this.seeder = seeder;
+    }
+
+  }
+
+}
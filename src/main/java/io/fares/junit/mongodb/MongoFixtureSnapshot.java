@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The content of a database dumped to a temporary directory: the options of every collection and their
+ * indexes are kept in memory, the documents of each collection are written to a <code>.bson</code> file in
+ * <code>mongodump</code> format. Restores stream the dump back through a memory mapping, so a snapshot costs
+ * no heap for its documents.
+ */
+final class MongoFixtureSnapshot {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Path directory;
+
+  private final List<CollectionSnapshot> collections;
+
+  private MongoFixtureSnapshot(Path directory, List<CollectionSnapshot> collections) {
+    this.directory = directory;
+    this.collections = collections;
+  }
+
+  /**
+   * Dump a database into a new temporary directory that is removed when the JVM exits.
+   *
+   * @param database the database to dump
+   * @return the snapshot
+   * @throws IOException the dump could not be written
+   */
+  static MongoFixtureSnapshot take(MongoDatabase database) throws IOException {
+
+    Path directory = Files.createTempDirectory("mongo-fixture-");
+    // files registered later are deleted first, the directory is empty when its turn comes
+    directory.toFile().deleteOnExit();
+
+    List<CollectionSnapshot> collections = new ArrayList<>();
+
+    for (Document info : database.listCollections()) {
+
+      String name = info.getString("name");
+      if (name.startsWith("system.") || "view".equals(info.getString("type"))) {
+        continue;
+      }
+
+      List<Document> indexes = new ArrayList<>();
+      for (Document index : database.getCollection(name).listIndexes()) {
+        if (!"_id_".equals(index.getString("name"))) {
+          index.remove("ns");
+          index.remove("v");
+          indexes.add(index);
+        }
+      }
+
+      // collection names may hold characters that are not valid in file names
+      Path file = directory.resolve(collections.size() + ".bson");
+      file.toFile().deleteOnExit();
+      dump(database, name, file);
+
+      collections.add(new CollectionSnapshot(name, info.get("options", Document.class), indexes, file));
+
+    }
+
+    return new MongoFixtureSnapshot(directory, collections);
+
+  }
+
+  private static void dump(MongoDatabase database, String name, Path file) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+         WritableByteChannel channel = Channels.newChannel(out);
+         MongoCursor<RawBsonDocument> documents = database.getCollection(name, RawBsonDocument.class)
+           .find().iterator()) {
+      while (documents.hasNext()) {
+        channel.write(documents.next().getByteBuffer().asNIO());
+      }
+    }
+  }
+
+  /**
+   * Restore the snapshot into a database. Collections that still hold documents, because a reset only
+   * cleaned the collections that were written to, are left as they are.
+   *
+   * @param database  the database to restore into
+   * @param batchSize the number of documents inserted with one unordered bulk insert
+   * @throws IOException the dump could not be read
+   */
+  void restore(MongoDatabase database, int batchSize) throws IOException {
+
+    Set<String> existing = database.listCollectionNames().into(new HashSet<>());
+
+    for (CollectionSnapshot collection : collections) {
+
+      if (!existing.contains(collection.name)) {
+        Document create = new Document("create", collection.name);
+        if (collection.options != null) {
+          create.putAll(collection.options);
+        }
+        database.runCommand(create);
+      } else if (database.getCollection(collection.name).estimatedDocumentCount() > 0) {
+        continue;
+      }
+
+      if (!collection.indexes.isEmpty()) {
+        database.runCommand(new Document("createIndexes", collection.name).append("indexes", collection.indexes));
+      }
+
+      MongoDataSetLoader.loadMapped(database, collection.name, collection.file, batchSize);
+
+    }
+
+  }
+
+  /**
+   * Remove the dump, the snapshot can no longer be restored.
+   *
+   * @throws IOException a file could not be deleted
+   */
+  void delete() throws IOException {
+    for (CollectionSnapshot collection : collections) {
+      Files.deleteIfExists(collection.file);
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  private static final class CollectionSnapshot {
+
+    private final String name;
+
+    private final Document options;
+
+    private final List<Document> indexes;
+
+    private final Path file;
+
+    private CollectionSnapshot(String name, Document options, List<Document> indexes, Path file) {
+      this.name = name;
+      this.options = options;
+      this.indexes = indexes;
+      this.file = file;
+    }
+
+  }
+
+}
@@ -1,21 +1,85 @@
 package io.fares.junit.mongodb;
 
 import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
 
-public class MongoForAllExtension extends AbstractMongoExtension implements BeforeAllCallback, AfterAllCallback {
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MongoForAllExtension extends AbstractMongoExtension
+  implements BeforeAllCallback, AfterAllCallback, BeforeEachCallback, AfterEachCallback {
+
+  /**
+   * The databases that hold the fixture and the data sets of the test class.
+   */
+  private final Set<String> prepared = ConcurrentHashMap.newKeySet();
+
+  private volatile boolean resetAfterLastTest = false;
 
   @Override
   public void beforeAll(ExtensionContext context) throws Exception {
     startMongoWhenEnabled(context);
+    if (isStarted()) {
+      prepared.add(getDatabaseName());
+    }
+  }
+
+  @Override
+  public void beforeEach(ExtensionContext context) throws Exception {
+    if (isStarted()) {
+      resetAfterLastTest = false;
+      // a reset removed the fixture and the data sets of the test class, they are loaded for the next test
+      // rather than after the reset so the last test of the class does not load them for nothing
+      if (prepared.add(getDatabaseName())) {
+        restoreFixture();
+        loadDataSets(context, true, false);
+      }
+      loadDataSets(context, false, true);
+      startInspections(context);
+    }
+  }
+
+  @Override
+  public void afterEach(ExtensionContext context) throws Exception {
+    if (!isStarted()) {
+      return;
+    }
+    try {
+      finishInspections(context);
+    } finally {
+      dumpMongodLogOnFailure(context);
+      if (getResetStrategy() != ResetStrategy.NONE) {
+        prepared.remove(getDatabaseName());
+        resetDatabase();
+        resetAfterLastTest = true;
+        publishTimings(context);
+      } else {
+        // nothing resets the database, the data sets of the test must not leak into the next test
+        unloadDataSets(context);
+      }
+    }
   }
 
   @Override
   public void afterAll(ExtensionContext context) throws Exception {
+    prepared.clear();
+    // the last test left an empty database behind, tests in parallel reset their own databases only
+    if (resetAfterLastTest && !isParallel()) {
+      skipResetOnShutdown();
+    }
     stopMongoWhenEnabled(context);
   }
 
+  /**
+   * @return a load harness that drives the database of the current test
+   */
+  public MongoLoadHarness loadHarness() {
+    return MongoLoadHarness.of(this);
+  }
+
   public static Builder builder() {
     return new Builder();
   }
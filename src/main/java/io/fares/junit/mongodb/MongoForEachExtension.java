@@ -9,11 +9,16 @@ public class MongoForEachExtension extends AbstractMongoExtension implements Bef
   @Override
   public void beforeEach(ExtensionContext context) throws Exception {
     startMongoWhenEnabled(context);
+    startInspections(context);
   }
 
   @Override
   public void afterEach(ExtensionContext context) throws Exception {
-    stopMongoWhenEnabled(context);
+    try {
+      finishInspections(context);
+    } finally {
+      stopMongoWhenEnabled(context);
+    }
   }
 
   public static Builder builder() {
@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latencies in nanoseconds into log-linear buckets in the spirit of HdrHistogram. Each power of two is
+ * split into 64 buckets, so a reported value is within 1.6% of the recorded one. Recording neither allocates
+ * nor locks, a histogram has a single writer and histograms of several threads are combined with
+ * {@link #add(MongoLatencyHistogram)}. Latencies above {@link #MAX_TRACKABLE_NANOS} are recorded as that value.
+ */
+public final class MongoLatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 6;
+
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+
+  private static final int MAX_MAGNITUDE = 42;
+
+  /**
+   * The highest latency the histogram can tell apart, a little more than an hour.
+   */
+  public static final long MAX_TRACKABLE_NANOS = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+  private final long[] counts = new long[index(MAX_TRACKABLE_NANOS) + 1];
+
+  private long totalCount = 0;
+
+  private long sum = 0;
+
+  private long min = Long.MAX_VALUE;
+
+  private long max = 0;
+
+  /**
+   * Record a latency.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void record(long nanos) {
+    long value = Math.min(Math.max(nanos, 0), MAX_TRACKABLE_NANOS);
+    counts[index(value)]++;
+    totalCount++;
+    sum += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Add all latencies recorded by another histogram.
+   *
+   * @param other the histogram to add
+   */
+  public void add(MongoLatencyHistogram other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    totalCount += other.totalCount;
+    sum += other.sum;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Forget all recorded latencies.
+   */
+  public void reset() {
+    Arrays.fill(counts, 0);
+    totalCount = 0;
+    sum = 0;
+    min = Long.MAX_VALUE;
+    max = 0;
+  }
+
+  /**
+   * @return the number of recorded latencies
+   */
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  /**
+   * @return the lowest recorded latency in nanoseconds or 0 if nothing was recorded
+   */
+  public long getMin() {
+    return totalCount == 0 ? 0 : min;
+  }
+
+  /**
+   * @return the highest recorded latency in nanoseconds
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * @return the mean latency in nanoseconds or 0 if nothing was recorded
+   */
+  public double getMean() {
+    return totalCount == 0 ? 0 : (double) sum / totalCount;
+  }
+
+  /**
+   * Get the latency at or below which the given percentage of all recorded latencies fall.
+   *
+   * @param percentile the percentile between 0 and 100
+   * @return the latency in nanoseconds or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+
+    if (totalCount == 0) {
+      return 0;
+    }
+
+    double bounded = Math.min(Math.max(percentile, 0), 100);
+    long rank = Math.max(1, (long) Math.ceil(bounded / 100 * totalCount));
+
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(highestEquivalentValue(i), max);
+      }
+    }
+
+    return max;
+
+  }
+
+  /**
+   * @param percentile the percentile between 0 and 100
+   * @param unit       the unit of the returned value
+   * @return the latency at the percentile in the unit
+   * @see #getValueAtPercentile(double)
+   */
+  public double getValueAtPercentile(double percentile, TimeUnit unit) {
+    return (double) getValueAtPercentile(percentile) / unit.toNanos(1);
+  }
+
+  static int index(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+/**
+ * Receives the timings of the mongod lifecycle phases, for example to feed them into a metrics system.
+ * Listeners are called on the thread that runs the lifecycle and should return quickly.
+ */
+@FunctionalInterface
+public interface MongoLifecycleListener {
+
+  /**
+   * @param phase         the phase that completed
+   * @param elapsedMillis the milliseconds the phase took
+   */
+  void phaseCompleted(MongoPhase phase, long elapsedMillis);
+
+}
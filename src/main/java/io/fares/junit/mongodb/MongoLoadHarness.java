@@ -0,0 +1,435 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoDatabase;
+import org.junit.jupiter.api.TestReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Drives a weighted mix of read and write operations against the test database from a pool of threads and
+ * measures latency and throughput of each operation. Every worker thread records into histograms of its own
+ * which are merged when the run completes, so the measurement neither allocates nor contends.
+ *
+ * <pre>
+ *   {@literal @}RegisterExtension
+ *   static MongoForAllExtension mongo = MongoForAllExtension.builder().connectionPool(64, 640).build();
+ *
+ *   {@literal @}Test
+ *   void findIsFastEnough(TestReporter reporter) throws Exception {
+ *     mongo.loadHarness()
+ *       .threads(32)
+ *       .warmup(2, TimeUnit.SECONDS)
+ *       .duration(10, TimeUnit.SECONDS)
+ *       .operation("insert", 1, db -&gt; dao.insert(...))
+ *       .operation("find", 9, db -&gt; dao.findByCustomer(...))
+ *       .percentileBelow("find", 99, 5, TimeUnit.MILLISECONDS)
+ *       .run(reporter);
+ *   }
+ * </pre>
+ */
+public final class MongoLoadHarness {
+
+  private static final Logger log = LoggerFactory.getLogger(MongoLoadHarness.class);
+
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private final Supplier<MongoDatabase> database;
+
+  private final List<String> names = new ArrayList<>();
+
+  private final List<MongoLoadOperation> operations = new ArrayList<>();
+
+  private final List<Integer> weights = new ArrayList<>();
+
+  private final List<Threshold> thresholds = new ArrayList<>();
+
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  private ThreadFactory threadFactory = r -> {
+    Thread thread = new Thread(r, "mongo-load-" + threadCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  };
+
+  private long warmupNanos = 0;
+
+  private long durationNanos = TimeUnit.SECONDS.toNanos(5);
+
+  private MongoLoadHarness(Supplier<MongoDatabase> database) {
+    this.database = database;
+  }
+
+  /**
+   * Create a harness that works in the database of the current test.
+   *
+   * @param mongo the extension that started mongod, usually a {@link MongoForAllExtension}
+   * @return the harness
+   */
+  public static MongoLoadHarness of(MongoExtension mongo) {
+    return new MongoLoadHarness(mongo::getDatabase);
+  }
+
+  /**
+   * Create a harness that works in the given database, e.g. the one of a {@link MongoRule}.
+   *
+   * @param db the database the operations are given
+   * @return the harness
+   */
+  public static MongoLoadHarness of(MongoDatabase db) {
+    return new MongoLoadHarness(() -> db);
+  }
+
+  /**
+   * @param threads the number of threads that execute operations concurrently
+   * @return self to continue fluently
+   */
+  public MongoLoadHarness threads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("at least one thread is required");
+    }
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * Create the worker threads with this factory, on a JDK with virtual threads
+   * <code>Thread.ofVirtual().factory()</code> runs every worker on a virtual thread.
+   *
+   * @param threadFactory the factory of the worker threads
+   * @return self to continue fluently
+   */
+  public MongoLoadHarness threadFactory(ThreadFactory threadFactory) {
+    this.threadFactory = threadFactory;
+    return this;
+  }
+
+  /**
+   * @param warmup the time operations run before measuring starts
+   * @param unit   the unit of the warmup
+   * @return self to continue fluently
+   */
+  public MongoLoadHarness warmup(long warmup, TimeUnit unit) {
+    this.warmupNanos = unit.toNanos(warmup);
+    return this;
+  }
+
+  /**
+   * @param duration the time operations are measured
+   * @param unit     the unit of the duration
+   * @return self to continue fluently
+   */
+  public MongoLoadHarness duration(long duration, TimeUnit unit) {
+    this.durationNanos = unit.toNanos(duration);
+    return this;
+  }
+
+  /**
+   * Add an operation to the workload. Each worker picks the next operation at random, the weight of an
+   * operation relative to the sum of all weights is its share of the executions.
+   *
+   * @param name      the name the operation is reported under
+   * @param weight    the relative frequency of the operation
+   * @param operation the operation
+   * @return self to continue fluently
+   */
+  public MongoLoadHarness operation(String name, int weight, MongoLoadOperation operation) {
+    if (weight < 1) {
+      throw new IllegalArgumentException("the weight of " + name + " must be positive");
+    }
+    if (names.contains(name)) {
+      throw new IllegalArgumentException("duplicate operation " + name);
+    }
+    names.add(name);
+    weights.add(weight);
+    operations.add(operation);
+    return this;
+  }
+
+  /**
+   * Fail the run if the latency of an operation at the percentile exceeds the limit.
+   *
+   * @param name       the name of the operation
+   * @param percentile the percentile between 0 and 100
+   * @param limit      the highest acceptable latency
+   * @param unit       the unit of the limit
+   * @return self to continue fluently
+   */
+  public MongoLoadHarness percentileBelow(String name, double percentile, long limit, TimeUnit unit) {
+    long limitNanos = unit.toNanos(limit);
+    thresholds.add(new Threshold(name, result -> {
+      long actual = result.getLatency().getValueAtPercentile(percentile);
+      return actual <= limitNanos ? null : String.format(Locale.ROOT,
+        "p%s of %s is %.3f ms, expected at most %.3f ms", percentile, name, actual / 1e6, limitNanos / 1e6);
+    }));
+    return this;
+  }
+
+  /**
+   * Fail the run if an operation achieves less throughput.
+   *
+   * @param name         the name of the operation
+   * @param opsPerSecond the lowest acceptable number of successful executions per second
+   * @return self to continue fluently
+   */
+  public MongoLoadHarness throughputAbove(String name, double opsPerSecond) {
+    thresholds.add(new Threshold(name, result -> result.getThroughput() >= opsPerSecond ? null
+      : String.format(Locale.ROOT, "%s achieved %.1f ops/s, expected at least %.1f ops/s", name,
+      result.getThroughput(), opsPerSecond)));
+    return this;
+  }
+
+  /**
+   * Fail the run if an operation throws more often.
+   *
+   * @param name      the name of the operation
+   * @param maxErrors the highest acceptable number of failed executions
+   * @return self to continue fluently
+   */
+  public MongoLoadHarness maxErrors(String name, long maxErrors) {
+    thresholds.add(new Threshold(name, result -> result.getErrors() <= maxErrors ? null
+      : name + " failed " + result.getErrors() + " times, expected at most " + maxErrors));
+    return this;
+  }
+
+  /**
+   * Run the workload and check the thresholds.
+   *
+   * @return the result of the run
+   * @throws InterruptedException the calling thread was interrupted while waiting for the workers
+   * @throws AssertionError       a threshold was exceeded
+   */
+  public MongoLoadResult run() throws InterruptedException {
+    return run(null);
+  }
+
+  /**
+   * Run the workload, publish the result as report entries of the current test and check the thresholds.
+   *
+   * @param reporter the reporter of the current test
+   * @return the result of the run
+   * @throws InterruptedException the calling thread was interrupted while waiting for the workers
+   * @throws AssertionError       a threshold was exceeded
+   * @see MongoLoadResult#toReportEntries()
+   */
+  public MongoLoadResult run(TestReporter reporter) throws InterruptedException {
+
+    if (operations.isEmpty()) {
+      throw new IllegalStateException("the workload has no operations");
+    }
+
+    for (Threshold threshold : thresholds) {
+      if (!names.contains(threshold.name)) {
+        throw new IllegalStateException("threshold for unknown operation " + threshold.name);
+      }
+    }
+
+    MongoDatabase db = database.get();
+    if (db == null) {
+      throw new IllegalStateException("mongod is not started");
+    }
+
+    MongoLoadResult result = execute(db);
+
+    if (log.isDebugEnabled()) {
+      log.debug("load with {} threads for {} ms: {}", threads, result.getDuration(TimeUnit.MILLISECONDS), result);
+    }
+
+    if (reporter != null) {
+      reporter.publishEntry(result.toReportEntries());
+    }
+
+    List<String> violations = new ArrayList<>();
+    for (Threshold threshold : thresholds) {
+      String violation = threshold.check.apply(result.getOperation(threshold.name));
+      if (violation != null) {
+        violations.add(violation);
+      }
+    }
+    if (!violations.isEmpty()) {
+      throw new AssertionError(String.join(", ", violations));
+    }
+
+    return result;
+
+  }
+
+  private MongoLoadResult execute(MongoDatabase db) throws InterruptedException {
+
+    int[] cumulativeWeights = new int[weights.size()];
+    int total = 0;
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      total += weights.get(i);
+      cumulativeWeights[i] = total;
+    }
+
+    MongoLoadOperation[] workload = operations.toArray(new MongoLoadOperation[0]);
+
+    long start = System.nanoTime();
+    long measureFrom = start + warmupNanos;
+    long end = measureFrom + durationNanos;
+
+    List<Worker> workers = new ArrayList<>(threads);
+    List<Thread> running = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      Worker worker = new Worker(db, workload, cumulativeWeights, measureFrom, end);
+      Thread thread = threadFactory.newThread(worker);
+      workers.add(worker);
+      running.add(thread);
+      thread.start();
+    }
+
+    try {
+      for (Thread thread : running) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      running.forEach(Thread::interrupt);
+      throw e;
+    }
+
+    Map<String, MongoLoadResult.Operation> results = new LinkedHashMap<>();
+    for (int op = 0; op < workload.length; op++) {
+      MongoLatencyHistogram latency = new MongoLatencyHistogram();
+      long errors = 0;
+      Throwable firstError = null;
+      for (Worker worker : workers) {
+        latency.add(worker.latencies[op]);
+        errors += worker.errors[op];
+        if (firstError == null) {
+          firstError = worker.firstErrors[op];
+        }
+      }
+      results.put(names.get(op), new MongoLoadResult.Operation(names.get(op), latency, errors, durationNanos,
+        firstError));
+    }
+
+    return new MongoLoadResult(results, durationNanos);
+
+  }
+
+  /**
+   * Executes randomly picked operations until the end of the run and records the ones that started after
+   * the warmup.
+   */
+  private static final class Worker implements Runnable {
+
+    private final MongoDatabase db;
+
+    private final MongoLoadOperation[] workload;
+
+    private final int[] cumulativeWeights;
+
+    private final long measureFrom;
+
+    private final long end;
+
+    private final MongoLatencyHistogram[] latencies;
+
+    private final long[] errors;
+
+    private final Throwable[] firstErrors;
+
+    private Worker(MongoDatabase db, MongoLoadOperation[] workload, int[] cumulativeWeights, long measureFrom,
+                   long end) {
+      this.db = db;
+      this.workload = workload;
+      this.cumulativeWeights = cumulativeWeights;
+      this.measureFrom = measureFrom;
+      this.end = end;
+      this.latencies = new MongoLatencyHistogram[workload.length];
+      this.errors = new long[workload.length];
+      this.firstErrors = new Throwable[workload.length];
+      for (int i = 0; i < workload.length; i++) {
+        latencies[i] = new MongoLatencyHistogram();
+      }
+    }
+
+    @Override
+    public void run() {
+
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int total = cumulativeWeights[cumulativeWeights.length - 1];
+
+      long now = System.nanoTime();
+      while (now < end && !Thread.currentThread().isInterrupted()) {
+
+        int op = pick(random.nextInt(total));
+
+        long started = now;
+        Throwable failure = null;
+        try {
+          workload[op].execute(db);
+        } catch (Throwable t) {
+          // an assertion error or a linkage error must not end the worker silently and skew the counts
+          failure = t;
+        }
+        now = System.nanoTime();
+
+        if (started >= measureFrom) {
+          if (failure == null) {
+            latencies[op].record(now - started);
+          } else {
+            errors[op]++;
+            if (firstErrors[op] == null) {
+              firstErrors[op] = failure;
+            }
+          }
+        }
+
+      }
+
+    }
+
+    private int pick(int ticket) {
+      for (int i = 0; i < cumulativeWeights.length; i++) {
+        if (ticket < cumulativeWeights[i]) {
+          return i;
+        }
+      }
+      return cumulativeWeights.length - 1;
+    }
+
+  }
+
+  private static final class Threshold {
+
+    private final String name;
+
+    private final Function<MongoLoadResult.Operation, String> check;
+
+    private Threshold(String name, Function<MongoLoadResult.Operation, String> check) {
+      this.name = name;
+      this.check = check;
+    }
+
+  }
+
+}
@@ -0,0 +1,35 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * One operation of a {@link MongoLoadHarness} workload, for example a call into the DAO under test.
+ */
+@FunctionalInterface
+public interface MongoLoadOperation {
+
+  /**
+   * Execute the operation once. Exceptions are counted as errors of the operation.
+   *
+   * @param db the test database
+   * @throws Exception the operation failed
+   */
+  void execute(MongoDatabase db) throws Exception;
+
+}
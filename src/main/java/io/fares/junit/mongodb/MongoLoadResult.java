@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a {@link MongoLoadHarness} run, the latency histogram, throughput and errors of each operation.
+ */
+public final class MongoLoadResult {
+
+  private final Map<String, Operation> operations;
+
+  private final long durationNanos;
+
+  MongoLoadResult(Map<String, Operation> operations, long durationNanos) {
+    this.operations = Collections.unmodifiableMap(new LinkedHashMap<>(operations));
+    this.durationNanos = durationNanos;
+  }
+
+  /**
+   * @return the results of all operations by name in the order they were added to the harness
+   */
+  public Map<String, Operation> getOperations() {
+    return operations;
+  }
+
+  /**
+   * @param name the name of the operation
+   * @return the result of the operation
+   * @throws IllegalArgumentException the harness has no operation of that name
+   */
+  public Operation getOperation(String name) {
+    Operation operation = operations.get(name);
+    if (operation == null) {
+      throw new IllegalArgumentException("no operation " + name + " in " + operations.keySet());
+    }
+    return operation;
+  }
+
+  /**
+   * @param unit the unit of the returned value
+   * @return the measured time, warmup excluded
+   */
+  public long getDuration(TimeUnit unit) {
+    return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Lists the report entries of the run, e.g. <code>mongo.load.find.p99</code>. Latencies are given in
+   * milliseconds.
+   *
+   * @return the report entries
+   */
+  public Map<String, String> toReportEntries() {
+    Map<String, String> entries = new LinkedHashMap<>();
+    operations.forEach((name, operation) -> {
+      String prefix = "mongo.load." + name + ".";
+      MongoLatencyHistogram latency = operation.getLatency();
+      entries.put(prefix + "ops", String.valueOf(latency.getTotalCount()));
+      entries.put(prefix + "ops-per-sec", String.format(Locale.ROOT, "%.1f", operation.getThroughput()));
+      entries.put(prefix + "errors", String.valueOf(operation.getErrors()));
+      entries.put(prefix + "p50", millis(latency.getValueAtPercentile(50)));
+      entries.put(prefix + "p99", millis(latency.getValueAtPercentile(99)));
+      entries.put(prefix + "p99.9", millis(latency.getValueAtPercentile(99.9)));
+      entries.put(prefix + "max", millis(latency.getMax()));
+    });
+    return entries;
+  }
+
+  @Override
+  public String toString() {
+    return toReportEntries().toString();
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+  }
+
+  /**
+   * The result of one operation of the workload.
+   */
+  public static final class Operation {
+
+    private final String name;
+
+    private final MongoLatencyHistogram latency;
+
+    private final long errors;
+
+    private final double throughput;
+
+    private final Throwable firstError;
+
+    Operation(String name, MongoLatencyHistogram latency, long errors, long durationNanos, Throwable firstError) {
+      this.name = name;
+      this.latency = latency;
+      this.errors = errors;
+      this.throughput = durationNanos <= 0 ? 0 : latency.getTotalCount() * 1e9 / durationNanos;
+      this.firstError = firstError;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the latencies of all successful executions
+     */
+    public MongoLatencyHistogram getLatency() {
+      return latency;
+    }
+
+    /**
+     * @return the number of executions that threw an exception
+     */
+    public long getErrors() {
+      return errors;
+    }
+
+    /**
+     * @return the first exception the operation threw or <code>null</code>
+     */
+    public Throwable getFirstError() {
+      return firstError;
+    }
+
+    /**
+     * @return successful executions per second
+     */
+    public double getThroughput() {
+      return throughput;
+    }
+
+  }
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Fails a test when one of its database operations is slower or examines more documents than allowed. The
+ * database profiler records every operation of an annotated test, whether or not profiling is turned on for
+ * the extension. On a test method the limits replace those of the test class.
+ * <pre>
+ * &#64;Test
+ * &#64;MongoOperationLimits(maxMillis = 50, maxDocsExamined = 100)
+ * public void findsOrdersByCustomer(MongoDatabase db) {
+ * }
+ * </pre>
+ */
+@Retention(RUNTIME)
+@Documented
+@Inherited
+@Target({TYPE, METHOD})
+public @interface MongoOperationLimits {
+
+  /**
+   * @return the milliseconds an operation may take in mongod, <code>-1</code> for no limit
+   */
+  long maxMillis() default -1;
+
+  /**
+   * @return the documents an operation may examine, <code>-1</code> for no limit
+   */
+  long maxDocsExamined() default -1;
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import java.util.Locale;
+
+/**
+ * The phases of a mongod lifecycle that are timed. Startup phases are only recorded by the test that
+ * actually started mongod, tests that lease a running shared instance do not pay for them.
+ */
+public enum MongoPhase {
+
+  /**
+   * Locate the distribution archive, downloading it when it is not in the local cache.
+   */
+  RESOLVE,
+
+  /**
+   * Extract the mongod executable from the archive unless a verified extraction exists.
+   */
+  EXTRACT,
+
+  /**
+   * Launch the mongod process until it logs that it is waiting for connections.
+   */
+  EXEC,
+
+  /**
+   * Wait for the launched mongod to answer commands.
+   */
+  READINESS,
+
+  /**
+   * Initiate the replica sets of a cluster, wait for their primaries, start mongos and register the shards.
+   */
+  INITIATE,
+
+  /**
+   * Wait for the mongod that was pre-started in the background to become ready.
+   */
+  STANDBY,
+
+  /**
+   * Check that the daemon mongod of an earlier test run is healthy and drop its databases.
+   */
+  ATTACH,
+
+  /**
+   * Create the test client and complete its first round trip.
+   */
+  CLIENT_CONNECT,
+
+  /**
+   * Seed the {@link MongoFixture} or restore its snapshot.
+   */
+  FIXTURE,
+
+  /**
+   * Clean the test database according to the {@link ResetStrategy}.
+   */
+  RESET,
+
+  /**
+   * Close the client and stop or release mongod.
+   */
+  SHUTDOWN;
+
+  /**
+   * @return the key under which the phase is published as a JUnit report entry, <code>mongo.exec</code> for example
+   */
+  public String reportKey() {
+    return "mongo." + name().toLowerCase(Locale.ROOT).replace('_', '-');
+  }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The winning plans of all query shapes as recorded by an earlier test run. The file holds one shape and
+ * its plan summary per line, separated by a tab and sorted by shape, so that a changed plan shows up as a
+ * one line diff in version control. Shapes that are not in the file yet are added to it.
+ */
+final class MongoPlanBaseline {
+
+  /**
+   * The system property that makes the baseline take over changed plans instead of reporting them.
+   */
+  static final String UPDATE_PROPERTY = "mongodb.junit.plans.update";
+
+  private static final Logger log = LoggerFactory.getLogger(MongoPlanBaseline.class);
+
+  private static final Map<Path, MongoPlanBaseline> baselines = new ConcurrentHashMap<>();
+
+  private final Path file;
+
+  private final Map<String, String> plans;
+
+  private MongoPlanBaseline(Path file, Map<String, String> plans) {
+    this.file = file;
+    this.plans = plans;
+  }
+
+  /**
+   * @param file the baseline file, it is created when it does not exist
+   * @return the baseline shared by all tests of the JVM that use the file
+   * @throws UncheckedIOException the file could not be read
+   */
+  static MongoPlanBaseline of(Path file) {
+    return baselines.computeIfAbsent(file.toAbsolutePath().normalize(), MongoPlanBaseline::load);
+  }
+
+  static MongoPlanBaseline load(Path file) {
+
+    Map<String, String> plans = new TreeMap<>();
+
+    if (Files.exists(file)) {
+      try {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+          int tab = line.indexOf('\t');
+          if (!line.startsWith("#") && tab > 0) {
+            plans.put(line.substring(0, tab), line.substring(tab + 1));
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("failed to read plan baseline " + file, e);
+      }
+    }
+
+    return new MongoPlanBaseline(file, plans);
+
+  }
+
+  /**
+   * Compare a plan with the baseline. A shape that is missing from the baseline is added, a changed plan
+   * is taken over when the <code>{@value #UPDATE_PROPERTY}</code> system property is set.
+   *
+   * @param plan the current plan of a shape
+   * @return the summary of the baseline plan if it differs from the current plan, <code>null</code> otherwise
+   */
+  synchronized String compare(MongoQueryPlan plan) {
+
+    String recorded = plans.get(plan.getShape());
+    if (plan.getSummary().equals(recorded)) {
+      return null;
+    }
+
+    if (recorded != null && !Boolean.getBoolean(UPDATE_PROPERTY)) {
+      return recorded;
+    }
+
+    plans.put(plan.getShape(), plan.getSummary());
+    save();
+    return null;
+
+  }
+
+  private void save() {
+    try {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        writer.write("# query shape\twinning plan");
+        writer.newLine();
+        for (Map.Entry<String, String> plan : plans.entrySet()) {
+          writer.write(plan.getKey() + '\t' + plan.getValue());
+          writer.newLine();
+        }
+      }
+    } catch (IOException e) {
+      log.warn("failed to write plan baseline {}", file, e);
+    }
+  }
+
+}
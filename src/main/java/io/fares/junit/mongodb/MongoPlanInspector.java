@@ -0,0 +1,311 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Observes the queries a test sends and explains each distinct query shape once it completes. A shape is the
+ * command and collection with the structure of its predicate and sort but without the values, plans are
+ * cached by shape so a shape is explained only once per extension.
+ * <p>
+ * Queries are recorded on the thread that started the inspection, the synchronous driver sends its commands
+ * on the calling thread. Queries without a predicate or sort ask for the whole collection and are not
+ * inspected.
+ */
+final class MongoPlanInspector implements CommandListener {
+
+  private static final Logger log = LoggerFactory.getLogger(MongoPlanInspector.class);
+
+  private static final Set<String> STRIPPED_FIELDS = new HashSet<>(Arrays.asList(
+    "lsid", "txnNumber", "autocommit", "startTransaction", "readConcern", "writeConcern"));
+
+  private static final BsonString PLACEHOLDER = new BsonString("?");
+
+  // shapes end up in baseline files, their format must not change with the driver's default
+  private static final JsonWriterSettings SHAPE_FORMAT =
+    JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+
+  private final MongoPlanPolicy policy;
+
+  private final MongoPlanBaseline baseline;
+
+  private final Map<String, MongoQueryPlan> plans = new ConcurrentHashMap<>();
+
+  private final ThreadLocal<Map<String, Query>> recording = new ThreadLocal<>();
+
+  /**
+   * @param policy   what happens when a problem is found
+   * @param baseline the plans to compare with or <code>null</code>
+   */
+  MongoPlanInspector(MongoPlanPolicy policy, MongoPlanBaseline baseline) {
+    this.policy = policy;
+    this.baseline = baseline;
+  }
+
+  MongoPlanPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Start recording the query shapes sent on the current thread.
+   */
+  void start() {
+    recording.set(new LinkedHashMap<>());
+  }
+
+  /**
+   * Stop recording on the current thread and explain the shapes that are not cached yet.
+   *
+   * @param client the client the explain commands are sent with
+   * @return the plans of the recorded shapes or <code>null</code> if the current thread was not recording
+   */
+  MongoPlanReport finish(MongoClient client) {
+
+    Map<String, Query> recorded = recording.get();
+    if (recorded == null) {
+      return null;
+    }
+    recording.remove();
+
+    List<MongoQueryPlan> inspected = new ArrayList<>(recorded.size());
+    List<String> problems = new ArrayList<>();
+
+    for (Map.Entry<String, Query> query : recorded.entrySet()) {
+      MongoQueryPlan plan = plans.get(query.getKey());
+      if (plan == null) {
+        try {
+          plan = explain(client, query.getKey(), query.getValue());
+        } catch (MongoException e) {
+          log.debug("failed to explain {}", query.getKey(), e);
+          continue;
+        }
+        plans.put(plan.getShape(), plan);
+      }
+      inspected.add(plan);
+      problems.addAll(problems(plan));
+    }
+
+    return new MongoPlanReport(policy, inspected, problems);
+
+  }
+
+  private static MongoQueryPlan explain(MongoClient client, String shape, Query query) {
+    BsonDocument explain = client.getDatabase(query.database).runCommand(
+      new BsonDocument("explain", query.command).append("verbosity", new BsonString("queryPlanner")),
+      BsonDocument.class);
+    return MongoQueryPlan.of(shape, explain);
+  }
+
+  private List<String> problems(MongoQueryPlan plan) {
+    List<String> problems = new ArrayList<>(1);
+    if (plan.isCollectionScan()) {
+      problems.add(plan.getShape() + " scans the whole collection: " + plan.getSummary());
+    }
+    if (plan.isInMemorySort()) {
+      problems.add(plan.getShape() + " sorts in memory: " + plan.getSummary());
+    }
+    String previous = baseline == null ? null : baseline.compare(plan);
+    if (previous != null) {
+      problems.add(plan.getShape() + " changed its plan from " + previous + " to " + plan.getSummary());
+    }
+    return problems;
+  }
+
+  @Override
+  public void commandStarted(CommandStartedEvent event) {
+
+    Map<String, Query> recorded = recording.get();
+    if (recorded == null) {
+      return;
+    }
+
+    String shape = shape(event.getCommand());
+    if (shape != null && !recorded.containsKey(shape)) {
+      recorded.put(shape, new Query(event.getDatabaseName(), explainable(event.getCommand())));
+    }
+
+  }
+
+  @Override
+  public void commandSucceeded(CommandSucceededEvent event) {
+  }
+
+  @Override
+  public void commandFailed(CommandFailedEvent event) {
+  }
+
+  /**
+   * @param command the command a client sent
+   * @return the shape of the query or <code>null</code> if the command is not inspected
+   */
+  static String shape(BsonDocument command) {
+
+    if (command.isEmpty()) {
+      return null;
+    }
+
+    String name = command.getFirstKey();
+    BsonValue collection = command.get(name);
+    if (!collection.isString() || collection.asString().getValue().startsWith("system.")) {
+      return null;
+    }
+
+    BsonDocument shape = new BsonDocument();
+
+    switch (name) {
+      case "find":
+        predicate(shape, command.get("filter"), command.get("sort"));
+        break;
+      case "count":
+      case "distinct":
+        predicate(shape, command.get("query"), null);
+        break;
+      case "findAndModify":
+      case "findandmodify":
+        predicate(shape, command.get("query"), command.get("sort"));
+        break;
+      case "update":
+        predicate(shape, firstStatement(command.get("updates")), null);
+        break;
+      case "delete":
+        predicate(shape, firstStatement(command.get("deletes")), null);
+        break;
+      case "aggregate":
+        BsonValue pipeline = command.get("pipeline");
+        if (pipeline != null && pipeline.isArray() && queries(pipeline.asArray())) {
+          shape.append("pipeline", strip(pipeline));
+        }
+        break;
+      default:
+        return null;
+    }
+
+    return shape.isEmpty() ? null : name + " " + collection.asString().getValue() + " " + shape.toJson(SHAPE_FORMAT);
+
+  }
+
+  private static void predicate(BsonDocument shape, BsonValue filter, BsonValue sort) {
+    if (filter != null && filter.isDocument() && !filter.asDocument().isEmpty()) {
+      shape.append("filter", strip(filter));
+    }
+    if (sort != null && sort.isDocument() && !sort.asDocument().isEmpty()) {
+      shape.append("sort", sort);
+    }
+  }
+
+  private static BsonValue firstStatement(BsonValue statements) {
+    if (statements == null || !statements.isArray() || statements.asArray().isEmpty()) {
+      return null;
+    }
+    BsonValue first = statements.asArray().get(0);
+    return first.isDocument() ? first.asDocument().get("q") : null;
+  }
+
+  private static boolean queries(BsonArray pipeline) {
+    for (BsonValue stage : pipeline) {
+      if (stage.isDocument()) {
+        BsonValue match = stage.asDocument().get("$match");
+        if (stage.asDocument().containsKey("$sort")
+          || (match != null && match.isDocument() && !match.asDocument().isEmpty())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Replace all values by a placeholder, the field names and operators remain.
+   */
+  private static BsonValue strip(BsonValue value) {
+    if (value.isDocument()) {
+      BsonDocument stripped = new BsonDocument();
+      value.asDocument().forEach((key, field) -> stripped.append(key, strip(field)));
+      return stripped;
+    }
+    if (value.isArray()) {
+      BsonArray stripped = new BsonArray();
+      for (BsonValue element : value.asArray()) {
+        BsonValue strippedElement = strip(element);
+        // the number of values of an $in does not change the plan
+        if (!stripped.contains(strippedElement)) {
+          stripped.add(strippedElement);
+        }
+      }
+      return stripped;
+    }
+    return PLACEHOLDER;
+  }
+
+  /**
+   * Copy the command without the session and concern fields the driver adds and with only the first
+   * statement of a bulk update or delete, explain accepts a single statement.
+   */
+  private static BsonDocument explainable(BsonDocument command) {
+    BsonDocument copy = new BsonDocument();
+    // the command may be backed by a buffer the driver releases once the command completes
+    for (Map.Entry<String, BsonValue> field : command.clone().entrySet()) {
+      String key = field.getKey();
+      if (key.startsWith("$") || STRIPPED_FIELDS.contains(key)) {
+        continue;
+      }
+      BsonValue value = field.getValue();
+      if (("updates".equals(key) || "deletes".equals(key)) && value.isArray() && value.asArray().size() > 1) {
+        value = new BsonArray(value.asArray().subList(0, 1));
+      }
+      copy.append(key, value);
+    }
+    return copy;
+  }
+
+  private static final class Query {
+
+    private final String database;
+
+    private final BsonDocument command;
+
+    private Query(String database, BsonDocument command) {
+      this.database = database;
+      this.command = command;
+    }
+
+  }
+
+}
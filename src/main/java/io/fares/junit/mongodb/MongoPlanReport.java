@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The winning plans of the query shapes a test issued and the problems found in them.
+ */
+public final class MongoPlanReport {
+
+  private final MongoPlanPolicy policy;
+
+  private final List<MongoQueryPlan> plans;
+
+  private final List<String> problems;
+
+  MongoPlanReport(MongoPlanPolicy policy, List<MongoQueryPlan> plans, List<String> problems) {
+    this.policy = policy;
+    this.plans = Collections.unmodifiableList(plans);
+    this.problems = Collections.unmodifiableList(problems);
+  }
+
+  /**
+   * @return the plans of the distinct query shapes of the test in the order they were first issued
+   */
+  public List<MongoQueryPlan> getPlans() {
+    return plans;
+  }
+
+  /**
+   * @return the collection scans, in-memory sorts and plans that differ from the baseline
+   */
+  public List<String> getProblems() {
+    return problems;
+  }
+
+  /**
+   * @return <code>true</code> if the policy is {@link MongoPlanPolicy#FAIL} and a problem was found
+   */
+  public boolean isFailed() {
+    return policy == MongoPlanPolicy.FAIL && !problems.isEmpty();
+  }
+
+  /**
+   * @throws AssertionError the report failed
+   */
+  void assertAcceptable() {
+    if (isFailed()) {
+      throw new AssertionError("query plan problems: " + String.join("; ", problems));
+    }
+  }
+
+  /**
+   * Lists the report entries of the plans, e.g. <code>mongo.plan.1</code>.
+   *
+   * @return the number of inspected shapes and the plan of each shape
+   */
+  public Map<String, String> toReportEntries() {
+    Map<String, String> entries = new LinkedHashMap<>();
+    entries.put("mongo.plans", String.valueOf(plans.size()));
+    for (int i = 0; i < plans.size(); i++) {
+      entries.put("mongo.plan." + (i + 1), plans.get(i).toString());
+    }
+    return entries;
+  }
+
+  @Override
+  public String toString() {
+    return plans.size() + " query shapes, " + problems.size() + " problems " + problems;
+  }
+
+}
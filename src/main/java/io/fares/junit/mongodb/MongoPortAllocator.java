@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out free ports for mongod instances. A port the operating system reports as free may be taken by
+ * another JVM before mongod gets to bind it, so reservations are recorded in a file under the temp
+ * directory which is locked while a port is picked. Forks and concurrent builds on the same machine will
+ * therefore never be handed the same port while a reservation is fresh.
+ */
+final class MongoPortAllocator {
+
+  private static final Logger log = LoggerFactory.getLogger(MongoPortAllocator.class);
+
+  static final long RESERVATION_TTL_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+  private static final int MAX_CANDIDATES = 50;
+
+  private static final Path DEFAULT_RESERVATIONS =
+    Paths.get(System.getProperty("java.io.tmpdir"), "mongodb-junit-test", "port-reservations");
+
+  private static final MongoPortAllocator INSTANCE = new MongoPortAllocator(DEFAULT_RESERVATIONS);
+
+  /**
+   * File locks are held by the JVM, threads of the same JVM have to be serialized separately.
+   */
+  private static final Object jvmLock = new Object();
+
+  private final Path reservations;
+
+  MongoPortAllocator(Path reservations) {
+    this.reservations = reservations;
+  }
+
+  static MongoPortAllocator getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Reserve a port that is currently free and not reserved by any other JVM on this machine.
+   *
+   * @return the reserved port
+   * @throws IOException the reservation file is not accessible or no free port was found
+   */
+  int reserve() throws IOException {
+    synchronized (jvmLock) {
+      return reserveLocked();
+    }
+  }
+
+  private int reserveLocked() throws IOException {
+
+    Files.createDirectories(reservations.getParent());
+
+    try (FileChannel channel = FileChannel.open(reservations,
+      StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+         FileLock ignored = channel.lock()) {
+
+      long now = System.currentTimeMillis();
+      Map<Integer, Long> reserved = read(channel, now);
+
+      for (int i = 0; i < MAX_CANDIDATES; i++) {
+        int port = freePort();
+        if (!reserved.containsKey(port)) {
+          reserved.put(port, now);
+          write(channel, reserved);
+          if (log.isDebugEnabled()) {
+            log.debug("reserved port {}", port);
+          }
+          return port;
+        }
+      }
+
+    }
+
+    throw new IOException("no free port found after " + MAX_CANDIDATES + " attempts");
+
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      socket.setReuseAddress(true);
+      return socket.getLocalPort();
+    }
+  }
+
+  private static Map<Integer, Long> read(FileChannel channel, long now) throws IOException {
+
+    Map<Integer, Long> reserved = new HashMap<>();
+
+    channel.position(0);
+    Scanner scanner = new Scanner(Channels.newInputStream(channel), StandardCharsets.UTF_8.name());
+    while (scanner.hasNextInt()) {
+      int port = scanner.nextInt();
+      if (!scanner.hasNextLong()) {
+        break;
+      }
+      long reservedAt = scanner.nextLong();
+      // expired reservations have either been bound by now or were abandoned
+      if (now - reservedAt < RESERVATION_TTL_MILLIS) {
+        reserved.put(port, reservedAt);
+      }
+    }
+
+    return reserved;
+
+  }
+
+  private static void write(FileChannel channel, Map<Integer, Long> reserved) throws IOException {
+
+    StringBuilder content = new StringBuilder();
+    for (Map.Entry<Integer, Long> entry : reserved.entrySet()) {
+      content.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+    }
+
+    channel.truncate(0);
+    channel.position(0);
+    ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+
+  }
+
+}
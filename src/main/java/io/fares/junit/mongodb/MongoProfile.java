@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The operations mongod profiled in the test database while a test ran, slowest first.
+ */
+public final class MongoProfile {
+
+  /**
+   * The number of operations listed in the report entries.
+   */
+  static final int REPORTED_OPERATIONS = 5;
+
+  private final String databaseName;
+
+  private final List<MongoProfiledOperation> operations;
+
+  MongoProfile(String databaseName, List<MongoProfiledOperation> operations) {
+    List<MongoProfiledOperation> sorted = new ArrayList<>(operations);
+    sorted.sort(Comparator.comparingLong(MongoProfiledOperation::getMillis).reversed());
+    this.databaseName = databaseName;
+    this.operations = Collections.unmodifiableList(sorted);
+  }
+
+  /**
+   * @return the profiled database
+   */
+  public String getDatabaseName() {
+    return databaseName;
+  }
+
+  /**
+   * @return all profiled operations, slowest first
+   */
+  public List<MongoProfiledOperation> getOperations() {
+    return operations;
+  }
+
+  /**
+   * @param count the maximum number of operations
+   * @return the slowest operations
+   */
+  public List<MongoProfiledOperation> getSlowest(int count) {
+    return operations.subList(0, Math.min(count, operations.size()));
+  }
+
+  /**
+   * @param maxMillis       the latency an operation may take or <code>-1</code> for no limit
+   * @param maxDocsExamined the documents an operation may examine or <code>-1</code> for no limit
+   * @return the operations that exceed either limit
+   */
+  public List<MongoProfiledOperation> exceeding(long maxMillis, long maxDocsExamined) {
+    List<MongoProfiledOperation> exceeding = new ArrayList<>();
+    for (MongoProfiledOperation operation : operations) {
+      if ((maxMillis >= 0 && operation.getMillis() > maxMillis)
+        || (maxDocsExamined >= 0 && operation.getDocsExamined() > maxDocsExamined)) {
+        exceeding.add(operation);
+      }
+    }
+    return exceeding;
+  }
+
+  /**
+   * @param limits the limits of the test
+   * @throws AssertionError an operation exceeds the limits
+   */
+  void assertWithin(MongoOperationLimits limits) {
+    List<MongoProfiledOperation> exceeding = exceeding(limits.maxMillis(), limits.maxDocsExamined());
+    if (!exceeding.isEmpty()) {
+      List<String> violations = new ArrayList<>(exceeding.size());
+      exceeding.forEach(operation -> violations.add(operation.toString()));
+      throw new AssertionError("operations exceed " + describe(limits) + ": " + String.join("; ", violations));
+    }
+  }
+
+  private static String describe(MongoOperationLimits limits) {
+    List<String> described = new ArrayList<>(2);
+    if (limits.maxMillis() >= 0) {
+      described.add(limits.maxMillis() + " ms");
+    }
+    if (limits.maxDocsExamined() >= 0) {
+      described.add(limits.maxDocsExamined() + " docs examined");
+    }
+    return String.join(" or ", described);
+  }
+
+  /**
+   * Lists the report entries of the profile, e.g. <code>mongo.profile.slowest.1</code>.
+   *
+   * @return the number of operations and the slowest operations
+   */
+  public Map<String, String> toReportEntries() {
+    Map<String, String> entries = new LinkedHashMap<>();
+    entries.put("mongo.profile.ops", String.valueOf(operations.size()));
+    List<MongoProfiledOperation> slowest = getSlowest(REPORTED_OPERATIONS);
+    for (int i = 0; i < slowest.size(); i++) {
+      entries.put("mongo.profile.slowest." + (i + 1), slowest.get(i).toString());
+    }
+    return entries;
+  }
+
+  @Override
+  public String toString() {
+    return operations.size() + " operations in " + databaseName + ", slowest " + getSlowest(REPORTED_OPERATIONS);
+  }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.bson.Document;
+
+/**
+ * An operation mongod recorded in the <code>system.profile</code> collection of the test database.
+ */
+public final class MongoProfiledOperation {
+
+  private final Document entry;
+
+  MongoProfiledOperation(Document entry) {
+    this.entry = entry;
+  }
+
+  /**
+   * @return the operation, e.g. <code>query</code>, <code>insert</code> or the name of the command
+   */
+  public String getOperation() {
+    String op = entry.getString("op");
+    Object command = entry.get("command");
+    if ("command".equals(op) && command instanceof Document && !((Document) command).isEmpty()) {
+      return ((Document) command).keySet().iterator().next();
+    }
+    return op;
+  }
+
+  /**
+   * @return the namespace the operation ran on, <code>database.collection</code>
+   */
+  public String getNamespace() {
+    return entry.getString("ns");
+  }
+
+  /**
+   * @return the milliseconds mongod spent on the operation
+   */
+  public long getMillis() {
+    return number("millis");
+  }
+
+  /**
+   * @return the documents mongod scanned to execute the operation
+   */
+  public long getDocsExamined() {
+    return number("docsExamined");
+  }
+
+  /**
+   * @return the index keys mongod scanned to execute the operation
+   */
+  public long getKeysExamined() {
+    return number("keysExamined");
+  }
+
+  /**
+   * @return the documents the operation returned
+   */
+  public long getReturned() {
+    return number("nreturned");
+  }
+
+  /**
+   * @return the plan summary, e.g. <code>COLLSCAN</code> or <code>IXSCAN { name: 1 }</code>, or <code>null</code>
+   */
+  public String getPlanSummary() {
+    return entry.getString("planSummary");
+  }
+
+  /**
+   * @return the complete profiler entry
+   */
+  public Document getEntry() {
+    return entry;
+  }
+
+  private long number(String key) {
+    Object value = entry.get(key);
+    return value instanceof Number ? ((Number) value).longValue() : 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder s = new StringBuilder()
+      .append(getOperation()).append(' ').append(getNamespace())
+      .append(' ').append(getMillis()).append(" ms")
+      .append(", ").append(getDocsExamined()).append(" docs examined");
+    if (getPlanSummary() != null) {
+      s.append(", ").append(getPlanSummary());
+    }
+    return s.toString();
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.ne;
+
+/**
+ * Records all operations on a database with the mongod profiler for the duration of a test. The profiler
+ * writes into the capped <code>system.profile</code> collection, so only the most recent operations of a
+ * test that runs a large number of operations are kept.
+ */
+final class MongoProfiler {
+
+  private static final String PROFILE_COLLECTION = "system.profile";
+
+  private final MongoDatabase db;
+
+  private final Date since;
+
+  private MongoProfiler(MongoDatabase db, Date since) {
+    this.db = db;
+    this.since = since;
+  }
+
+  /**
+   * Turn on profiling of all operations on the database.
+   *
+   * @param db the database to profile
+   * @return the running profiler
+   */
+  static MongoProfiler start(MongoDatabase db) {
+    Date since = new Date();
+    db.runCommand(new Document("profile", 2));
+    return new MongoProfiler(db, since);
+  }
+
+  /**
+   * Turn off profiling and collect the operations recorded since the profiler was started.
+   *
+   * @return the recorded operations
+   */
+  MongoProfile stop() {
+
+    db.runCommand(new Document("profile", 0));
+
+    Bson filter = and(
+      gte("ts", since),
+      ne("ns", db.getName() + "." + PROFILE_COLLECTION),
+      // turning the profiler on and off is not an operation of the test
+      exists("command.profile", false));
+
+    List<MongoProfiledOperation> operations = new ArrayList<>();
+    for (Document entry : db.getCollection(PROFILE_COLLECTION).find(filter)) {
+      operations.add(new MongoProfiledOperation(entry));
+    }
+
+    return new MongoProfile(db.getName(), operations);
+
+  }
+
+}
@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The winning plan mongod chose for a query shape, summarized as the tree of its stages, e.g.
+ * <code>FETCH(IXSCAN[customer_1])</code> or <code>SORT(COLLSCAN)</code>.
+ */
+public final class MongoQueryPlan {
+
+  private final String shape;
+
+  private final String summary;
+
+  private final Set<String> stages;
+
+  private final BsonDocument explain;
+
+  private MongoQueryPlan(String shape, String summary, Set<String> stages, BsonDocument explain) {
+    this.shape = shape;
+    this.summary = summary;
+    this.stages = Collections.unmodifiableSet(stages);
+    this.explain = explain;
+  }
+
+  /**
+   * @param shape   the query shape the plan was explained for
+   * @param explain the output of the <code>explain</code> command
+   * @return the summarized plan
+   */
+  static MongoQueryPlan of(String shape, BsonDocument explain) {
+
+    List<BsonDocument> winningPlans = new ArrayList<>();
+    findWinningPlans(explain, winningPlans);
+
+    Set<String> stages = new HashSet<>();
+    List<String> described = new ArrayList<>(winningPlans.size());
+    for (BsonDocument plan : winningPlans) {
+      described.add(describe(plan, stages));
+    }
+
+    // a $sort an aggregation could not push down to the query runs as a blocking pipeline stage
+    BsonValue pipeline = explain.get("stages");
+    if (pipeline != null && pipeline.isArray()) {
+      for (BsonValue stage : pipeline.asArray()) {
+        if (stage.isDocument() && stage.asDocument().containsKey("$sort")) {
+          stages.add("$sort");
+          described.add("$sort");
+        }
+      }
+    }
+
+    return new MongoQueryPlan(shape, String.join(", ", described), stages, explain);
+
+  }
+
+  private static void findWinningPlans(BsonValue value, List<BsonDocument> found) {
+    if (value.isDocument()) {
+      for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+        if ("winningPlan".equals(entry.getKey()) && entry.getValue().isDocument()) {
+          found.add(entry.getValue().asDocument());
+        } else if (!"rejectedPlans".equals(entry.getKey())) {
+          findWinningPlans(entry.getValue(), found);
+        }
+      }
+    } else if (value.isArray()) {
+      for (BsonValue element : value.asArray()) {
+        findWinningPlans(element, found);
+      }
+    }
+  }
+
+  private static String describe(BsonDocument plan, Set<String> stages) {
+
+    StringBuilder s = new StringBuilder();
+    List<String> children = new ArrayList<>();
+
+    BsonValue stage = plan.get("stage");
+    if (stage != null && stage.isString()) {
+      stages.add(stage.asString().getValue());
+      s.append(stage.asString().getValue());
+    }
+
+    BsonValue index = plan.get("indexName");
+    if (index != null && index.isString()) {
+      s.append('[').append(index.asString().getValue()).append(']');
+    }
+
+    BsonValue input = plan.get("inputStage");
+    if (input != null && input.isDocument()) {
+      children.add(describe(input.asDocument(), stages));
+    }
+
+    for (String key : new String[]{"inputStages", "shards"}) {
+      BsonValue inputs = plan.get(key);
+      if (inputs != null && inputs.isArray()) {
+        for (BsonValue child : inputs.asArray()) {
+          if (!child.isDocument()) {
+            continue;
+          }
+          BsonValue shardPlan = child.asDocument().get("winningPlan");
+          children.add(describe(shardPlan != null && shardPlan.isDocument()
+            ? shardPlan.asDocument()
+            : child.asDocument(), stages));
+        }
+      }
+    }
+
+    if (!children.isEmpty()) {
+      s.append('(').append(String.join(", ", children)).append(')');
+    }
+
+    return s.toString();
+
+  }
+
+  /**
+   * @return the query shape, the command, collection and the structure of the predicate and sort without values
+   */
+  public String getShape() {
+    return shape;
+  }
+
+  /**
+   * @return the stages of the winning plan, e.g. <code>FETCH(IXSCAN[customer_1])</code>
+   */
+  public String getSummary() {
+    return summary;
+  }
+
+  /**
+   * @return <code>true</code> if the query reads every document of the collection
+   */
+  public boolean isCollectionScan() {
+    return stages.contains("COLLSCAN");
+  }
+
+  /**
+   * @return <code>true</code> if the results are sorted in memory rather than read in index order
+   */
+  public boolean isInMemorySort() {
+    return stages.contains("SORT") || stages.contains("$sort");
+  }
+
+  /**
+   * @return the output of the <code>explain</code> command
+   */
+  public BsonDocument getExplain() {
+    return explain;
+  }
+
+  @Override
+  public String toString() {
+    return shape + " => " + summary;
+  }
+
+}
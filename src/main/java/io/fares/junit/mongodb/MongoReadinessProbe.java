@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoDatabase;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actively probes a mongod with <code>isMaster</code> until it answers or the deadline passes. The probe
+ * backs off in milliseconds rather than seconds so a server that is up after 150ms is detected as such.
+ * The same probe waits for a freshly initiated replica set to elect its primary.
+ */
+final class MongoReadinessProbe {
+
+  private static final Logger log = LoggerFactory.getLogger(MongoReadinessProbe.class);
+
+  static final long INITIAL_BACKOFF_MILLIS = 5L;
+
+  static final long MAX_BACKOFF_MILLIS = 100L;
+
+  private static final int ATTEMPT_TIMEOUT_MILLIS = 250;
+
+  private final ServerAddress address;
+
+  MongoReadinessProbe(String host, int port) {
+    this.address = new ServerAddress(host, port);
+  }
+
+  /**
+   * Blocks until the server answers an <code>isMaster</code> command.
+   *
+   * @param timeoutMillis the overall deadline for the server to become ready
+   * @return the number of milliseconds it took for the server to answer
+   * @throws IOException the server did not become ready before the deadline or the wait was interrupted
+   */
+  long awaitReady(long timeoutMillis) throws IOException {
+    return await("become ready", timeoutMillis, admin -> {
+      admin.runCommand(new Document("isMaster", 1));
+      return true;
+    });
+  }
+
+  /**
+   * Blocks until the replica set the server belongs to has a primary and all other members are secondaries.
+   *
+   * @param members       the number of members in the replica set
+   * @param timeoutMillis the overall deadline for the replica set to become ready
+   * @return the number of milliseconds it took for the replica set to become ready
+   * @throws IOException the replica set did not become ready before the deadline or the wait was interrupted
+   */
+  long awaitReplicaSet(int members, long timeoutMillis) throws IOException {
+    return await("elect a primary", timeoutMillis, admin -> {
+      int primaries = 0;
+      int secondaries = 0;
+      BsonDocument status = admin.runCommand(new Document("replSetGetStatus", 1), BsonDocument.class);
+      for (BsonValue member : status.getArray("members")) {
+        String state = member.asDocument().getString("stateStr").getValue();
+        if ("PRIMARY".equals(state)) {
+          primaries++;
+        } else if ("SECONDARY".equals(state)) {
+          secondaries++;
+        }
+      }
+      return primaries == 1 && primaries + secondaries == members;
+    });
+  }
+
+  private long await(String condition, long timeoutMillis, Check check) throws IOException {
+
+    final long start = System.nanoTime();
+    final long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+    MongoClientOptions options = MongoClientOptions.builder()
+      .serverSelectionTimeout((int) Math.min(timeoutMillis, ATTEMPT_TIMEOUT_MILLIS))
+      .connectTimeout(ATTEMPT_TIMEOUT_MILLIS)
+      .heartbeatConnectTimeout(ATTEMPT_TIMEOUT_MILLIS)
+      .minHeartbeatFrequency((int) INITIAL_BACKOFF_MILLIS)
+      .build();
+
+    MongoClient probe = new MongoClient(address, options);
+
+    try {
+
+      long backoff = INITIAL_BACKOFF_MILLIS;
+      int attempt = 1;
+
+      while (true) {
+
+        MongoException failure = null;
+        try {
+          if (check.test(probe.getDatabase("admin"))) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+          }
+        } catch (MongoException e) {
+          failure = e;
+        }
+
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+          throw new IOException("mongod on " + address + " did not " + condition + " within " + timeoutMillis + " ms",
+            failure);
+        }
+
+        if (log.isDebugEnabled()) {
+          log.debug("mongod on {} did not {} on attempt {}, retry in {} ms", address, condition, attempt, backoff);
+        }
+
+        Thread.sleep(Math.min(backoff, remaining));
+        backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        attempt++;
+
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for mongod on " + address + " to " + condition);
+    } finally {
+      probe.close();
+    }
+
+  }
+
+  private interface Check {
+
+    boolean test(MongoDatabase admin);
+
+  }
+
+}
@@ -17,10 +17,17 @@
 package io.fares.junit.mongodb;
 
 import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.client.MongoDatabase;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
 /**
  *
  * This rule will start the mongo server before a test starts and ends the mongo
@@ -77,9 +84,28 @@ public class MongoRule implements TestRule {
     });
   }
 
+  /**
+   * @param shared <code>true</code> to lease the mongod from the JVM wide registry of shared instances
+   *               instead of starting a new process for every test
+   */
+  public MongoRule(boolean shared) {
+    this(new MongoTestBase() {
+    }.withShared(shared));
+  }
+
   public MongoRule(final String host, int port) {
+    this(host, port, false);
+  }
+
+  /**
+   * @param host   the host the mongod will be bound to
+   * @param port   the port the mongod will listen on
+   * @param shared <code>true</code> to lease the mongod from the JVM wide registry of shared instances
+   *               instead of starting a new process for every test
+   */
+  public MongoRule(final String host, int port, boolean shared) {
     this(new MongoTestBase() {
-    }.withMongoHost(host).withMongoPort(port));
+    }.withMongoHost(host).withMongoPort(port).withShared(shared));
   }
 
   public MongoRule(MongoTestBase testCase) {
@@ -96,19 +122,73 @@ public class MongoRule implements TestRule {
     return new Statement() {
       @Override
       public void evaluate() throws Throwable {
+        MongoOperationLimits limits = findLimits(description);
+        MongoProfile profile = null;
+        MongoPlanReport plans = null;
+        Throwable failure = null;
         testCase.startMongo();
-        before();
         try {
-          base.evaluate();
+          before();
+          try {
+            testCase.startProfiler(limits != null);
+            testCase.startPlanInspection();
+            base.evaluate();
+          } catch (Throwable t) {
+            testCase.dumpMongodLog("failure of " + description.getDisplayName());
+            failure = t;
+          }
+          // an unreachable mongod must neither hide the failure of the test nor keep mongod from stopping
+          try {
+            profile = testCase.stopProfiler();
+          } catch (RuntimeException e) {
+            failure = suppress(failure, e);
+          }
+          try {
+            plans = testCase.finishPlanInspection();
+          } catch (RuntimeException e) {
+            failure = suppress(failure, e);
+          }
         } finally {
-          after();
-          testCase.shutdownMongo();
+          try {
+            after();
+          } finally {
+            testCase.shutdownMongo();
+          }
+        }
+        if (failure != null) {
+          throw failure;
+        }
+        if (profile != null && limits != null) {
+          profile.assertWithin(limits);
+        }
+        if (plans != null) {
+          plans.assertAcceptable();
         }
       }
     };
 
   }
 
+  MongoTestBase getTestCase() {
+    return testCase;
+  }
+
+  private static Throwable suppress(Throwable failure, Throwable inspection) {
+    if (failure == null) {
+      return inspection;
+    }
+    failure.addSuppressed(inspection);
+    return failure;
+  }
+
+  private static MongoOperationLimits findLimits(Description description) {
+    MongoOperationLimits limits = description.getAnnotation(MongoOperationLimits.class);
+    if (limits == null && description.getTestClass() != null) {
+      limits = description.getTestClass().getAnnotation(MongoOperationLimits.class);
+    }
+    return limits;
+  }
+
   /**
    * May be overridden in the implementation to do stuff <strong>after</strong> the
    * embedded test case is set up but <strong>before</strong> the current test is
@@ -135,6 +215,38 @@ public class MongoRule implements TestRule {
     return this.testCase.getMongoClient();
   }
 
+  /**
+   * @param type the legacy {@link MongoClient}, {@link com.mongodb.client.MongoClient} or the reactive streams
+   *             <code>MongoClient</code>
+   * @param <T>  the client type
+   * @return a client of the requested type that can connect to the started mongod process
+   * @see MongoExtension#getMongoClient(Class)
+   */
+  public <T> T getMongoClient(Class<T> type) {
+    return this.testCase.getMongoClient(type);
+  }
+
+  /**
+   * @return the name of the database the current test should use
+   */
+  public String getDatabaseName() {
+    return this.testCase.getDatabaseName();
+  }
+
+  /**
+   * @return the database the current test should use
+   */
+  public MongoDatabase getDatabase() {
+    return this.testCase.getDatabase();
+  }
+
+  /**
+   * @return the milliseconds the last database reset took
+   */
+  public long getLastResetTime() {
+    return testCase.getLastResetTime();
+  }
+
   /**
    * @return The host used to start the mongo server
    */
@@ -158,6 +270,27 @@ public class MongoRule implements TestRule {
     return testCase.getVersion();
   }
 
+  /**
+   * @return <code>true</code> if the mongod is leased from the JVM wide registry of shared instances
+   */
+  public boolean isShared() {
+    return testCase.isShared();
+  }
+
+  /**
+   * @return the milliseconds each lifecycle phase took when it last completed
+   */
+  public Map<MongoPhase, Long> getTimings() {
+    return testCase.getTimings();
+  }
+
+  /**
+   * @return the milliseconds it took the last started mongod to answer commands
+   */
+  public long getTimeToReady() {
+    return testCase.getTimeToReady();
+  }
+
   protected void setVersion(String version) {
     testCase.setVersion(version);
   }
@@ -180,7 +313,7 @@ public class MongoRule implements TestRule {
   /**
    * Set the mongod port on which the database will listen
    *
-   * @param port the port number
+   * @param port the port number or <code>0</code> for an ephemeral port
    * @return self to continue fluently
    */
   public MongoRule port(int port) {
@@ -188,6 +321,17 @@ public class MongoRule implements TestRule {
     return this;
   }
 
+  /**
+   * Let mongod listen on a free port which is reserved across all JVMs on this machine. The allocated port
+   * is available from {@link #getMongoPort()} once mongod is started.
+   *
+   * @return self to continue fluently
+   */
+  public MongoRule ephemeralPort() {
+    setMogoPort(0);
+    return this;
+  }
+
   /**
    * Specify the exact version of the monogdb instance to be started.
    *
@@ -211,4 +355,203 @@ public class MongoRule implements TestRule {
     return this;
   }
 
+  /**
+   * Set the overall deadline for a started mongod to answer commands.
+   *
+   * @param timeout the maximum time to wait for the server to become ready
+   * @param unit    the unit of the timeout
+   * @return self to continue fluently
+   */
+  public MongoRule readinessTimeout(long timeout, TimeUnit unit) {
+    testCase.withReadinessTimeout(timeout, unit);
+    return this;
+  }
+
+  /**
+   * Set the time a stopping mongod is given to exit before it is killed.
+   *
+   * @param timeout the maximum time to wait for the server to exit
+   * @param unit    the unit of the timeout
+   * @return self to continue fluently
+   */
+  public MongoRule shutdownTimeout(long timeout, TimeUnit unit) {
+    testCase.withShutdownTimeout(timeout, unit);
+    return this;
+  }
+
+  /**
+   * Keep one mongod running and reset the test database between tests instead of restarting the process.
+   * The mongod is leased from the registry of shared instances.
+   *
+   * @param strategy how the test database is cleaned between tests
+   * @return self to continue fluently
+   */
+  public MongoRule resetStrategy(ResetStrategy strategy) {
+    testCase.withResetStrategy(strategy);
+    return this;
+  }
+
+  /**
+   * Configure how mongod stores its data.
+   *
+   * @param storage the storage options, {@link MongodStorage#fastTest()} for example
+   * @return self to continue fluently
+   */
+  public MongoRule storage(MongodStorage storage) {
+    testCase.withStorage(storage);
+    return this;
+  }
+
+  /**
+   * Launch the mongod of the next test in the background while the current test runs. Each test still
+   * gets its own mongod, which listens on a free port.
+   *
+   * @return self to continue fluently
+   */
+  public MongoRule standby() {
+    testCase.withStandby(true);
+    return this;
+  }
+
+  /**
+   * Keep mongod running between test runs and attach to it instead of starting a new process, for fast
+   * local iterations.
+   *
+   * @return self to continue fluently
+   */
+  public MongoRule daemon() {
+    testCase.withDaemon(true);
+    return this;
+  }
+
+  /**
+   * Keep the last lines of the mongod output in a ring buffer and log them only when the test fails. Lines
+   * that match the filter are logged as they arrive. By default the last
+   * {@value MongodOutput#DEFAULT_BUFFER_LINES} lines are retained and warnings and errors are logged.
+   *
+   * @param lines  the number of lines to retain or <code>0</code> to log every line
+   * @param filter the lines to log as they arrive or <code>null</code>
+   * @return self to continue fluently
+   */
+  public MongoRule logBuffer(int lines, Pattern filter) {
+    testCase.withLogBuffer(lines, filter);
+    return this;
+  }
+
+  /**
+   * Record the operations of each test with the mongod profiler, the slowest are logged at debug level and
+   * available from {@link #getProfile()}. Tests annotated with {@link MongoOperationLimits} are profiled
+   * either way.
+   *
+   * @return self to continue fluently
+   */
+  public MongoRule profile() {
+    testCase.withProfiling(true);
+    return this;
+  }
+
+  /**
+   * @return the operations the profiler recorded during the last profiled test or <code>null</code>
+   */
+  public MongoProfile getProfile() {
+    return testCase.getLastProfile();
+  }
+
+  /**
+   * Explain the distinct query shapes of each test and report collection scans and in-memory sorts.
+   *
+   * @param policy what happens when a plan has a problem
+   * @return self to continue fluently
+   */
+  public MongoRule inspectPlans(MongoPlanPolicy policy) {
+    return inspectPlans(policy, null);
+  }
+
+  /**
+   * Explain the distinct query shapes of each test, report collection scans and in-memory sorts and compare
+   * the plans with a baseline file. Shapes missing from the file are added to it.
+   *
+   * @param policy   what happens when a plan has a problem
+   * @param baseline the file with the plans of earlier runs
+   * @return self to continue fluently
+   */
+  public MongoRule inspectPlans(MongoPlanPolicy policy, Path baseline) {
+    testCase.withPlanInspection(policy, baseline);
+    return this;
+  }
+
+  /**
+   * @return the query plans of the last inspected test or <code>null</code>
+   */
+  public MongoPlanReport getPlanReport() {
+    return testCase.getLastPlanReport();
+  }
+
+  /**
+   * Wait on the test thread for mongod to exit instead of stopping it in the background.
+   *
+   * @return self to continue fluently
+   */
+  public MongoRule synchronousShutdown() {
+    testCase.withSynchronousShutdown(true);
+    return this;
+  }
+
+  /**
+   * Create the clients handed to the tests with these options, e.g. to size the connection pool or tune
+   * timeouts and the heartbeat frequency.
+   *
+   * @param options the client options
+   * @return self to continue fluently
+   */
+  public MongoRule clientOptions(MongoClientOptions options) {
+    testCase.withClientOptions(options);
+    return this;
+  }
+
+  /**
+   * Start a replica set or sharded cluster instead of a standalone mongod.
+   *
+   * @param topology the topology, {@link MongoTopology#replicaSet(int)} for example
+   * @return self to continue fluently
+   */
+  public MongoRule topology(MongoTopology topology) {
+    testCase.withTopology(topology);
+    return this;
+  }
+
+  /**
+   * Use the preset for test speed, mongod keeps all data in memory and never flushes it.
+   *
+   * @return self to continue fluently
+   * @see MongodStorage#fastTest()
+   */
+  public MongoRule fastTestProfile() {
+    testCase.withStorage(MongodStorage.fastTest());
+    return this;
+  }
+
+  /**
+   * Tell a listener how long each lifecycle phase took.
+   *
+   * @param listener the listener
+   * @return self to continue fluently
+   */
+  public MongoRule lifecycleListener(MongoLifecycleListener listener) {
+    testCase.withLifecycleListener(listener);
+    return this;
+  }
+
+  /**
+   * Load a fixture into the test database before every test. The fixture is seeded on its first load and
+   * restored from a snapshot afterwards.
+   *
+   * @param fixture the fixture to load
+   * @return self to continue fluently
+   */
+  public MongoRule fixture(MongoFixture fixture) {
+    testCase.withFixture(fixture);
+    return this;
+  }
+
 }
@@ -17,29 +17,43 @@
 package io.fares.junit.mongodb;
 
 import com.mongodb.MongoClient;
-import de.flapdoodle.embed.mongo.Command;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoDatabase;
 import de.flapdoodle.embed.mongo.MongodExecutable;
 import de.flapdoodle.embed.mongo.MongodProcess;
-import de.flapdoodle.embed.mongo.MongodStarter;
-import de.flapdoodle.embed.mongo.config.IMongodConfig;
-import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
-import de.flapdoodle.embed.mongo.config.Net;
-import de.flapdoodle.embed.mongo.config.RuntimeConfigBuilder;
 import de.flapdoodle.embed.mongo.distribution.Feature;
 import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
 import de.flapdoodle.embed.mongo.distribution.Version;
 import de.flapdoodle.embed.mongo.distribution.Versions;
-import de.flapdoodle.embed.process.config.IRuntimeConfig;
 import de.flapdoodle.embed.process.distribution.GenericVersion;
-import de.flapdoodle.embed.process.runtime.Network;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 public abstract class MongoTestBase {
 
+  private static final AtomicInteger shardSequence = new AtomicInteger();
+
+  /**
+   * Every thread that runs tests in parallel works in its own database shard.
+   */
+  private static final ThreadLocal<String> threadShard =
+    ThreadLocal.withInitial(() -> MongoExtension.UNIT_TEST_DB + "_" + shardSequence.incrementAndGet());
+
   private Logger log = LoggerFactory.getLogger(getClass());
 
   private IFeatureAwareVersion version = Version.Main.PRODUCTION;
@@ -47,80 +61,452 @@ public abstract class MongoTestBase {
   private String mongodHost = "localhost";
   private int mongodPort = 27099;
 
-  protected MongodExecutable mongoExec = null;
-  protected MongodProcess mongod = null;
-  protected MongoClient mongoClient = null;
+  private long readinessTimeout = TimeUnit.SECONDS.toMillis(20);
+
+  private volatile long timeToReady = -1;
+
+  private long shutdownTimeout = TimeUnit.SECONDS.toMillis(10);
+
+  private boolean shared = false;
+
+  private ResetStrategy resetStrategy = ResetStrategy.NONE;
+
+  private boolean parallel = false;
+
+  private boolean standby = false;
+
+  private boolean synchronousShutdown = false;
+
+  private boolean daemon = false;
+
+  private int logBufferLines = MongodOutput.DEFAULT_BUFFER_LINES;
+
+  private Pattern logFilter = MongodOutput.DEFAULT_FILTER;
+
+  private boolean profiling = false;
+
+  private MongoPlanPolicy planPolicy = null;
+
+  private Path planBaseline = null;
+
+  private MongodStorage storage = MongodStorage.DEFAULT;
+
+  private MongoTopology topology = MongoTopology.STANDALONE;
+
+  private MongoFixture fixture = null;
+
+  private volatile String databaseName = MongoExtension.UNIT_TEST_DB;
+
+  private final ThreadLocal<String> threadDatabase = new ThreadLocal<>();
+
+  private volatile long lastResetTime = -1;
+
+  /**
+   * Cleared by the caller that just reset the database, the next shutdown does not reset it again.
+   */
+  private volatile boolean resetOnShutdown = true;
+
+  private volatile MongodInstance instance = null;
+
+  private final Map<MongoPhase, Long> timings = Collections.synchronizedMap(new EnumMap<>(MongoPhase.class));
+
+  private final List<MongoLifecycleListener> listeners = new CopyOnWriteArrayList<>();
+
+  private volatile MongoWriteTracker writeTracker = null;
+
+  private volatile MongoClientFactory clients = null;
+
+  private final ThreadLocal<MongoProfiler> profiler = new ThreadLocal<>();
+
+  private volatile MongoProfile lastProfile = null;
+
+  private volatile MongoPlanInspector planInspector = null;
+
+  private volatile MongoPlanReport lastPlanReport = null;
+
+  private MongoClientOptions clientOptions = MongoClientOptions.builder().build();
+
+  private int consumers = 0;
+
+  protected volatile MongodExecutable mongoExec = null;
+  protected volatile MongodProcess mongod = null;
+  protected volatile MongoClient mongoClient = null;
 
   /**
-   * Starts a mongodb instance and returns a working client to it.
+   * Starts a mongodb instance. When the instance is shared a running mongod with the same settings is reused.
+   * Starting an already started instance, for example from tests running in parallel, requires a matching
+   * {@link #shutdownMongo()}. The client is created on the first call to {@link #getMongoClient()}.
    *
-   * @return the client that can connect to the working instance
    * @throws UnknownHostException the provided host and port is not available
    * @throws IOException          some low level error connecting the the mongo db failed
    */
-  protected MongoClient startMongo() throws UnknownHostException, IOException {
+  protected synchronized void startMongo() throws UnknownHostException, IOException {
 
-    // start embedded mongo
-    IRuntimeConfig runConfig = new RuntimeConfigBuilder().defaultsWithLogger(Command.MongoD, log).build();
-
-    MongodStarter runtime = MongodStarter.getInstance(runConfig);
+    if (consumers > 0) {
+      consumers++;
+      setDatabaseName(nextDatabaseName());
+      loadFixture();
+      return;
+    }
 
-    IMongodConfig mongodConfig = new MongodConfigBuilder().version(version)
-      .net(new Net(mongodPort, Network.localhostIsIPv6())).build();
+    boolean fromDaemon = (daemon || MongodDaemon.isEnabledBySystemProperty())
+      && !leasesInstance() && topology.isStandalone();
+    boolean fromStandby = standby && !leasesInstance() && !fromDaemon;
 
-    mongoExec = runtime.prepare(mongodConfig);
-    mongod = mongoExec.start();
+    // the standby always listens on a free port, the next mongod is started while this one is in use
+    MongodSettings settings =
+      new MongodSettings(version, mongodHost, fromStandby ? 0 : mongodPort, storage, topology);
 
-    try {
+    MongodOutput output = new MongodOutput(log, logBufferLines, logFilter);
 
-      int waitCount = 1;
-      while (!mongod.isProcessRunning() || waitCount > 10) {
-        if (log.isDebugEnabled()) {
-          log.debug("Force wait start {}", waitCount);
-        }
-        waitCount++;
-        Thread.sleep(1000);
+    long start = System.nanoTime();
 
+    if (leasesInstance()) {
+      instance = MongodInstanceRegistry.getInstance().lease(settings, readinessTimeout, shutdownTimeout);
+    } else if (fromDaemon) {
+      instance = MongodDaemon.getInstance().attach(settings, readinessTimeout);
+      if (instance == null) {
+        // another JVM runs its tests on the daemon, this one gets a mongod of its own next to it
+        instance = MongodInstance.start(new MongodSettings(version, mongodHost, 0, storage, topology),
+          readinessTimeout, shutdownTimeout, output);
       }
+    } else if (fromStandby) {
+      instance = MongodStandby.getInstance().take(settings, readinessTimeout, shutdownTimeout, output);
+    } else {
+      instance = MongodInstance.start(settings, readinessTimeout, shutdownTimeout, output);
+    }
 
-      // mongo starts a monitor thread which will bomb out if we are closing the database too soon
-      Thread.sleep(1000);
+    mongoExec = instance.getExecutable();
+    mongod = instance.getProcess();
+    timeToReady = instance.getTimeToReady();
 
-    } catch (InterruptedException ignore) {
+    Map<MongoPhase, Long> startup = instance.takeStartupTimings();
+    if (fromStandby && startup.isEmpty()) {
+      record(MongoPhase.STANDBY, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    } else {
+      startup.forEach(this::record);
     }
+    setDatabaseName(nextDatabaseName());
 
-    // setup the client for the test
-    mongoClient = new MongoClient(getMongoHost(), getMongoPort());
+    clients = createClients();
+    consumers = 1;
 
-    return this.mongoClient;
+    loadFixture();
 
   }
 
-  protected void shutdownMongo() {
+  /**
+   * Stops the mongodb instance. The client is closed first so its connection pool and monitor threads are
+   * released before the server goes away, mongod is then stopped in the background and given the shutdown
+   * timeout to exit before it is killed, unless the shutdown is synchronous. A shared instance is reset
+   * according to the {@link ResetStrategy} and returned to the registry where it keeps running.
+   */
+  protected synchronized void shutdownMongo() {
+
+    if (clients != null && resetStrategy != ResetStrategy.NONE && resetOnShutdown) {
+      reset();
+    }
+    resetOnShutdown = true;
+
+    if (consumers > 1) {
+      consumers--;
+      return;
+    }
+
+    consumers = 0;
 
-    if (mongod != null) {
-      mongod.stop();
+    long start = System.nanoTime();
 
-      int waitCount = 1;
-      while (mongod.isProcessRunning() || waitCount > 10) {
-        try {
-          if (log.isDebugEnabled()) {
-            log.debug("Force wait shutdown {}", waitCount);
-          }
-          waitCount++;
-          Thread.sleep(1000);
-        } catch (InterruptedException ignore) {
+    if (clients != null) {
+      clients.close();
+      clients = null;
+      mongoClient = null;
+    }
+
+    if (instance != null) {
+      if (leasesInstance()) {
+        MongodInstanceRegistry.getInstance().release(instance);
+      } else if (!synchronousShutdown) {
+        MongodReaper.getInstance().reap(instance);
+      } else {
+        long elapsed = instance.stop();
+        if (log.isDebugEnabled()) {
+          log.debug("mongod on {}:{} stopped after {} ms", mongodHost, instance.getPort(), elapsed);
         }
       }
+      instance = null;
+      record(MongoPhase.SHUTDOWN, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    mongod = null;
+    mongoExec = null;
+
+  }
+
+  /**
+   * Write the mongod output retained in the log buffer to the log, after a test failed for example.
+   *
+   * @param reason why the output is written
+   */
+  final void dumpMongodLog(String reason) {
+    MongodInstance running = instance;
+    if (running != null) {
+      running.dumpLog(reason);
+    }
+  }
+
+  /**
+   * @return the settings of the instance leased from the {@link MongodInstanceRegistry} or <code>null</code>
+   * if each consumer starts a mongod of its own
+   */
+  final MongodSettings sharedSettings() {
+    return leasesInstance() ? new MongodSettings(version, mongodHost, mongodPort, storage, topology) : null;
+  }
+
+  /**
+   * Turn on the database profiler for the test database of the current thread if profiling is enabled.
+   * Profiling is not available through mongos.
+   *
+   * @param required <code>true</code> to profile even if profiling is not enabled
+   */
+  final void startProfiler(boolean required) {
+
+    if ((!profiling && !required) || clients == null) {
+      return;
+    }
+
+    if (topology.getType() == MongoTopology.Type.SHARDED) {
+      log.warn("the profiler is not available on a sharded cluster");
+      return;
+    }
+
+    profiler.set(MongoProfiler.start(client().getDatabase(currentDatabaseName())));
+
+  }
+
+  /**
+   * Turn off the database profiler started by {@link #startProfiler(boolean)} on the current thread.
+   *
+   * @return the operations of the test or <code>null</code> if the profiler was not started
+   */
+  final MongoProfile stopProfiler() {
+
+    MongoProfiler running = profiler.get();
+    if (running == null) {
+      return null;
+    }
+    profiler.remove();
+
+    MongoProfile profile = running.stop();
+    lastProfile = profile;
+
+    if (log.isDebugEnabled()) {
+      log.debug("profiled {}", profile);
+    }
+
+    return profile;
+
+  }
+
+  /**
+   * Record the query shapes the current thread sends if plan inspection is enabled.
+   */
+  final void startPlanInspection() {
+    MongoPlanInspector inspector = planInspector;
+    if (inspector != null && clients != null) {
+      inspector.start();
+    }
+  }
+
+  /**
+   * Explain the query shapes recorded since {@link #startPlanInspection()} on the current thread. With the
+   * {@link MongoPlanPolicy#WARN} policy the problems are logged.
+   *
+   * @return the plans of the test or <code>null</code> if plans are not inspected
+   */
+  final MongoPlanReport finishPlanInspection() {
+
+    MongoPlanInspector inspector = planInspector;
+    if (inspector == null || clients == null) {
+      return null;
+    }
+
+    MongoPlanReport report = inspector.finish(client());
+    if (report == null) {
+      return null;
+    }
+    lastPlanReport = report;
+
+    if (inspector.getPolicy() == MongoPlanPolicy.WARN) {
+      report.getProblems().forEach(problem -> log.warn("query plan problem: {}", problem));
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("inspected {}", report);
+    }
+
+    return report;
+
+  }
+
+  /**
+   * Reset the test database according to the configured {@link ResetStrategy} and prepare the database for
+   * the next test.
+   *
+   * @return the milliseconds it took to reset the database
+   */
+  protected long resetMongo() throws IOException {
+    resetDatabase();
+    loadFixture();
+    return lastResetTime;
+  }
+
+  /**
+   * Reset the test database like {@link #resetMongo()} but leave the fixture to {@link #restoreFixture()}.
+   */
+  final void resetDatabase() {
+    reset();
+    setDatabaseName(nextDatabaseName());
+  }
+
+  /**
+   * Load the fixture into the test database after {@link #resetDatabase()}.
+   *
+   * @throws IOException the fixture could not be loaded
+   */
+  final void restoreFixture() throws IOException {
+    loadFixture();
+  }
+
+  /**
+   * Skip the reset of the next {@link #shutdownMongo()} because the database was just reset.
+   */
+  final void skipResetOnShutdown() {
+    resetOnShutdown = false;
+  }
+
+  private MongoClientFactory createClients() {
+
+    MongoClientOptions.Builder options = MongoClientOptions.builder(clientOptions);
+
+    writeTracker = resetStrategy.tracksWrites() ? new MongoWriteTracker() : null;
+    if (writeTracker != null) {
+      options.addCommandListener(writeTracker);
+    }
+
+    // plans are cached by query shape for the lifetime of the test base
+    if (planPolicy != null && planInspector == null) {
+      planInspector = new MongoPlanInspector(planPolicy,
+        planBaseline == null ? null : MongoPlanBaseline.of(planBaseline));
+    }
+    if (planInspector != null) {
+      options.addCommandListener(planInspector);
+    }
+
+    String replicaSet = instance.getReplicaSet();
+    List<ServerAddress> seeds = replicaSet != null
+      ? instance.getServerAddresses()
+      : Collections.singletonList(new ServerAddress(getMongoHost(), getMongoPort()));
+
+    // the first round trip of the client opens the connection pool
+    return new MongoClientFactory(seeds, replicaSet, options.build(),
+      elapsed -> record(MongoPhase.CLIENT_CONNECT, elapsed));
+
+  }
+
+  /**
+   * @return the legacy client of the running instance, created on first use
+   */
+  private MongoClient client() {
+    MongoClientFactory factory = clients;
+    if (factory == null) {
+      return null;
+    }
+    MongoClient client = factory.getLegacyClient();
+    mongoClient = client;
+    return client;
+  }
+
+  private void reset() {
+
+    String name = currentDatabaseName();
+    MongoWriteTracker tracker = writeTracker;
+
+    long start = System.nanoTime();
+    resetStrategy.reset(client().getDatabase(name),
+      tracker == null ? Collections.emptySet() : tracker.drain(name));
+    lastResetTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    record(MongoPhase.RESET, lastResetTime);
+
+    if (log.isDebugEnabled()) {
+      log.debug("reset {} with {} in {} ms", name, resetStrategy, lastResetTime);
+    }
+
+  }
+
+  private void loadFixture() throws IOException {
 
+    if (fixture == null) {
+      return;
     }
 
-    if (mongoExec != null)
-      mongoExec.stop();
+    MongoDatabase db = client().getDatabase(currentDatabaseName());
 
+    long start = System.nanoTime();
+    fixture.load(db);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    record(MongoPhase.FIXTURE, elapsed);
+
+    // the fixture is not a write of the test, untouched fixture collections survive the next reset
+    MongoWriteTracker tracker = writeTracker;
+    if (tracker != null) {
+      tracker.drain(currentDatabaseName());
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("loaded {} into {} in {} ms", fixture, currentDatabaseName(), elapsed);
+    }
 
   }
 
+  private void record(MongoPhase phase, long elapsedMillis) {
+    timings.put(phase, elapsedMillis);
+    for (MongoLifecycleListener listener : listeners) {
+      listener.phaseCompleted(phase, elapsedMillis);
+    }
+  }
+
+  private boolean leasesInstance() {
+    return shared || parallel || resetStrategy != ResetStrategy.NONE;
+  }
+
+  private String nextDatabaseName() {
+    if (resetStrategy == ResetStrategy.UNIQUE_DATABASE) {
+      return MongoExtension.UNIT_TEST_DB + "_" + UUID.randomUUID().toString().replace("-", "");
+    }
+    return parallel ? threadShard.get() : MongoExtension.UNIT_TEST_DB;
+  }
+
+  private String currentDatabaseName() {
+    if (!parallel) {
+      return databaseName;
+    }
+    String name = threadDatabase.get();
+    if (name == null) {
+      name = nextDatabaseName();
+      threadDatabase.set(name);
+    }
+    return name;
+  }
+
+  private void setDatabaseName(String name) {
+    if (parallel) {
+      threadDatabase.set(name);
+    } else {
+      databaseName = name;
+    }
+  }
+
   public String getMongoHost() {
     return mongodHost;
   }
@@ -129,16 +515,380 @@ public abstract class MongoTestBase {
     this.mongodHost = host;
   }
 
+  /**
+   * @return the port mongod listens on, when an ephemeral port is configured this is the port that was
+   * allocated once mongod is started
+   */
   public int getMongoPort() {
-    return mongodPort;
+    MongodInstance running = instance;
+    return running != null ? running.getPort() : mongodPort;
   }
 
   protected void setMogoPort(int port) {
     this.mongodPort = port;
   }
 
+  /**
+   * @return the overall time in milliseconds mongod is given to accept connections after it was launched
+   */
+  public long getReadinessTimeout() {
+    return readinessTimeout;
+  }
+
+  protected void setReadinessTimeout(long timeoutMillis) {
+    if (timeoutMillis <= 0) {
+      throw new IllegalArgumentException("readiness timeout must be positive");
+    }
+    this.readinessTimeout = timeoutMillis;
+  }
+
+  /**
+   * @return the milliseconds it took the last started mongod to answer commands or <code>-1</code> if not started yet
+   */
+  public long getTimeToReady() {
+    return timeToReady;
+  }
+
+  /**
+   * @return the time in milliseconds mongod is given to exit on shutdown before it is killed
+   */
+  public long getShutdownTimeout() {
+    return shutdownTimeout;
+  }
+
+  protected void setShutdownTimeout(long timeoutMillis) {
+    if (timeoutMillis <= 0) {
+      throw new IllegalArgumentException("shutdown timeout must be positive");
+    }
+    this.shutdownTimeout = timeoutMillis;
+  }
+
+  /**
+   * @return <code>true</code> if the mongod instance is leased from the JVM wide registry of shared instances,
+   * which is always the case when a {@link ResetStrategy} is used or tests run in parallel
+   */
+  public boolean isShared() {
+    return leasesInstance();
+  }
+
+  protected void setShared(boolean shared) {
+    this.shared = shared;
+  }
+
+  /**
+   * @return the client of the running instance or <code>null</code> if mongod is not started, the first call
+   * creates the client
+   */
   protected MongoClient getMongoClient() {
-    return mongoClient;
+    return client();
+  }
+
+  /**
+   * @return <code>true</code> if mongod is started, unlike {@link #getMongoClient()} this does not create the
+   * client
+   */
+  boolean isMongoStarted() {
+    return clients != null;
+  }
+
+  /**
+   * Get a client of the running instance. Besides the legacy {@link MongoClient} the newer
+   * {@link com.mongodb.client.MongoClient} and, when the reactive streams driver is on the class path,
+   * <code>com.mongodb.reactivestreams.client.MongoClient</code> are supported. The newer clients are created on
+   * first use, share the settings of the legacy client and are closed when mongod is stopped.
+   *
+   * @param type the client type
+   * @param <T>  the client type
+   * @return the client or <code>null</code> if mongod is not started
+   * @throws IllegalArgumentException the type is not a supported client
+   */
+  protected <T> T getMongoClient(Class<T> type) {
+    MongoClientFactory factory = clients;
+    return factory == null ? null : factory.get(type);
+  }
+
+  /**
+   * @return the strategy used to clean the test database between tests
+   */
+  public ResetStrategy getResetStrategy() {
+    return resetStrategy;
+  }
+
+  protected void setResetStrategy(ResetStrategy resetStrategy) {
+    this.resetStrategy = resetStrategy == null ? ResetStrategy.NONE : resetStrategy;
+  }
+
+  /**
+   * @return the name of the database the current test should use
+   */
+  public String getDatabaseName() {
+    return currentDatabaseName();
+  }
+
+  /**
+   * @return the database the current test should use
+   */
+  protected MongoDatabase getDatabase() {
+    MongoClient client = client();
+    return client == null ? null : client.getDatabase(currentDatabaseName());
+  }
+
+  /**
+   * @return <code>true</code> if tests may run in parallel against this instance, each test thread then uses
+   * its own database
+   */
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  /**
+   * Allow tests to run concurrently against this instance. The mongod is shared, every test thread works in
+   * its own database shard and the shard is reset after each test. Unless a different {@link ResetStrategy}
+   * is set, shards are dropped.
+   *
+   * @param parallel <code>true</code> if tests run in parallel
+   */
+  protected void setParallel(boolean parallel) {
+    this.parallel = parallel;
+    if (parallel && resetStrategy == ResetStrategy.NONE) {
+      resetStrategy = ResetStrategy.DROP_DATABASE;
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the next mongod is started in the background while the current one is in use
+   */
+  public boolean isStandby() {
+    return standby;
+  }
+
+  /**
+   * Hide the mongod startup behind the running test. Every start takes a mongod that was launched while the
+   * previous test ran and launches the next one. Each test still has a process of its own which listens on a
+   * free port. Shared instances are not affected.
+   *
+   * @param standby <code>true</code> to keep a standby mongod
+   */
+  protected void setStandby(boolean standby) {
+    this.standby = standby;
+  }
+
+  /**
+   * Stop the mongod instances that were started in the background for standby mode. The next start with a
+   * standby launches its mongod in the foreground again.
+   */
+  protected static void stopStandbyInstances() {
+    MongodStandby.getInstance().close();
+  }
+
+  /**
+   * @return <code>true</code> if {@link #shutdownMongo()} waits for mongod to exit
+   */
+  public boolean isSynchronousShutdown() {
+    return synchronousShutdown;
+  }
+
+  /**
+   * By default a stopped mongod exits on a background thread and a later start on the same address waits
+   * for it. Synchronous shutdown keeps the test thread waiting until mongod has exited.
+   *
+   * @param synchronousShutdown <code>true</code> to wait for mongod to exit
+   */
+  protected void setSynchronousShutdown(boolean synchronousShutdown) {
+    this.synchronousShutdown = synchronousShutdown;
+  }
+
+  /**
+   * @return <code>true</code> if mongod is kept running between test runs, also turned on by the
+   * <code>mongodb.junit.daemon</code> system property
+   */
+  public boolean isDaemon() {
+    return daemon || MongodDaemon.isEnabledBySystemProperty();
+  }
+
+  /**
+   * Leave mongod running when the JVM exits and attach to it in later test runs on this machine, as long as
+   * version, storage, host and port match. The daemon is wiped whenever a test attaches to it and stops
+   * after <code>mongodb.junit.daemon.idle.minutes</code> without use. Shared instances and clusters are not
+   * affected.
+   *
+   * @param daemon <code>true</code> to attach to a daemon mongod
+   */
+  protected void setDaemon(boolean daemon) {
+    this.daemon = daemon;
+  }
+
+  /**
+   * @return the number of mongod output lines retained per process, <code>0</code> if every line is logged
+   */
+  public int getLogBufferLines() {
+    return logBufferLines;
+  }
+
+  /**
+   * @return the mongod output lines that are logged as they arrive or <code>null</code>
+   */
+  public Pattern getLogFilter() {
+    return logFilter;
+  }
+
+  /**
+   * Keep the output of each mongod in a ring buffer of the given size instead of logging every line. Only
+   * lines that match the filter are logged as they arrive, the whole buffer is logged when a test fails.
+   *
+   * @param lines  the number of lines to retain per process or <code>0</code> to log every line
+   * @param filter the lines to log as they arrive, <code>null</code> to log lines only when a test fails
+   */
+  protected void setLogBuffer(int lines, Pattern filter) {
+    if (lines < 0) {
+      throw new IllegalArgumentException("lines must not be negative");
+    }
+    this.logBufferLines = lines;
+    this.logFilter = filter;
+  }
+
+  /**
+   * @return <code>true</code> if the database operations of each test are profiled
+   */
+  public boolean isProfiling() {
+    return profiling;
+  }
+
+  /**
+   * Record the operations of each test with the mongod profiler and report the slowest of them. Tests
+   * annotated with {@link MongoOperationLimits} are profiled either way.
+   *
+   * @param profiling <code>true</code> to profile every test
+   */
+  protected void setProfiling(boolean profiling) {
+    this.profiling = profiling;
+  }
+
+  /**
+   * @return the operations the profiler recorded during the last profiled test or <code>null</code>
+   */
+  public MongoProfile getLastProfile() {
+    return lastProfile;
+  }
+
+  /**
+   * @return what happens when a query plan has a problem or <code>null</code> if plans are not inspected
+   */
+  public MongoPlanPolicy getPlanPolicy() {
+    return planPolicy;
+  }
+
+  /**
+   * @return the file the query plans are compared with or <code>null</code>
+   */
+  public Path getPlanBaseline() {
+    return planBaseline;
+  }
+
+  /**
+   * Explain the distinct query shapes each test sends and report collection scans and in-memory sorts. With
+   * a baseline file the plans are also compared with the plans of earlier runs. Shapes missing from the
+   * file are added to it, changed plans are taken over with the <code>mongodb.junit.plans.update</code>
+   * system property.
+   *
+   * @param policy   what happens when a plan has a problem, <code>null</code> to not inspect plans
+   * @param baseline the file with the plans of earlier runs or <code>null</code>
+   */
+  protected void setPlanInspection(MongoPlanPolicy policy, Path baseline) {
+    this.planPolicy = policy;
+    this.planBaseline = baseline;
+  }
+
+  /**
+   * @return the query plans of the last inspected test or <code>null</code>
+   */
+  public MongoPlanReport getLastPlanReport() {
+    return lastPlanReport;
+  }
+
+  /**
+   * @return the options the clients of the instance are created with
+   */
+  public MongoClientOptions getClientOptions() {
+    return clientOptions;
+  }
+
+  /**
+   * Set the pool, timeout and heartbeat options of the clients handed to the tests. The newer drivers'
+   * clients are derived from the same options.
+   *
+   * @param clientOptions the client options
+   */
+  protected void setClientOptions(MongoClientOptions clientOptions) {
+    this.clientOptions = clientOptions == null ? MongoClientOptions.builder().build() : clientOptions;
+  }
+
+  /**
+   * @return how mongod stores its data
+   */
+  public MongodStorage getStorage() {
+    return storage;
+  }
+
+  protected void setStorage(MongodStorage storage) {
+    this.storage = storage == null ? MongodStorage.DEFAULT : storage;
+  }
+
+  /**
+   * @return the deployment that is started for the tests
+   */
+  public MongoTopology getTopology() {
+    return topology;
+  }
+
+  protected void setTopology(MongoTopology topology) {
+    this.topology = topology == null ? MongoTopology.STANDALONE : topology;
+  }
+
+  /**
+   * @return the addresses the client connects to, all members of a replica set or the address of mongos,
+   * empty if mongod is not started
+   */
+  public List<ServerAddress> getServerAddresses() {
+    MongodInstance running = instance;
+    return running == null ? Collections.emptyList() : running.getServerAddresses();
+  }
+
+  /**
+   * @return the fixture loaded into the test database before each test or <code>null</code>
+   */
+  public MongoFixture getFixture() {
+    return fixture;
+  }
+
+  protected void setFixture(MongoFixture fixture) {
+    this.fixture = fixture;
+  }
+
+  /**
+   * @return the milliseconds the last database reset took or <code>-1</code> if it was never reset
+   */
+  public long getLastResetTime() {
+    return lastResetTime;
+  }
+
+  /**
+   * @return the milliseconds each phase took when it last completed, startup phases are missing when a
+   * running shared instance was leased
+   */
+  public Map<MongoPhase, Long> getTimings() {
+    synchronized (timings) {
+      return Collections.unmodifiableMap(new EnumMap<>(timings));
+    }
+  }
+
+  /**
+   * Register a listener that is told how long each lifecycle phase took.
+   *
+   * @param listener the listener to add
+   */
+  protected void addLifecycleListener(MongoLifecycleListener listener) {
+    listeners.add(Objects.requireNonNull(listener, "listener"));
   }
 
   protected MongoTestBase withMongoHost(String host) {
@@ -151,6 +901,86 @@ public abstract class MongoTestBase {
     return this;
   }
 
+  protected MongoTestBase withReadinessTimeout(long timeout, TimeUnit unit) {
+    setReadinessTimeout(unit.toMillis(timeout));
+    return this;
+  }
+
+  protected MongoTestBase withShutdownTimeout(long timeout, TimeUnit unit) {
+    setShutdownTimeout(unit.toMillis(timeout));
+    return this;
+  }
+
+  protected MongoTestBase withShared(boolean shared) {
+    setShared(shared);
+    return this;
+  }
+
+  protected MongoTestBase withResetStrategy(ResetStrategy resetStrategy) {
+    setResetStrategy(resetStrategy);
+    return this;
+  }
+
+  protected MongoTestBase withStorage(MongodStorage storage) {
+    setStorage(storage);
+    return this;
+  }
+
+  protected MongoTestBase withStandby(boolean standby) {
+    setStandby(standby);
+    return this;
+  }
+
+  protected MongoTestBase withSynchronousShutdown(boolean synchronousShutdown) {
+    setSynchronousShutdown(synchronousShutdown);
+    return this;
+  }
+
+  protected MongoTestBase withDaemon(boolean daemon) {
+    setDaemon(daemon);
+    return this;
+  }
+
+  protected MongoTestBase withLogBuffer(int lines, Pattern filter) {
+    setLogBuffer(lines, filter);
+    return this;
+  }
+
+  protected MongoTestBase withProfiling(boolean profiling) {
+    setProfiling(profiling);
+    return this;
+  }
+
+  protected MongoTestBase withPlanInspection(MongoPlanPolicy policy, Path baseline) {
+    setPlanInspection(policy, baseline);
+    return this;
+  }
+
+  protected MongoTestBase withClientOptions(MongoClientOptions clientOptions) {
+    setClientOptions(clientOptions);
+    return this;
+  }
+
+  protected MongoTestBase withTopology(MongoTopology topology) {
+    setTopology(topology);
+    return this;
+  }
+
+  protected MongoTestBase withFixture(MongoFixture fixture) {
+    setFixture(fixture);
+    return this;
+  }
+
+  protected MongoTestBase withLifecycleListener(MongoLifecycleListener listener) {
+    addLifecycleListener(listener);
+    return this;
+  }
+
+  protected MongoTestBase withParallel(boolean parallel) {
+    setParallel(parallel);
+    return this;
+  }
+
   public String getVersion() {
     return version == null ? Version.Main.PRODUCTION.asInDownloadPath() : version.asInDownloadPath();
   }
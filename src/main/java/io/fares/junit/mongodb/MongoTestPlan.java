@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Plans which test classes of a test run consume each shared mongod configuration. A shared instance is
+ * retired as soon as the last test class that declares it finished, rather than at the end of the run, so
+ * only the instances of the classes that are still to come keep running.
+ * <p>
+ * The plan is fed by the {@link MongoTestPlanListener} which the JUnit Platform launcher picks up
+ * automatically. Set the system property <code>mongodb.junit.plan</code> to <code>false</code> to keep all
+ * shared instances running until the end of the run.
+ */
+public final class MongoTestPlan {
+
+  private static final Logger log = LoggerFactory.getLogger(MongoTestPlan.class);
+
+  /**
+   * The system property that turns the plan off when set to <code>false</code>.
+   */
+  public static final String ENABLED_PROPERTY = "mongodb.junit.plan";
+
+  private static final MongoTestPlan INSTANCE = new MongoTestPlan(MongodInstanceRegistry.getInstance()::retire);
+
+  private final Consumer<MongodSettings> retire;
+
+  private final Map<MongodSettings, Set<String>> consumers = new HashMap<>();
+
+  MongoTestPlan(Consumer<MongodSettings> retire) {
+    this.retire = retire;
+  }
+
+  static MongoTestPlan getInstance() {
+    return INSTANCE;
+  }
+
+  static boolean isEnabledBySystemProperty() {
+    return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+  }
+
+  /**
+   * The shared mongod configuration a test class runs against. Classes with an equal configuration share one
+   * mongod, a class orderer that sorts by this key runs them back to back so each instance starts only once.
+   *
+   * @param testClass the test class
+   * @return the configuration of the first shared extension or rule declared in a static field of the test
+   * class or <code>null</code> if the class does not use a shared instance
+   */
+  public static String configurationOf(Class<?> testClass) {
+    List<MongodSettings> settings = sharedSettingsOf(testClass);
+    return settings.isEmpty() ? null : settings.get(0).toString();
+  }
+
+  /**
+   * Record the consumers of each shared configuration among the test classes of a run. The classes are loaded
+   * without running their static initializers, only classes that declare a static extension or rule field are
+   * initialized to read the configuration.
+   *
+   * @param classNames  the test classes that are about to run
+   * @param classLoader the loader for the test classes
+   */
+  synchronized void plan(Collection<String> classNames, ClassLoader classLoader) {
+
+    consumers.clear();
+
+    for (String className : classNames) {
+      Class<?> testClass;
+      try {
+        testClass = Class.forName(className, false, classLoader);
+      } catch (Throwable e) {
+        if (log.isDebugEnabled()) {
+          log.debug("unable to plan test class {}", className, e);
+        }
+        continue;
+      }
+      for (MongodSettings settings : sharedSettingsOf(testClass)) {
+        consumers.computeIfAbsent(settings, key -> new LinkedHashSet<>()).add(className);
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      for (Map.Entry<MongodSettings, Set<String>> entry : consumers.entrySet()) {
+        log.debug("shared {} is used by {} test classes", entry.getKey(), entry.getValue().size());
+      }
+    }
+
+  }
+
+  /**
+   * Retire the shared instances that were only waiting for the given test class.
+   *
+   * @param className the test class that finished
+   */
+  void classFinished(String className) {
+
+    List<MongodSettings> unused = new ArrayList<>();
+
+    synchronized (this) {
+      Iterator<Map.Entry<MongodSettings, Set<String>>> it = consumers.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<MongodSettings, Set<String>> entry = it.next();
+        if (entry.getValue().remove(className) && entry.getValue().isEmpty()) {
+          it.remove();
+          unused.add(entry.getKey());
+        }
+      }
+    }
+
+    for (MongodSettings settings : unused) {
+      if (log.isDebugEnabled()) {
+        log.debug("{} was the last test class to use shared {}", className, settings);
+      }
+      retire.accept(settings);
+    }
+
+  }
+
+  synchronized void clear() {
+    consumers.clear();
+  }
+
+  static List<MongodSettings> sharedSettingsOf(Class<?> testClass) {
+
+    List<MongodSettings> settings = new ArrayList<>();
+
+    for (Class<?> type = testClass; type != null && type != Object.class; type = type.getSuperclass()) {
+      Field[] fields;
+      try {
+        fields = type.getDeclaredFields();
+      } catch (Throwable e) {
+        continue;
+      }
+      for (Field field : fields) {
+        MongoTestBase testCase = testCaseOf(field);
+        MongodSettings shared = testCase == null ? null : testCase.sharedSettings();
+        if (shared != null && !settings.contains(shared)) {
+          settings.add(shared);
+        }
+      }
+    }
+
+    return settings;
+
+  }
+
+  private static MongoTestBase testCaseOf(Field field) {
+
+    if (!Modifier.isStatic(field.getModifiers())) {
+      return null;
+    }
+
+    Class<?> type = field.getType();
+    if (!MongoTestBase.class.isAssignableFrom(type) && !MongoExtension.class.isAssignableFrom(type)
+      && !MongoRule.class.isAssignableFrom(type)) {
+      return null;
+    }
+
+    Object value;
+    try {
+      field.setAccessible(true);
+      value = field.get(null);
+    } catch (ExceptionInInitializerError e) {
+      // the test run only reports that the class could not be initialized, keep the cause
+      log.warn("failed to initialize {}", field.getDeclaringClass().getName(), e.getCause());
+      return null;
+    } catch (Throwable e) {
+      if (log.isDebugEnabled()) {
+        log.debug("unable to read {}", field, e);
+      }
+      return null;
+    }
+
+    if (value instanceof MongoRule) {
+      return ((MongoRule) value).getTestCase();
+    }
+    return value instanceof MongoTestBase ? (MongoTestBase) value : null;
+
+  }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Feeds the {@link MongoTestPlan} from the JUnit Platform launcher. The listener is registered through the
+ * service loader and records the test classes of the run before the first test executes, then reports each
+ * test class as it finishes so the shared mongod instances it was the last consumer of can be stopped.
+ */
+public class MongoTestPlanListener implements TestExecutionListener {
+
+  @Override
+  public void testPlanExecutionStarted(TestPlan testPlan) {
+
+    if (!MongoTestPlan.isEnabledBySystemProperty()) {
+      return;
+    }
+
+    Set<String> classNames = new LinkedHashSet<>();
+    Deque<TestIdentifier> pending = new ArrayDeque<>(testPlan.getRoots());
+    while (!pending.isEmpty()) {
+      TestIdentifier identifier = pending.pop();
+      className(identifier).ifPresent(classNames::add);
+      pending.addAll(testPlan.getChildren(identifier));
+    }
+
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    MongoTestPlan.getInstance().plan(classNames,
+      classLoader != null ? classLoader : MongoTestPlanListener.class.getClassLoader());
+
+  }
+
+  @Override
+  public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+    className(testIdentifier).ifPresent(MongoTestPlan.getInstance()::classFinished);
+  }
+
+  @Override
+  public void testPlanExecutionFinished(TestPlan testPlan) {
+    MongoTestPlan.getInstance().clear();
+  }
+
+  private static Optional<String> className(TestIdentifier identifier) {
+    return identifier.getSource()
+      .filter(ClassSource.class::isInstance)
+      .map(source -> ((ClassSource) source).getClassName());
+  }
+
+}
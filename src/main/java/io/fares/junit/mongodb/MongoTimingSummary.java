@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds up the phase timings per test class over a test run and logs the classes with the highest mongo
+ * overhead when the JUnit engine closes the root store.
+ */
+final class MongoTimingSummary implements ExtensionContext.Store.CloseableResource {
+
+  private static final Logger log = LoggerFactory.getLogger(MongoTimingSummary.class);
+
+  /**
+   * The number of test classes listed in the summary.
+   */
+  static final int TOP_CLASSES = 10;
+
+  private final Map<String, Map<MongoPhase, Long>> totals = new ConcurrentHashMap<>();
+
+  void add(String testClass, Map<MongoPhase, Long> timings) {
+    Map<MongoPhase, Long> total = totals.computeIfAbsent(testClass, key -> new EnumMap<>(MongoPhase.class));
+    synchronized (total) {
+      timings.forEach((phase, elapsed) -> total.merge(phase, elapsed, Long::sum));
+    }
+  }
+
+  /**
+   * @return one line per test class ordered by the overall mongo overhead, the slowest first
+   */
+  List<String> format() {
+
+    List<Map.Entry<String, Long>> classes = new ArrayList<>();
+    totals.forEach((testClass, total) -> {
+      synchronized (total) {
+        classes.add(new AbstractMap.SimpleImmutableEntry<>(testClass,
+          total.values().stream().mapToLong(Long::longValue).sum()));
+      }
+    });
+    classes.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+    List<String> lines = new ArrayList<>();
+    for (Map.Entry<String, Long> entry : classes.subList(0, Math.min(TOP_CLASSES, classes.size()))) {
+      Map<MongoPhase, Long> total = totals.get(entry.getKey());
+      synchronized (total) {
+        lines.add(String.format("%8d ms %s %s", entry.getValue(), entry.getKey(), total));
+      }
+    }
+    return lines;
+
+  }
+
+  @Override
+  public void close() {
+    if (totals.isEmpty() || !log.isInfoEnabled()) {
+      return;
+    }
+    StringBuilder summary = new StringBuilder("mongo overhead by test class:");
+    for (String line : format()) {
+      summary.append(System.lineSeparator()).append(line);
+    }
+    log.info(summary.toString());
+  }
+
+}
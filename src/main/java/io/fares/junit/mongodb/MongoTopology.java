@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import java.util.Objects;
+
+/**
+ * The deployment that is started for the tests. By default a single standalone mongod is started, a
+ * replica set is required to test transactions and change streams and a sharded cluster to test code that
+ * runs against <code>mongos</code>.
+ * <p>
+ * All members are started in parallel, replica sets are initiated as soon as their members answer commands
+ * and the client handed to the tests knows the whole topology.
+ * <p>
+ * Instances are immutable, every <code>with</code> method returns a modified copy.
+ */
+public final class MongoTopology {
+
+  public enum Type {
+
+    /**
+     * A single mongod.
+     */
+    STANDALONE,
+
+    /**
+     * A replica set, the first member is the primary.
+     */
+    REPLICA_SET,
+
+    /**
+     * A config server, one or more single member shards and a <code>mongos</code> the tests connect to.
+     */
+    SHARDED
+
+  }
+
+  public static final String DEFAULT_REPLICA_SET_NAME = "rs0";
+
+  /**
+   * The topology used when nothing is configured.
+   */
+  public static final MongoTopology STANDALONE = new MongoTopology(Type.STANDALONE, 1, 0, null);
+
+  private final Type type;
+
+  private final int members;
+
+  private final int shards;
+
+  private final String replicaSetName;
+
+  private MongoTopology(Type type, int members, int shards, String replicaSetName) {
+    this.type = type;
+    this.members = members;
+    this.shards = shards;
+    this.replicaSetName = replicaSetName;
+  }
+
+  /**
+   * @param members the number of replica set members
+   * @return a replica set named {@value #DEFAULT_REPLICA_SET_NAME}
+   */
+  public static MongoTopology replicaSet(int members) {
+    if (members <= 0) {
+      throw new IllegalArgumentException("a replica set needs at least one member");
+    }
+    return new MongoTopology(Type.REPLICA_SET, members, 0, DEFAULT_REPLICA_SET_NAME);
+  }
+
+  /**
+   * @return a minimal sharded cluster with one config server, one shard and a <code>mongos</code>
+   */
+  public static MongoTopology sharded() {
+    return sharded(1);
+  }
+
+  /**
+   * @param shards the number of shards, each is a single member replica set
+   * @return a sharded cluster with one config server and a <code>mongos</code>
+   */
+  public static MongoTopology sharded(int shards) {
+    if (shards <= 0) {
+      throw new IllegalArgumentException("a sharded cluster needs at least one shard");
+    }
+    return new MongoTopology(Type.SHARDED, 1, shards, null);
+  }
+
+  /**
+   * @param replicaSetName the name of the replica set
+   * @return a copy with the replica set name
+   */
+  public MongoTopology withReplicaSetName(String replicaSetName) {
+    if (type != Type.REPLICA_SET) {
+      throw new IllegalStateException("only a replica set has a name");
+    }
+    return new MongoTopology(type, members, shards, Objects.requireNonNull(replicaSetName, "replicaSetName"));
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return the number of mongod processes in the replica set or in each shard
+   */
+  public int getMembers() {
+    return members;
+  }
+
+  /**
+   * @return the number of shards, <code>0</code> unless the cluster is sharded
+   */
+  public int getShards() {
+    return shards;
+  }
+
+  /**
+   * @return the name of the replica set or <code>null</code> unless this is a replica set
+   */
+  public String getReplicaSetName() {
+    return replicaSetName;
+  }
+
+  boolean isStandalone() {
+    return type == Type.STANDALONE;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    MongoTopology that = (MongoTopology) o;
+    return members == that.members
+      && shards == that.shards
+      && type == that.type
+      && Objects.equals(replicaSetName, that.replicaSetName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, members, shards, replicaSetName);
+  }
+
+  @Override
+  public String toString() {
+    switch (type) {
+      case REPLICA_SET:
+        return "replica set " + replicaSetName + " of " + members;
+      case SHARDED:
+        return "sharded cluster of " + shards;
+      default:
+        return "standalone";
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Observes the commands a client sends and remembers which collections of which database were written to.
+ * A write is recorded when the command starts so that partially applied writes of failed commands are
+ * cleaned as well.
+ */
+final class MongoWriteTracker implements CommandListener {
+
+  private static final Set<String> WRITE_COMMANDS =
+    new HashSet<>(Arrays.asList("insert", "update", "delete", "findAndModify", "findandmodify"));
+
+  private final Map<String, Set<String>> written = new ConcurrentHashMap<>();
+
+  @Override
+  public void commandStarted(CommandStartedEvent event) {
+
+    String name = event.getCommandName();
+    BsonDocument command = event.getCommand();
+
+    if (WRITE_COMMANDS.contains(name)) {
+      record(event.getDatabaseName(), command.get(name));
+    } else if ("aggregate".equals(name)) {
+      recordOutput(event.getDatabaseName(), command.get("pipeline"));
+    } else if ("mapReduce".equals(name) || "mapreduce".equals(name)) {
+      recordMapReduce(event.getDatabaseName(), command.get("out"));
+    } else if ("renameCollection".equals(name)) {
+      BsonValue to = command.get("to");
+      if (to != null && to.isString()) {
+        String namespace = to.asString().getValue();
+        int dot = namespace.indexOf('.');
+        if (dot > 0) {
+          add(namespace.substring(0, dot), namespace.substring(dot + 1));
+        }
+      }
+    }
+
+  }
+
+  @Override
+  public void commandSucceeded(CommandSucceededEvent event) {
+  }
+
+  @Override
+  public void commandFailed(CommandFailedEvent event) {
+  }
+
+  /**
+   * Take the collections written to in a database since the last call.
+   *
+   * @param database the name of the database
+   * @return the names of the collections that were written to
+   */
+  Set<String> drain(String database) {
+    Set<String> collections = written.remove(database);
+    return collections == null ? Collections.emptySet() : collections;
+  }
+
+  private void recordOutput(String database, BsonValue pipeline) {
+    if (pipeline == null || !pipeline.isArray() || pipeline.asArray().isEmpty()) {
+      return;
+    }
+    BsonArray stages = pipeline.asArray();
+    BsonValue last = stages.get(stages.size() - 1);
+    if (!last.isDocument()) {
+      return;
+    }
+    BsonDocument stage = last.asDocument();
+    BsonValue out = stage.containsKey("$out") ? stage.get("$out") : stage.get("$merge");
+    if (out == null) {
+      return;
+    }
+    if (out.isDocument()) {
+      BsonDocument target = out.asDocument();
+      out = target.containsKey("into") ? target.get("into") : target.get("coll");
+      if (target.containsKey("db") && target.get("db").isString()) {
+        database = target.getString("db").getValue();
+      }
+    }
+    record(database, out);
+  }
+
+  private void recordMapReduce(String database, BsonValue out) {
+    if (out == null || !out.isDocument()) {
+      record(database, out);
+      return;
+    }
+    BsonDocument target = out.asDocument();
+    if (target.containsKey("db") && target.get("db").isString()) {
+      database = target.getString("db").getValue();
+    }
+    for (String action : Arrays.asList("replace", "merge", "reduce")) {
+      if (target.containsKey(action)) {
+        record(database, target.get(action));
+      }
+    }
+  }
+
+  private void record(String database, BsonValue collection) {
+    if (collection != null && collection.isString()) {
+      add(database, collection.asString().getValue());
+    }
+  }
+
+  private void add(String database, String collection) {
+    written.computeIfAbsent(database, key -> ConcurrentHashMap.newKeySet()).add(collection);
+  }
+
+}
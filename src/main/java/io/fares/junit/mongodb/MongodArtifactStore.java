@@ -0,0 +1,240 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import de.flapdoodle.embed.process.distribution.Distribution;
+import de.flapdoodle.embed.process.extract.ExtractedFileSets;
+import de.flapdoodle.embed.process.extract.IExtractedFileSet;
+import de.flapdoodle.embed.process.store.IArtifactStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * An artifact store that extracts a distribution once per JVM and verifies the persistent extraction
+ * against a checksum manifest. Every instance of a distribution runs from the same executable, so after
+ * the first start of a version launching mongod is just a process exec.
+ */
+final class MongodArtifactStore implements IArtifactStore {
+
+  private static final Logger log = LoggerFactory.getLogger(MongodArtifactStore.class);
+
+  /**
+   * The manifest written next to the extracted files of a distribution.
+   */
+  static final String MANIFEST = ".sha256";
+
+  private final IArtifactStore delegate;
+
+  private final File extractDir;
+
+  private final Map<Distribution, IExtractedFileSet> fileSets = new ConcurrentHashMap<>();
+
+  /**
+   * @param delegate   the store that downloads and extracts distributions
+   * @param extractDir the directory the delegate extracts distributions into
+   */
+  MongodArtifactStore(IArtifactStore delegate, File extractDir) {
+    this.delegate = delegate;
+    this.extractDir = extractDir;
+    Runtime.getRuntime().addShutdownHook(new Thread(this::close, "mongod-artifact-cleanup"));
+  }
+
+  @Override
+  public boolean checkDistribution(Distribution distribution) throws IOException {
+    return fileSets.containsKey(distribution) || delegate.checkDistribution(distribution);
+  }
+
+  @Override
+  public IExtractedFileSet extractFileSet(Distribution distribution) throws IOException {
+
+    IExtractedFileSet fileSet = fileSets.get(distribution);
+    if (fileSet != null) {
+      return fileSet;
+    }
+
+    synchronized (this) {
+
+      fileSet = fileSets.get(distribution);
+      if (fileSet != null) {
+        return fileSet;
+      }
+
+      Path extracted = extractDir.toPath().resolve(asPath(distribution));
+
+      if (!verify(extracted)) {
+        // an unverified extraction may be the leftover of an interrupted run, start from the archive
+        if (log.isDebugEnabled()) {
+          log.debug("extracted {} failed verification, extracting it again", distribution);
+        }
+        clear(extracted);
+      }
+
+      fileSet = delegate.extractFileSet(distribution);
+      record(extracted);
+      fileSets.put(distribution, fileSet);
+
+      return fileSet;
+
+    }
+
+  }
+
+  @Override
+  public void removeFileSet(Distribution distribution, IExtractedFileSet files) {
+    // the file set is shared by all instances of the distribution and removed when the JVM exits
+  }
+
+  private void close() {
+    for (IExtractedFileSet fileSet : fileSets.values()) {
+      try {
+        ExtractedFileSets.delete(fileSet);
+      } catch (RuntimeException e) {
+        log.warn("failed to remove {}", fileSet.executable(), e);
+      }
+    }
+    fileSets.clear();
+  }
+
+  /**
+   * The directory a distribution is extracted into, <code>Linux-B64--3.6.5</code> for example.
+   */
+  static String asPath(Distribution distribution) {
+    return distribution.getPlatform().name() + "-" + distribution.getBitsize().name() + "--"
+      + distribution.getVersion().asInDownloadPath();
+  }
+
+  /**
+   * Check the files of an extracted distribution against its manifest.
+   *
+   * @param dir the extracted distribution
+   * @return <code>true</code> if there is a manifest and every file in it matches its checksum
+   * @throws IOException the files could not be read
+   */
+  static boolean verify(Path dir) throws IOException {
+
+    Path manifest = dir.resolve(MANIFEST);
+    if (!Files.isRegularFile(manifest)) {
+      return false;
+    }
+
+    List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+    if (lines.isEmpty()) {
+      return false;
+    }
+
+    for (String line : lines) {
+      int separator = line.indexOf(' ');
+      if (separator < 0) {
+        return false;
+      }
+      Path file = dir.resolve(line.substring(separator + 1));
+      if (!Files.isRegularFile(file) || !line.substring(0, separator).equals(sha256(file))) {
+        return false;
+      }
+    }
+
+    return true;
+
+  }
+
+  /**
+   * Write the manifest of an extracted distribution unless it already verifies.
+   *
+   * @param dir the extracted distribution
+   * @throws IOException the manifest could not be written
+   */
+  static void record(Path dir) throws IOException {
+
+    if (verify(dir)) {
+      return;
+    }
+
+    Map<String, String> checksums = new TreeMap<>();
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = file.getFileName().toString();
+        if (Files.isRegularFile(file) && !name.equals(MANIFEST)) {
+          checksums.put(name, sha256(file));
+        }
+      }
+    }
+
+    List<String> lines = new ArrayList<>(checksums.size());
+    checksums.forEach((name, checksum) -> lines.add(checksum + " " + name));
+
+    // other forks may verify the manifest while it is being written
+    Path written = Files.createTempFile(dir, MANIFEST, ".tmp");
+    Files.write(written, lines, StandardCharsets.UTF_8);
+    Files.move(written, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+  }
+
+  private static void clear(Path dir) throws IOException {
+    if (!Files.isDirectory(dir)) {
+      return;
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (Files.isRegularFile(file)) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  static String sha256(Path file) throws IOException {
+
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+      while (in.read(buffer) != -1) {
+        // the digest is updated as the file is read
+      }
+    }
+
+    StringBuilder hex = new StringBuilder(64);
+    for (byte b : digest.digest()) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+
+  }
+
+}
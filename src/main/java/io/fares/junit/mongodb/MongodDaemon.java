@@ -0,0 +1,552 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoDatabase;
+import de.flapdoodle.embed.mongo.runtime.Mongod;
+import de.flapdoodle.embed.process.distribution.Distribution;
+import de.flapdoodle.embed.process.distribution.Platform;
+import de.flapdoodle.embed.process.extract.IExtractedFileSet;
+import de.flapdoodle.embed.process.store.IArtifactStore;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a mongod running between test runs on this machine. The first JVM launches mongod detached from
+ * itself and records pid, address, version and storage in a state file below the temp directory. Later JVMs
+ * check that the recorded mongod still answers as the recorded process with the same configuration, drop
+ * its databases and attach to it instead of starting a process of their own. A daemon with a different
+ * configuration is shut down and replaced. The state file is locked while it is read or changed.
+ * <p>
+ * Attached JVMs record themselves in the state file and renew the record while they run. As long as another
+ * JVM is attached, e.g. a second surefire fork or an IDE run during a build, the daemon is neither wiped nor
+ * replaced and the attaching JVM starts a mongod of its own. On Linux and macOS a small watchdog stops mongod
+ * once the state file was not renewed for the idle timeout, on other platforms the daemon runs until it is
+ * replaced.
+ */
+final class MongodDaemon {
+
+  private static final Logger log = LoggerFactory.getLogger(MongodDaemon.class);
+
+  /**
+   * The system property that turns on daemon mode for all instances that are not shared, e.g. in the IDE.
+   */
+  static final String DAEMON_PROPERTY = "mongodb.junit.daemon";
+
+  /**
+   * The system property with the minutes an unused daemon keeps running.
+   */
+  static final String IDLE_TIMEOUT_PROPERTY = "mongodb.junit.daemon.idle.minutes";
+
+  static final long DEFAULT_IDLE_TIMEOUT_MINUTES = 30;
+
+  static final String JVM_PREFIX = "jvm.";
+
+  static final long HEARTBEAT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * An attached JVM that did not renew its record for this long is gone.
+   */
+  static final long STALE_MILLIS = 3 * HEARTBEAT_MILLIS;
+
+  private static final List<String> SYSTEM_DATABASES = Arrays.asList("admin", "config", "local");
+
+  private static final int PROBE_TIMEOUT_MILLIS = 1000;
+
+  private static final long STOP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  static final Path DEFAULT_DIR =
+    Paths.get(System.getProperty("java.io.tmpdir"), "mongodb-junit-test", "daemon");
+
+  private static final MongodDaemon INSTANCE =
+    new MongodDaemon(DEFAULT_DIR, ManagementFactory.getRuntimeMXBean().getName());
+
+  /**
+   * File locks are held by the JVM, threads of the same JVM have to be serialized separately.
+   */
+  private static final Object jvmLock = new Object();
+
+  private final Path dir;
+
+  private final Path stateFile;
+
+  private final Path lockFile;
+
+  private final String jvm;
+
+  private MongoClient admin;
+
+  private String adminAddress;
+
+  private ScheduledExecutorService heartbeat;
+
+  /**
+   * @param dir the directory of the state file
+   * @param jvm the name under which this JVM records itself as attached
+   */
+  MongodDaemon(Path dir, String jvm) {
+    this.dir = dir;
+    this.stateFile = dir.resolve("daemon.state");
+    this.lockFile = dir.resolve("daemon.lock");
+    this.jvm = jvm;
+  }
+
+  static MongodDaemon getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return <code>true</code> if daemon mode is turned on for the whole JVM
+   */
+  static boolean isEnabledBySystemProperty() {
+    return Boolean.getBoolean(DAEMON_PROPERTY);
+  }
+
+  /**
+   * Attach to the running daemon if it matches the settings, otherwise launch a new daemon. A daemon another
+   * JVM is attached to is left alone.
+   *
+   * @param settings         the instance to attach to, a daemon on any port matches an ephemeral port
+   * @param readinessTimeout the overall deadline in milliseconds for a new daemon to become ready
+   * @return the attached instance, stopping it leaves the daemon running, or <code>null</code> if another JVM
+   * is attached to the daemon
+   * @throws IOException the state file is not accessible or the daemon could not be launched
+   */
+  MongodInstance attach(MongodSettings settings, long readinessTimeout) throws IOException {
+    synchronized (jvmLock) {
+
+      Files.createDirectories(dir);
+
+      try (FileChannel channel = FileChannel.open(lockFile,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+           FileLock ignored = channel.lock()) {
+
+        long start = System.nanoTime();
+        Properties state = readState();
+
+        if (state != null) {
+          boolean alive = isAlive(state);
+          List<String> others = attachedJvms(state, System.currentTimeMillis());
+          others.remove(jvm);
+          if (alive && !others.isEmpty()) {
+            if (log.isDebugEnabled()) {
+              log.debug("daemon with pid {} is in use by {}", state.getProperty("pid"), others);
+            }
+            return null;
+          }
+          if (alive && matches(state, settings)) {
+            int port = Integer.parseInt(state.getProperty("port"));
+            wipe();
+            register(state);
+            startHeartbeat();
+            Map<MongoPhase, Long> timings = new EnumMap<>(MongoPhase.class);
+            timings.put(MongoPhase.ATTACH, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (log.isDebugEnabled()) {
+              log.debug("attached to daemon {} with pid {} on port {}", settings, state.getProperty("pid"), port);
+            }
+            return MongodInstance.attached(settings, port, 0, timings);
+          }
+          retire(state);
+        }
+
+        return launch(settings, readinessTimeout);
+
+      }
+
+    }
+  }
+
+  /**
+   * Shut the daemon down, e.g. to free its resources at the end of a working session.
+   *
+   * @throws IOException the state file is not accessible
+   */
+  void stop() throws IOException {
+    synchronized (jvmLock) {
+      Files.createDirectories(dir);
+      try (FileChannel channel = FileChannel.open(lockFile,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+           FileLock ignored = channel.lock()) {
+        Properties state = readState();
+        if (state != null) {
+          retire(state);
+        }
+      }
+    }
+  }
+
+  private MongodInstance launch(MongodSettings settings, long readinessTimeout) throws IOException {
+
+    Map<MongoPhase, Long> timings = new EnumMap<>(MongoPhase.class);
+
+    IArtifactStore store = MongodDistributionCache.artifactStore();
+    Distribution distribution = Distribution.detectFor(settings.getVersion());
+
+    long phase = System.nanoTime();
+    if (!store.checkDistribution(distribution)) {
+      throw new IOException("could not resolve " + distribution);
+    }
+    timings.put(MongoPhase.RESOLVE, elapsedSince(phase));
+
+    phase = System.nanoTime();
+    IExtractedFileSet files = store.extractFileSet(distribution);
+    timings.put(MongoPhase.EXTRACT, elapsedSince(phase));
+
+    int port = settings.isEphemeralPort() ? MongoPortAllocator.getInstance().reserve() : settings.getPort();
+    MongodReaper.getInstance().awaitAddress(settings.getHost(), port, STOP_TIMEOUT_MILLIS);
+
+    Path dbDir = dir.resolve("db-" + port);
+    delete(dbDir);
+    Files.createDirectories(dbDir);
+    File logFile = dir.resolve("mongod-" + port + ".log").toFile();
+
+    List<String> commandLine = Mongod.enhanceCommandLinePlattformSpecific(distribution,
+      Mongod.getCommandLine(settings.toMongodConfig(port, readinessTimeout, dbDir), files,
+        dir.resolve("mongod-" + port + ".pid").toFile()));
+
+    long start = System.nanoTime();
+
+    // the daemon must not depend on this JVM, its output goes to a file instead of a pipe
+    Process process = new ProcessBuilder(commandLine)
+      .redirectErrorStream(true)
+      .redirectOutput(ProcessBuilder.Redirect.to(logFile))
+      .start();
+    process.getOutputStream().close();
+    timings.put(MongoPhase.EXEC, elapsedSince(start));
+
+    long pid;
+    try {
+      long remaining = readinessTimeout - elapsedSince(start);
+      timings.put(MongoPhase.READINESS, new MongoReadinessProbe(settings.getHost(), port)
+        .awaitReady(Math.max(remaining, MongoReadinessProbe.MAX_BACKOFF_MILLIS)));
+      pid = admin(settings.getHost(), port).getDatabase("admin")
+        .runCommand(new Document("serverStatus", 1)).get("pid", Number.class).longValue();
+    } catch (IOException | MongoException e) {
+      process.destroyForcibly();
+      closeAdmin();
+      delete(dbDir);
+      throw e instanceof IOException ? (IOException) e
+        : new IOException("daemon on port " + port + " did not become ready, see " + logFile, e);
+    }
+
+    Properties state = new Properties();
+    state.setProperty("pid", String.valueOf(pid));
+    state.setProperty("host", settings.getHost());
+    state.setProperty("port", String.valueOf(port));
+    state.setProperty("version", settings.getVersion().asInDownloadPath());
+    state.setProperty("config", fingerprint(settings));
+    state.setProperty("dbDir", dbDir.toString());
+    register(state);
+
+    watch(pid);
+    startHeartbeat();
+
+    long timeToReady = elapsedSince(start);
+    if (log.isDebugEnabled()) {
+      log.debug("launched daemon {} with pid {} on port {} after {} ms", settings, pid, port, timeToReady);
+    }
+
+    return MongodInstance.attached(settings, port, timeToReady, timings);
+
+  }
+
+  /**
+   * The daemon matches if it was started from the same version and storage on the same host, and on the same
+   * port unless any port will do.
+   */
+  private static boolean matches(Properties state, MongodSettings settings) {
+    return fingerprint(settings).equals(state.getProperty("config"))
+      && settings.getHost().equals(state.getProperty("host"))
+      && (settings.isEphemeralPort() || String.valueOf(settings.getPort()).equals(state.getProperty("port")));
+  }
+
+  private static String fingerprint(MongodSettings settings) {
+    return settings.getVersion().asInDownloadPath() + " " + settings.getVersion().getFeatures() + " "
+      + settings.getStorage();
+  }
+
+  /**
+   * The daemon is alive if a mongod answers on the recorded address with the recorded pid and version.
+   */
+  private boolean isAlive(Properties state) {
+    try {
+      MongoDatabase db = admin(state.getProperty("host"), Integer.parseInt(state.getProperty("port")))
+        .getDatabase("admin");
+      Number pid = db.runCommand(new Document("serverStatus", 1)).get("pid", Number.class);
+      String version = db.runCommand(new Document("buildInfo", 1)).getString("version");
+      return pid != null && state.getProperty("pid").equals(String.valueOf(pid.longValue()))
+        && state.getProperty("version").equals(version);
+    } catch (MongoException | NumberFormatException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("daemon {} is stale", state, e);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Stop the recorded daemon if it is still ours and forget about it.
+   */
+  private void retire(Properties state) throws IOException {
+
+    if (isAlive(state)) {
+      String host = state.getProperty("host");
+      int port = Integer.parseInt(state.getProperty("port"));
+      try {
+        admin(host, port).getDatabase("admin").runCommand(new Document("shutdown", 1).append("force", true));
+      } catch (MongoException e) {
+        // mongod closes the connection while it shuts down
+      }
+      awaitExit(host, port);
+      log.info("stopped daemon with pid {} on port {}", state.getProperty("pid"), port);
+    }
+
+    closeAdmin();
+
+    String dbDir = state.getProperty("dbDir");
+    if (dbDir != null) {
+      delete(Paths.get(dbDir));
+    }
+    Files.deleteIfExists(stateFile);
+
+  }
+
+  private static void awaitExit(String host, int port) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT_MILLIS);
+    while (System.nanoTime() < deadline) {
+      try (Socket ignored = new Socket(host, port)) {
+        Thread.sleep(MongoReadinessProbe.MAX_BACKOFF_MILLIS);
+      } catch (IOException e) {
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    log.warn("daemon on port {} did not exit within {} ms", port, STOP_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Drop everything a previous test run left behind.
+   */
+  private void wipe() {
+    MongoClient client = admin;
+    for (String name : client.listDatabaseNames()) {
+      if (!SYSTEM_DATABASES.contains(name)) {
+        client.getDatabase(name).drop();
+      }
+    }
+  }
+
+  private MongoClient admin(String host, int port) {
+    String address = host + ":" + port;
+    if (admin == null || !address.equals(adminAddress)) {
+      closeAdmin();
+      admin = new MongoClient(new ServerAddress(host, port), MongoClientOptions.builder()
+        .serverSelectionTimeout(PROBE_TIMEOUT_MILLIS)
+        .connectTimeout(PROBE_TIMEOUT_MILLIS)
+        .build());
+      adminAddress = address;
+    }
+    return admin;
+  }
+
+  private void closeAdmin() {
+    if (admin != null) {
+      admin.close();
+      admin = null;
+      adminAddress = null;
+    }
+  }
+
+  /**
+   * Stop mongod from a detached shell once the state file was not touched for the idle timeout or no longer
+   * records mongod.
+   */
+  private void watch(long pid) {
+
+    if (Platform.detect() == Platform.Windows) {
+      return;
+    }
+
+    String script = "while kill -0 $1 2>/dev/null; do sleep 30; "
+      + "if ! grep -q \"^pid=$1$\" \"$2\" 2>/dev/null || [ -n \"$(find \"$2\" -mmin +$3)\" ]; then "
+      + "kill $1; exit 0; fi; done";
+
+    try {
+      new ProcessBuilder("sh", "-c", script, "mongod-daemon-watchdog", String.valueOf(pid), stateFile.toString(),
+        String.valueOf(idleTimeoutMinutes()))
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.to(dir.resolve("watchdog.log").toFile()))
+        .start()
+        .getOutputStream()
+        .close();
+    } catch (IOException e) {
+      log.warn("failed to start the watchdog of daemon {}, it keeps running until it is replaced", pid, e);
+    }
+
+  }
+
+  static long idleTimeoutMinutes() {
+    return Math.max(1, Long.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_MINUTES));
+  }
+
+  /**
+   * The JVMs recorded as attached to the daemon. Records that were not renewed in time are removed.
+   *
+   * @param state the state of the daemon
+   * @param now   the current time in milliseconds
+   * @return the names of the attached JVMs
+   */
+  static List<String> attachedJvms(Properties state, long now) {
+    List<String> jvms = new ArrayList<>();
+    for (String key : state.stringPropertyNames()) {
+      if (!key.startsWith(JVM_PREFIX)) {
+        continue;
+      }
+      long renewed;
+      try {
+        renewed = Long.parseLong(state.getProperty(key));
+      } catch (NumberFormatException e) {
+        renewed = 0;
+      }
+      if (now - renewed > STALE_MILLIS) {
+        state.remove(key);
+      } else {
+        jvms.add(key.substring(JVM_PREFIX.length()));
+      }
+    }
+    return jvms;
+  }
+
+  /**
+   * Record this JVM as attached and write the state.
+   */
+  private void register(Properties state) throws IOException {
+    state.setProperty(JVM_PREFIX + jvm, String.valueOf(System.currentTimeMillis()));
+    writeState(state);
+  }
+
+  /**
+   * Keep the daemon alive while this JVM may use it and take the record of this JVM with it when it exits.
+   */
+  private synchronized void startHeartbeat() {
+    if (heartbeat == null) {
+      heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mongod-daemon-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+      });
+      heartbeat.scheduleWithFixedDelay(() -> renew(true), HEARTBEAT_MILLIS, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> renew(false), "mongod-daemon-detach"));
+    }
+  }
+
+  /**
+   * Renew or remove the record of this JVM, unless the daemon was replaced in the meantime.
+   */
+  private void renew(boolean attached) {
+    synchronized (jvmLock) {
+      try (FileChannel channel = FileChannel.open(lockFile,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+           FileLock ignored = channel.lock()) {
+        Properties state = readState();
+        if (state == null || !state.containsKey(JVM_PREFIX + jvm)) {
+          return;
+        }
+        if (attached) {
+          register(state);
+        } else {
+          state.remove(JVM_PREFIX + jvm);
+          writeState(state);
+        }
+      } catch (IOException e) {
+        log.warn("failed to renew {}", stateFile, e);
+      }
+    }
+  }
+
+  Properties readState() throws IOException {
+    if (!Files.exists(stateFile)) {
+      return null;
+    }
+    Properties state = new Properties();
+    try (InputStream in = Files.newInputStream(stateFile)) {
+      state.load(in);
+    }
+    return state.containsKey("pid") && state.containsKey("port") ? state : null;
+  }
+
+  private void writeState(Properties state) throws IOException {
+    Path written = dir.resolve("daemon.state.tmp");
+    try (FileChannel channel = FileChannel.open(written, StandardOpenOption.CREATE,
+      StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+         OutputStream out = Channels.newOutputStream(channel)) {
+      state.store(out, "mongod daemon of mongodb-junit-test");
+      channel.force(false);
+    }
+    Files.move(written, stateFile, StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void delete(Path path) {
+    if (!Files.exists(path)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(path)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    } catch (IOException e) {
+      log.warn("failed to remove {}", path, e);
+    }
+  }
+
+  private static long elapsedSince(long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+}
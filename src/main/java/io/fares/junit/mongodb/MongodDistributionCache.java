@@ -0,0 +1,240 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import de.flapdoodle.embed.mongo.Command;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.MongosStarter;
+import de.flapdoodle.embed.mongo.config.DownloadConfigBuilder;
+import de.flapdoodle.embed.mongo.config.ExtractedArtifactStoreBuilder;
+import de.flapdoodle.embed.mongo.config.RuntimeConfigBuilder;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.distribution.Versions;
+import de.flapdoodle.embed.process.config.io.ProcessOutput;
+import de.flapdoodle.embed.process.config.store.IDownloadConfig;
+import de.flapdoodle.embed.process.distribution.Distribution;
+import de.flapdoodle.embed.process.distribution.GenericVersion;
+import de.flapdoodle.embed.process.io.IStreamProcessor;
+import de.flapdoodle.embed.process.io.Slf4jLevel;
+import de.flapdoodle.embed.process.io.Slf4jStreamProcessor;
+import de.flapdoodle.embed.process.io.directories.FixedPath;
+import de.flapdoodle.embed.process.io.progress.Slf4jProgressListener;
+import de.flapdoodle.embed.process.store.IArtifactStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The persistent cache of downloaded and extracted mongod distributions.
+ * <p>
+ * Archives and extracted binaries are kept below <code>~/.embedmongo</code> unless the
+ * <code>{@value #CACHE_DIR_PROPERTY}</code> system property points somewhere else. Extracted binaries are
+ * keyed by platform and version and verified against a checksum manifest before they are used. When
+ * <code>{@value #ARCHIVE_DIR_PROPERTY}</code> is set, missing archives are copied from that local directory
+ * instead of being downloaded. The directory uses the layout of the MongoDB download site, for example
+ * <code>linux/mongodb-linux-x86_64-3.6.5.tgz</code>.
+ * <p>
+ * CI agents can warm the cache before the tests run so that no test ever downloads or extracts mongod:
+ * <pre>
+ * java -cp mongodb-junit-test.jar:... io.fares.junit.mongodb.MongodDistributionCache /opt/mongodb 3.6.5
+ * </pre>
+ */
+public final class MongodDistributionCache {
+
+  private static final Logger log = LoggerFactory.getLogger(MongodDistributionCache.class);
+
+  /**
+   * The system property with the directory that holds the archives and extracted binaries.
+   */
+  public static final String CACHE_DIR_PROPERTY = "mongodb.junit.cache.dir";
+
+  /**
+   * The system property with a local directory that archives are copied from instead of downloading them.
+   */
+  public static final String ARCHIVE_DIR_PROPERTY = "mongodb.junit.archive.dir";
+
+  private static final Map<String, MongodStarter> starters = new ConcurrentHashMap<>();
+
+  private static final Map<String, MongosStarter> routerStarters = new ConcurrentHashMap<>();
+
+  private static final Map<Command, IArtifactStore> artifactStores = new ConcurrentHashMap<>();
+
+  private MongodDistributionCache() {
+  }
+
+  /**
+   * The starter shared by all instances that log to the given logger. All starters share one artifact
+   * store so a distribution is resolved and extracted at most once per JVM.
+   *
+   * @param log the logger that receives the mongod output
+   * @return the starter
+   */
+  static MongodStarter starter(Logger log) {
+    return starters.computeIfAbsent(log.getName(), name -> MongodStarter.getInstance(
+      new RuntimeConfigBuilder()
+        .defaultsWithLogger(Command.MongoD, log)
+        .artifactStore(artifactStore())
+        .build()));
+  }
+
+  /**
+   * The <code>mongos</code> starter shared by all sharded clusters that log to the given logger.
+   *
+   * @param log the logger that receives the mongos output
+   * @return the starter
+   */
+  static MongosStarter routerStarter(Logger log) {
+    return routerStarters.computeIfAbsent(log.getName(), name -> MongosStarter.getInstance(
+      new RuntimeConfigBuilder()
+        .defaultsWithLogger(Command.MongoS, log)
+        .artifactStore(artifactStore(Command.MongoS))
+        .build()));
+  }
+
+  /**
+   * A starter whose process output goes to the buffer of a single instance, the commands mongod is started
+   * with are logged at debug level. Falls back to the shared starter when there is no buffer.
+   *
+   * @param log    the logger that receives the commands
+   * @param buffer the buffer that receives the mongod output or <code>null</code>
+   * @return the starter
+   */
+  static MongodStarter starter(Logger log, MongodLogBuffer buffer) {
+    if (buffer == null) {
+      return starter(log);
+    }
+    return MongodStarter.getInstance(new RuntimeConfigBuilder()
+      .defaultsWithLogger(Command.MongoD, log)
+      .processOutput(processOutput(log, buffer))
+      .artifactStore(artifactStore())
+      .build());
+  }
+
+  /**
+   * @param log    the logger that receives the commands
+   * @param buffer the buffer that receives the mongos output or <code>null</code>
+   * @return the starter
+   */
+  static MongosStarter routerStarter(Logger log, MongodLogBuffer buffer) {
+    if (buffer == null) {
+      return routerStarter(log);
+    }
+    return MongosStarter.getInstance(new RuntimeConfigBuilder()
+      .defaultsWithLogger(Command.MongoS, log)
+      .processOutput(processOutput(log, buffer))
+      .artifactStore(artifactStore(Command.MongoS))
+      .build());
+  }
+
+  private static ProcessOutput processOutput(Logger log, IStreamProcessor buffer) {
+    return new ProcessOutput(buffer, buffer, new Slf4jStreamProcessor(log, Slf4jLevel.DEBUG));
+  }
+
+  /**
+   * @return the artifact store shared by all starters
+   */
+  static IArtifactStore artifactStore() {
+    return artifactStore(Command.MongoD);
+  }
+
+  /**
+   * @param command the executable to extract from the distribution archives
+   * @return the artifact store shared by all starters of the executable
+   */
+  static IArtifactStore artifactStore(Command command) {
+    return artifactStores.computeIfAbsent(command, key -> {
+      String archiveDir = System.getProperty(ARCHIVE_DIR_PROPERTY);
+      return newArtifactStore(archiveDir == null ? null : Paths.get(archiveDir), key);
+    });
+  }
+
+  private static IArtifactStore newArtifactStore(Path archiveDir, Command command) {
+
+    File cacheDir = new File(System.getProperty(CACHE_DIR_PROPERTY,
+      System.getProperty("user.home") + File.separator + ".embedmongo"));
+
+    DownloadConfigBuilder download = new DownloadConfigBuilder();
+    download.defaultsForCommand(command)
+      .progressListener(new Slf4jProgressListener(log))
+      .artifactStorePath(new FixedPath(cacheDir.getPath()));
+
+    if (archiveDir != null) {
+      String uri = archiveDir.toAbsolutePath().toUri().toString();
+      download.downloadPath(uri.endsWith("/") ? uri : uri + "/");
+    }
+
+    IDownloadConfig downloadConfig = download.build();
+
+    // every executable keeps its own checksum manifests
+    File extractDir = new File(cacheDir, command == Command.MongoD ? "extracted" : "extracted-" + command.commandName());
+
+    IArtifactStore store = new ExtractedArtifactStoreBuilder()
+      .defaults(command)
+      .download(downloadConfig)
+      .extractDir(new FixedPath(extractDir.getPath()))
+      .build();
+
+    return new MongodArtifactStore(store, extractDir);
+
+  }
+
+  /**
+   * Copy the archives of the versions from a local directory into the cache and extract them.
+   *
+   * @param archiveDir the directory with the archives in the layout of the MongoDB download site
+   * @param versions   the versions to warm up, <code>3.6.5</code> for example
+   * @throws IOException an archive is missing or could not be extracted
+   */
+  public static void warmUp(Path archiveDir, String... versions) throws IOException {
+
+    IArtifactStore store = newArtifactStore(archiveDir, Command.MongoD);
+
+    for (String version : versions) {
+
+      Distribution distribution = Distribution.detectFor(
+        Versions.withFeatures(new GenericVersion(version), Version.Main.PRODUCTION.getFeatures()));
+
+      if (!store.checkDistribution(distribution)) {
+        throw new IOException("no archive for " + distribution + " in " + archiveDir);
+      }
+      store.extractFileSet(distribution);
+
+      log.info("warmed up {}", distribution);
+
+    }
+
+  }
+
+  public static void main(String[] args) throws IOException {
+
+    if (args.length < 2) {
+      System.err.println("usage: MongodDistributionCache <archive dir> <version>...");
+      System.exit(1);
+    }
+
+    warmUp(Paths.get(args[0]), Arrays.copyOfRange(args, 1, args.length));
+
+  }
+
+}
@@ -0,0 +1,326 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.ServerAddress;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodProcess;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.process.distribution.Distribution;
+import de.flapdoodle.embed.process.store.IArtifactStore;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A running mongod process started from {@link MongodSettings}. For a replica set or sharded cluster the
+ * instance stands for the whole {@link MongoCluster}, its process is the primary or the first shard.
+ */
+final class MongodInstance {
+
+  /**
+   * Attempts to start on a newly allocated port when mongod fails to bind an ephemeral port.
+   */
+  static final int MAX_START_ATTEMPTS = 3;
+
+  private final MongodSettings settings;
+
+  private final int port;
+
+  private final MongodExecutable executable;
+
+  private final MongodProcess process;
+
+  private final Path dbDir;
+
+  private final long timeToReady;
+
+  private final long shutdownTimeout;
+
+  private final MongoCluster cluster;
+
+  private final List<ServerAddress> seeds;
+
+  private final MongodLogBuffer logBuffer;
+
+  private Map<MongoPhase, Long> startupTimings;
+
+  private MongodInstance(MongodSettings settings, int port, MongodExecutable executable, MongodProcess process,
+                         Path dbDir, long timeToReady, long shutdownTimeout, Map<MongoPhase, Long> startupTimings,
+                         MongoCluster cluster, List<ServerAddress> seeds, MongodLogBuffer logBuffer) {
+    this.settings = settings;
+    this.port = port;
+    this.executable = executable;
+    this.process = process;
+    this.dbDir = dbDir;
+    this.timeToReady = timeToReady;
+    this.shutdownTimeout = shutdownTimeout;
+    this.startupTimings = startupTimings;
+    this.cluster = cluster;
+    this.seeds = seeds;
+    this.logBuffer = logBuffer;
+  }
+
+  /**
+   * @param cluster        the started cluster
+   * @param settings       the settings the cluster was started from
+   * @param port           the port clients connect to
+   * @param entry          the member that stands for the cluster
+   * @param seeds          the addresses clients connect to
+   * @param timeToReady    the milliseconds it took the cluster to become ready
+   * @param startupTimings the startup phases of the cluster
+   * @return the instance that stands for the cluster
+   */
+  static MongodInstance of(MongoCluster cluster, MongodSettings settings, int port, MongodInstance entry,
+                           List<ServerAddress> seeds, long timeToReady, Map<MongoPhase, Long> startupTimings) {
+    return new MongodInstance(settings, port, entry.executable, entry.process, null, timeToReady,
+      entry.shutdownTimeout, startupTimings, cluster, Collections.unmodifiableList(seeds), null);
+  }
+
+  /**
+   * @param settings       the settings the daemon matches
+   * @param port           the port the daemon listens on
+   * @param timeToReady    the milliseconds it took a newly launched daemon to become ready or 0
+   * @param startupTimings the phases of launching or attaching to the daemon
+   * @return an instance that stands for the {@link MongodDaemon}, stopping it leaves the daemon running
+   */
+  static MongodInstance attached(MongodSettings settings, int port, long timeToReady,
+                                 Map<MongoPhase, Long> startupTimings) {
+    return new MongodInstance(settings, port, null, null, null, timeToReady, 0, startupTimings, null,
+      Collections.singletonList(new ServerAddress(settings.getHost(), port)), null);
+  }
+
+  /**
+   * Launch mongod and wait until it answers commands.
+   *
+   * @param settings         the instance to start
+   * @param readinessTimeout the overall deadline in milliseconds for mongod to become ready
+   * @param shutdownTimeout  the time in milliseconds mongod is given to exit when it is stopped
+   * @param output           where the mongod output goes
+   * @return the running instance
+   * @throws IOException mongod could not be started or did not become ready in time
+   */
+  static MongodInstance start(MongodSettings settings, long readinessTimeout, long shutdownTimeout,
+                              MongodOutput output)
+    throws IOException {
+
+    if (!settings.getTopology().isStandalone()) {
+      return MongoCluster.start(settings, readinessTimeout, shutdownTimeout, output);
+    }
+
+    if (!settings.isEphemeralPort()) {
+      // the mongod of a previous test may still be exiting in the background
+      MongodReaper.getInstance().awaitAddress(settings.getHost(), settings.getPort(), shutdownTimeout);
+      return start(settings, settings.getPort(), readinessTimeout, shutdownTimeout, output);
+    }
+
+    for (int attempt = 1; ; attempt++) {
+      int port = MongoPortAllocator.getInstance().reserve();
+      try {
+        return start(settings, port, readinessTimeout, shutdownTimeout, output);
+      } catch (IOException e) {
+        if (attempt >= MAX_START_ATTEMPTS) {
+          throw e;
+        }
+        output.getLog().warn("failed to start {} on port {}, retrying on another port", settings, port, e);
+      }
+    }
+
+  }
+
+  private static MongodInstance start(MongodSettings settings, int port, long readinessTimeout,
+                                      long shutdownTimeout, MongodOutput output) throws IOException {
+
+    Map<MongoPhase, Long> timings = new EnumMap<>(MongoPhase.class);
+
+    // resolve and extract up front so the phases can be timed, preparing the executable then hits the cache
+    IArtifactStore store = MongodDistributionCache.artifactStore();
+    Distribution distribution = Distribution.detectFor(settings.getVersion());
+
+    long phase = System.nanoTime();
+    if (!store.checkDistribution(distribution)) {
+      throw new IOException("could not resolve " + distribution);
+    }
+    timings.put(MongoPhase.RESOLVE, elapsedSince(phase));
+
+    phase = System.nanoTime();
+    store.extractFileSet(distribution);
+    timings.put(MongoPhase.EXTRACT, elapsedSince(phase));
+
+    MongodLogBuffer logBuffer = output.newBuffer("mongod on " + settings.getHost() + ":" + port);
+    MongodStarter runtime = MongodDistributionCache.starter(output.getLog(), logBuffer);
+
+    Path dbDir = settings.getStorage().createDbDir();
+
+    MongodExecutable executable;
+    MongodProcess process;
+    long start;
+
+    try {
+      executable = runtime.prepare(settings.toMongodConfig(port, readinessTimeout, dbDir));
+      start = System.nanoTime();
+      process = executable.start();
+      timings.put(MongoPhase.EXEC, elapsedSince(start));
+    } catch (IOException | RuntimeException e) {
+      dumpAndClose(logBuffer, "failed start");
+      deleteDbDir(dbDir);
+      throw e;
+    }
+
+    try {
+      // mongod may log that it is listening before it actually accepts commands
+      long remaining = readinessTimeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      timings.put(MongoPhase.READINESS, new MongoReadinessProbe(settings.getHost(), port)
+        .awaitReady(Math.max(remaining, MongoReadinessProbe.MAX_BACKOFF_MILLIS)));
+    } catch (IOException e) {
+      MongodShutdown.stop(process, shutdownTimeout);
+      executable.stop();
+      dumpAndClose(logBuffer, "failed start");
+      deleteDbDir(dbDir);
+      throw e;
+    }
+
+    long timeToReady = elapsedSince(start);
+
+    if (output.getLog().isDebugEnabled()) {
+      output.getLog().debug("mongod {} on {}:{} ready after {} ms {}", settings.getVersion().asInDownloadPath(),
+        settings.getHost(), port, timeToReady, timings);
+    }
+
+    return new MongodInstance(settings, port, executable, process, dbDir, timeToReady, shutdownTimeout, timings,
+      null, Collections.singletonList(new ServerAddress(settings.getHost(), port)), logBuffer);
+
+  }
+
+  private static void dumpAndClose(MongodLogBuffer logBuffer, String reason) {
+    if (logBuffer != null) {
+      logBuffer.close();
+      logBuffer.dump(reason);
+    }
+  }
+
+  private static long elapsedSince(long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  MongodSettings getSettings() {
+    return settings;
+  }
+
+  /**
+   * @return the port mongod is listening on
+   */
+  int getPort() {
+    return port;
+  }
+
+  /**
+   * @return the addresses a client connects to, all members of a replica set
+   */
+  List<ServerAddress> getServerAddresses() {
+    return seeds;
+  }
+
+  /**
+   * @return the replica set a client has to connect to or <code>null</code>
+   */
+  String getReplicaSet() {
+    MongoTopology topology = settings.getTopology();
+    return topology.getType() == MongoTopology.Type.REPLICA_SET ? topology.getReplicaSetName() : null;
+  }
+
+  MongodExecutable getExecutable() {
+    return executable;
+  }
+
+  MongodProcess getProcess() {
+    return process;
+  }
+
+  long getTimeToReady() {
+    return timeToReady;
+  }
+
+  /**
+   * Hand the startup phase timings to the first consumer, later consumers of a shared instance did not
+   * wait for the startup and get an empty map.
+   *
+   * @return the startup timings or an empty map if they were already taken
+   */
+  synchronized Map<MongoPhase, Long> takeStartupTimings() {
+    Map<MongoPhase, Long> taken = startupTimings;
+    startupTimings = Collections.emptyMap();
+    return taken;
+  }
+
+  /**
+   * Write the retained output of mongod, or of all processes of a cluster, to the log.
+   *
+   * @param reason why the output is written
+   */
+  void dumpLog(String reason) {
+    if (cluster != null) {
+      cluster.dumpLog(reason);
+    } else if (logBuffer != null) {
+      logBuffer.dump(reason);
+    }
+  }
+
+  /**
+   * Stop mongod, release the extracted executable and remove a data directory created below a configured
+   * db path.
+   *
+   * @return the milliseconds it took for the process to exit
+   */
+  long stop() {
+    if (cluster != null) {
+      return cluster.stop();
+    }
+    if (process == null) {
+      // the daemon outlives the test run
+      return 0;
+    }
+    long elapsed = MongodShutdown.stop(process, shutdownTimeout);
+    executable.stop();
+    if (logBuffer != null) {
+      logBuffer.close();
+    }
+    deleteDbDir(dbDir);
+    return elapsed;
+  }
+
+  private static void deleteDbDir(Path dbDir) {
+    if (dbDir == null) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(dbDir)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    } catch (IOException e) {
+      LoggerFactory.getLogger(MongodInstance.class).warn("failed to remove {}", dbDir, e);
+    }
+  }
+
+}
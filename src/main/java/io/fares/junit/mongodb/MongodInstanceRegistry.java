@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A JVM wide registry of mongod instances that are shared between test classes, extensions and rules.
+ * Consumers lease an instance by its {@link MongodSettings}, the first lease starts mongod and subsequent
+ * leases reuse the running server. Instances are stopped when the registry is closed which happens
+ * at the end of the JUnit 5 launcher session or when the JVM exits, or earlier when the {@link MongoTestPlan}
+ * retires an instance after its last consumer finished.
+ */
+final class MongodInstanceRegistry {
+
+  private static final Logger log = LoggerFactory.getLogger(MongodInstanceRegistry.class);
+
+  private static final MongodInstanceRegistry INSTANCE = new MongodInstanceRegistry();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::close, "mongod-registry-shutdown"));
+  }
+
+  private final Map<MongodSettings, Entry> instances = new HashMap<>();
+
+  static MongodInstanceRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Lease a running mongod with the given settings, starting it if required. A shared instance that
+   * occupies the same host and port with different settings is stopped first if nobody is leasing it. The
+   * registry is not locked while mongod starts, consumers of other settings are not held up and consumers
+   * of the same settings wait for the one start.
+   *
+   * @param settings         the instance to lease
+   * @param readinessTimeout the overall deadline in milliseconds for mongod to become ready if it has to be started
+   * @param shutdownTimeout  the time in milliseconds mongod is given to exit when the registry is closed
+   * @return the running instance
+   * @throws IOException mongod could not be started or the port is leased by a different configuration
+   */
+  MongodInstance lease(MongodSettings settings, long readinessTimeout, long shutdownTimeout) throws IOException {
+
+    Entry entry;
+    List<MongodInstance> evicted = null;
+
+    synchronized (this) {
+      entry = instances.get(settings);
+      if (entry == null) {
+        evicted = evictConflicting(settings);
+        entry = new Entry();
+        instances.put(settings, entry);
+      } else if (log.isDebugEnabled()) {
+        log.debug("reusing shared {}", settings);
+      }
+      entry.leases++;
+    }
+
+    if (evicted != null) {
+      try {
+        for (MongodInstance instance : evicted) {
+          stopQuietly(instance);
+        }
+        entry.instance.complete(
+          MongodInstance.start(settings, readinessTimeout, shutdownTimeout, MongodOutput.of(log)));
+      } catch (Throwable t) {
+        synchronized (this) {
+          instances.remove(settings, entry);
+        }
+        entry.instance.completeExceptionally(t);
+        throw t;
+      }
+    }
+
+    try {
+      return entry.instance.get();
+    } catch (ExecutionException e) {
+      throw new IOException("shared " + settings + " failed to start", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      synchronized (this) {
+        if (--entry.leases == 0 && entry.retired) {
+          retire(settings);
+        }
+      }
+      throw new InterruptedIOException("interrupted while waiting for shared " + settings);
+    }
+
+  }
+
+  /**
+   * Return a leased instance to the registry. The instance keeps running for the next consumer.
+   *
+   * @param instance the instance obtained with {@link #lease(MongodSettings, long, long)}
+   */
+  synchronized void release(MongodInstance instance) {
+    Entry entry = instances.get(instance.getSettings());
+    if (entry != null && entry.started() == instance && entry.leases > 0) {
+      entry.leases--;
+      if (entry.leases == 0 && entry.retired) {
+        retire(instance.getSettings());
+      }
+    }
+  }
+
+  /**
+   * Stop the instance with the given settings in the background because no further consumer is expected. A
+   * leased instance is stopped when the last lease is released, a later lease starts a new instance.
+   *
+   * @param settings the instance to stop
+   */
+  synchronized void retire(MongodSettings settings) {
+
+    Entry entry = instances.get(settings);
+    if (entry == null) {
+      return;
+    }
+
+    if (entry.leases > 0) {
+      entry.retired = true;
+      return;
+    }
+
+    instances.remove(settings);
+    if (log.isDebugEnabled()) {
+      log.debug("retiring shared {}", settings);
+    }
+    entry.instance.thenAccept(MongodReaper.getInstance()::reap);
+
+  }
+
+  /**
+   * Stop all shared instances, instances that are still starting are stopped once they are ready.
+   */
+  void close() {
+
+    List<Entry> running;
+    synchronized (this) {
+      running = new ArrayList<>(instances.values());
+      instances.clear();
+    }
+
+    for (Entry entry : running) {
+      try {
+        stopQuietly(entry.instance.get());
+      } catch (ExecutionException e) {
+        // the instance never started, nothing to stop
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+
+  }
+
+  /**
+   * Remove the instances that occupy the host and port of the settings, the caller stops them before the
+   * port is used again.
+   */
+  private List<MongodInstance> evictConflicting(MongodSettings settings) throws IOException {
+
+    List<MongodInstance> evicted = new ArrayList<>();
+
+    if (settings.isEphemeralPort()) {
+      return evicted;
+    }
+
+    Iterator<Map.Entry<MongodSettings, Entry>> it = instances.entrySet().iterator();
+
+    while (it.hasNext()) {
+      Map.Entry<MongodSettings, Entry> candidate = it.next();
+      MongodSettings other = candidate.getKey();
+      MongodInstance running = candidate.getValue().started();
+      int port = running != null ? running.getPort() : other.getPort();
+      if (port == settings.getPort() && other.getHost().equals(settings.getHost())) {
+        if (candidate.getValue().leases > 0) {
+          throw new IOException("cannot start " + settings + ", the port is leased by shared " + other);
+        }
+        it.remove();
+        if (running != null) {
+          evicted.add(running);
+        }
+      }
+    }
+
+    return evicted;
+
+  }
+
+  private static void stopQuietly(MongodInstance instance) {
+    try {
+      long elapsed = instance.stop();
+      if (log.isDebugEnabled()) {
+        log.debug("shared {} stopped after {} ms", instance.getSettings(), elapsed);
+      }
+    } catch (RuntimeException e) {
+      log.warn("failed to stop shared {}", instance.getSettings(), e);
+    }
+  }
+
+  private static final class Entry {
+
+    private final CompletableFuture<MongodInstance> instance = new CompletableFuture<>();
+
+    private int leases;
+
+    private boolean retired;
+
+    /**
+     * @return the instance or <code>null</code> while it is starting or if it failed to start
+     */
+    private MongodInstance started() {
+      return instance.isDone() && !instance.isCompletedExceptionally() ? instance.join() : null;
+    }
+
+  }
+
+}
@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import de.flapdoodle.embed.process.io.IStreamProcessor;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the most recent output lines of one mongod or mongos in a fixed-size ring buffer instead of logging
+ * every line on the thread that reads the process output. Appending a line never blocks, the oldest lines
+ * are overwritten once the buffer is full.
+ * <p>
+ * A shared drain thread forwards the lines that match the filter to the logger, by default the warnings
+ * and errors of mongod. All retained lines are written out by {@link #dump(String)}, when a test failed
+ * for example.
+ */
+final class MongodLogBuffer implements IStreamProcessor {
+
+  /**
+   * The interval in milliseconds in which matching lines are forwarded to the logger.
+   */
+  static final long DRAIN_INTERVAL_MILLIS = 100L;
+
+  private static final ScheduledExecutorService drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "mongod-log-drain");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static final long WRITING = -1L;
+
+  private final Logger log;
+
+  private final String name;
+
+  private final Pattern filter;
+
+  private final int capacity;
+
+  private final AtomicReferenceArray<String> lines;
+
+  /**
+   * The sequence number of the line in each slot, {@link #WRITING} while the slot is being replaced.
+   */
+  private final AtomicLongArray sequences;
+
+  private final AtomicLong head = new AtomicLong();
+
+  private long drained = 0;
+
+  private final ScheduledFuture<?> drain;
+
+  /**
+   * @param log      the logger that receives the matching lines and the dumps
+   * @param name     the process the output belongs to, used in the dump
+   * @param capacity the number of lines to retain
+   * @param filter   the lines forwarded as they arrive or <code>null</code> to forward none
+   */
+  MongodLogBuffer(Logger log, String name, int capacity, Pattern filter) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.log = log;
+    this.name = name;
+    this.filter = filter;
+    this.capacity = capacity;
+    this.lines = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, WRITING);
+    }
+    this.drain = filter == null ? null : drainer.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MILLIS,
+      DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void process(String block) {
+    int end = block.length();
+    while (end > 0 && (block.charAt(end - 1) == '\n' || block.charAt(end - 1) == '\r')) {
+      end--;
+    }
+    append(block.substring(0, end));
+  }
+
+  @Override
+  public void onProcessed() {
+    // forward what the process wrote last before it exited
+    if (filter != null) {
+      drainer.execute(this::drain);
+    }
+  }
+
+  /**
+   * Append a line, overwriting the oldest line when the buffer is full. Safe to call from the output and
+   * error reader threads at the same time.
+   *
+   * @param line the output line
+   */
+  void append(String line) {
+    long sequence = head.getAndIncrement();
+    int slot = (int) (sequence % capacity);
+    sequences.set(slot, WRITING);
+    lines.set(slot, line);
+    sequences.set(slot, sequence);
+  }
+
+  /**
+   * Forward the lines that arrived since the last drain and match the filter. Lines that were overwritten
+   * before they could be drained are skipped.
+   */
+  synchronized void drain() {
+
+    if (filter == null) {
+      return;
+    }
+
+    long end = head.get();
+    long sequence = Math.max(drained, end - capacity);
+
+    for (; sequence < end; sequence++) {
+      int slot = (int) (sequence % capacity);
+      long before = sequences.get(slot);
+      String line = lines.get(slot);
+      if (before < sequence || sequences.get(slot) != before) {
+        // the writer has not published the line yet, pick it up on the next drain
+        break;
+      }
+      if (before == sequence && filter.matcher(line).find()) {
+        forward(line);
+      }
+    }
+
+    drained = sequence;
+
+  }
+
+  /**
+   * @return the retained lines, oldest first
+   */
+  List<String> snapshot() {
+
+    long end = head.get();
+    List<String> snapshot = new ArrayList<>((int) Math.min(end, capacity));
+
+    for (long sequence = Math.max(0, end - capacity); sequence < end; sequence++) {
+      int slot = (int) (sequence % capacity);
+      String line = lines.get(slot);
+      if (sequences.get(slot) == sequence) {
+        snapshot.add(line);
+      }
+    }
+
+    return snapshot;
+
+  }
+
+  /**
+   * Write all retained lines to the logger as one entry.
+   *
+   * @param reason why the output is written, the name of a failed test for example
+   */
+  void dump(String reason) {
+
+    List<String> retained = snapshot();
+    if (retained.isEmpty()) {
+      return;
+    }
+
+    StringBuilder dump = new StringBuilder();
+    for (String line : retained) {
+      dump.append(System.lineSeparator()).append(line);
+    }
+
+    log.warn("last {} lines of {} output after {}:{}", retained.size(), name, reason, dump.toString());
+
+  }
+
+  /**
+   * Stop draining the buffer after forwarding the remaining matching lines.
+   */
+  void close() {
+    if (drain != null) {
+      drain.cancel(false);
+      drain();
+    }
+  }
+
+  private void forward(String line) {
+    // mongod writes the severity after the timestamp, F, E, W, I or D
+    int start = line.indexOf(' ') + 1;
+    char severity = start > 0 && start + 1 < line.length() && line.charAt(start + 1) == ' '
+      ? line.charAt(start)
+      : 'I';
+    switch (severity) {
+      case 'F':
+      case 'E':
+        log.error("{}", line);
+        break;
+      case 'W':
+        log.warn("{}", line);
+        break;
+      default:
+        log.info("{}", line);
+    }
+  }
+
+}
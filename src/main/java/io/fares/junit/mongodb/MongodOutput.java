@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.slf4j.Logger;
+
+import java.util.regex.Pattern;
+
+/**
+ * Where the output of the started processes goes. With a positive buffer size each process writes into its
+ * own {@link MongodLogBuffer}, otherwise every line is logged as it arrives.
+ */
+final class MongodOutput {
+
+  /**
+   * The number of output lines retained per process.
+   */
+  static final int DEFAULT_BUFFER_LINES = 1000;
+
+  /**
+   * Matches the fatal, error and warning lines of mongod.
+   */
+  static final Pattern DEFAULT_FILTER = Pattern.compile("^\\S+ [FEW] ");
+
+  private final Logger log;
+
+  private final int bufferLines;
+
+  private final Pattern filter;
+
+  /**
+   * @param log         the logger that receives the output
+   * @param bufferLines the number of lines retained per process or <code>0</code> to log every line
+   * @param filter      the lines logged as they arrive or <code>null</code> to log lines only in a dump
+   */
+  MongodOutput(Logger log, int bufferLines, Pattern filter) {
+    if (bufferLines < 0) {
+      throw new IllegalArgumentException("bufferLines must not be negative");
+    }
+    this.log = log;
+    this.bufferLines = bufferLines;
+    this.filter = filter;
+  }
+
+  /**
+   * @param log the logger that receives the output
+   * @return the default output, buffered and filtered
+   */
+  static MongodOutput of(Logger log) {
+    return new MongodOutput(log, DEFAULT_BUFFER_LINES, DEFAULT_FILTER);
+  }
+
+  Logger getLog() {
+    return log;
+  }
+
+  /**
+   * @param name the process the buffer belongs to
+   * @return a new buffer for the process or <code>null</code> when every line is logged as it arrives
+   */
+  MongodLogBuffer newBuffer(String name) {
+    return bufferLines == 0 ? null : new MongodLogBuffer(log, name, bufferLines, filter);
+  }
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops mongod instances on a background thread so that the test thread can move on while the process
+ * exits. Starting mongod on an address that is still being reaped waits for the old process first. Stops
+ * that fail are logged and never fail a test. Pending stops are awaited with a deadline when the launcher
+ * session completes and when the JVM exits.
+ */
+final class MongodReaper {
+
+  private static final Logger log = LoggerFactory.getLogger(MongodReaper.class);
+
+  /**
+   * The time pending stops are given when the JVM exits.
+   */
+  static final long AWAIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private static final MongodReaper INSTANCE = new MongodReaper();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> INSTANCE.awaitAll(AWAIT_MILLIS), "mongod-reaper-shutdown"));
+  }
+
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private final ExecutorService reaper = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "mongod-reaper-" + threadCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+  private final AtomicInteger failures = new AtomicInteger();
+
+  MongodReaper() {
+  }
+
+  static MongodReaper getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Stop an instance in the background.
+   *
+   * @param instance the instance to stop
+   */
+  void reap(MongodInstance instance) {
+    reap(instance.getSettings().getHost(), instance.getPort(), instance::stop);
+  }
+
+  void reap(String host, int port, LongSupplier stop) {
+
+    String address = address(host, port);
+
+    CompletableFuture<Void> stopping = CompletableFuture.runAsync(() -> {
+      try {
+        long elapsed = stop.getAsLong();
+        if (log.isDebugEnabled()) {
+          log.debug("mongod on {} stopped after {} ms", address, elapsed);
+        }
+      } catch (RuntimeException e) {
+        failures.incrementAndGet();
+        log.warn("failed to stop mongod on {}", address, e);
+      }
+    }, reaper);
+
+    pending.put(address, stopping);
+    stopping.whenComplete((result, failure) -> pending.remove(address, stopping));
+
+  }
+
+  /**
+   * Wait until a mongod that is being reaped has released the address.
+   *
+   * @param host          the host mongod listens on
+   * @param port          the port mongod listens on
+   * @param timeoutMillis the longest time to wait
+   */
+  void awaitAddress(String host, int port, long timeoutMillis) {
+    CompletableFuture<Void> stopping = pending.get(address(host, port));
+    if (stopping != null) {
+      if (log.isDebugEnabled()) {
+        log.debug("waiting for the previous mongod on {}:{} to exit", host, port);
+      }
+      await(stopping, timeoutMillis);
+    }
+  }
+
+  /**
+   * @return the number of stops that failed so far
+   */
+  int getFailures() {
+    return failures.get();
+  }
+
+  /**
+   * Wait for all pending stops.
+   *
+   * @param timeoutMillis the overall deadline for all stops
+   * @return <code>true</code> if no stop is pending anymore
+   */
+  boolean awaitAll(long timeoutMillis) {
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+    for (CompletableFuture<Void> stopping : new ArrayList<>(pending.values())) {
+      await(stopping, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    List<String> remaining = new ArrayList<>(pending.keySet());
+    if (!remaining.isEmpty()) {
+      log.warn("mongod on {} did not stop within {} ms", remaining, timeoutMillis);
+    }
+    if (failures.get() > 0) {
+      log.warn("{} mongod instances failed to stop, see the log above", failures.get());
+    }
+
+    return remaining.isEmpty();
+
+  }
+
+  private static void await(CompletableFuture<Void> stopping, long timeoutMillis) {
+    try {
+      stopping.get(Math.max(timeoutMillis, 0), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      // reported by awaitAll or the stop itself
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static String address(String host, int port) {
+    return host + ":" + port;
+  }
+
+}
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import de.flapdoodle.embed.mongo.config.IMongodConfig;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.Timeout;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.process.runtime.Network;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * The settings that define a mongod instance. Two instances started from equal settings are
+ * interchangeable which makes this the key under which instances are shared.
+ */
+final class MongodSettings {
+
+  /**
+   * The part a mongod plays in a replica set or sharded cluster.
+   */
+  enum Role {
+    MEMBER, CONFIG_SERVER, SHARD_SERVER
+  }
+
+  private final IFeatureAwareVersion version;
+
+  private final String host;
+
+  private final int port;
+
+  private final MongodStorage storage;
+
+  private final MongoTopology topology;
+
+  private final String replicaSet;
+
+  private final Role role;
+
+  MongodSettings(IFeatureAwareVersion version, String host, int port) {
+    this(version, host, port, MongodStorage.DEFAULT);
+  }
+
+  MongodSettings(IFeatureAwareVersion version, String host, int port, MongodStorage storage) {
+    this(version, host, port, storage, MongoTopology.STANDALONE);
+  }
+
+  MongodSettings(IFeatureAwareVersion version, String host, int port, MongodStorage storage,
+                 MongoTopology topology) {
+    this(version, host, port, storage, topology, null, Role.MEMBER);
+  }
+
+  private MongodSettings(IFeatureAwareVersion version, String host, int port, MongodStorage storage,
+                         MongoTopology topology, String replicaSet, Role role) {
+    this.version = version;
+    this.host = host;
+    this.port = port;
+    this.storage = storage;
+    this.topology = topology;
+    this.replicaSet = replicaSet;
+    this.role = role;
+  }
+
+  /**
+   * @param port       the port of the member or <code>0</code> to listen on any free port
+   * @param replicaSet the replica set the member belongs to
+   * @param role       the part the member plays in the cluster
+   * @return the settings of a single mongod of the cluster
+   */
+  MongodSettings member(int port, String replicaSet, Role role) {
+    return new MongodSettings(version, host, port, storage.forReplicaSetMember(role == Role.CONFIG_SERVER),
+      MongoTopology.STANDALONE, replicaSet, role);
+  }
+
+  IFeatureAwareVersion getVersion() {
+    return version;
+  }
+
+  String getHost() {
+    return host;
+  }
+
+  /**
+   * @return the port to listen on or <code>0</code> to listen on any free port
+   */
+  int getPort() {
+    return port;
+  }
+
+  boolean isEphemeralPort() {
+    return port == 0;
+  }
+
+  MongodStorage getStorage() {
+    return storage;
+  }
+
+  MongoTopology getTopology() {
+    return topology;
+  }
+
+  /**
+   * @return the replica set of a cluster member or <code>null</code>
+   */
+  String getReplicaSet() {
+    return replicaSet;
+  }
+
+  Role getRole() {
+    return role;
+  }
+
+  /**
+   * @param port           the port mongod listens on
+   * @param startupTimeout the milliseconds mongod is given to log that it accepts connections
+   * @param dbDir          the data directory or <code>null</code> to use a generated temp directory
+   * @return the configuration to launch mongod with
+   * @throws IOException the local network configuration could not be determined
+   */
+  IMongodConfig toMongodConfig(int port, long startupTimeout, Path dbDir) throws IOException {
+    MongodConfigBuilder config = new MongodConfigBuilder().version(version)
+      .net(new Net(port, Network.localhostIsIPv6()))
+      .timeout(new Timeout(startupTimeout))
+      .configServer(role == Role.CONFIG_SERVER)
+      .shardServer(role == Role.SHARD_SERVER);
+    storage.applyTo(config, dbDir, replicaSet);
+    return config.build();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    MongodSettings that = (MongodSettings) o;
+    return port == that.port
+      && Objects.equals(host, that.host)
+      && Objects.equals(storage, that.storage)
+      && Objects.equals(topology, that.topology)
+      && Objects.equals(replicaSet, that.replicaSet)
+      && role == that.role
+      && Objects.equals(version.asInDownloadPath(), that.version.asInDownloadPath())
+      && Objects.equals(version.getFeatures(), that.version.getFeatures());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(version.asInDownloadPath(), version.getFeatures(), host, port, storage, topology, replicaSet,
+      role);
+  }
+
+  @Override
+  public String toString() {
+    return "mongod " + version.asInDownloadPath() + " on " + host + ":" + (isEphemeralPort() ? "<any>" : port)
+      + (MongodStorage.DEFAULT.equals(storage) ? "" : " with " + storage)
+      + (topology.isStandalone() ? "" : " as " + topology)
+      + (replicaSet == null ? "" : " in " + replicaSet);
+  }
+
+}
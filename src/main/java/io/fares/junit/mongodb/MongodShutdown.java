@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import de.flapdoodle.embed.process.distribution.Platform;
+import de.flapdoodle.embed.process.runtime.AbstractProcess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stops a mongod or mongos process and waits for the process to exit. The graceful stop runs on a helper thread so
+ * that the caller can wait on its completion with a millisecond deadline and escalate to a forced kill
+ * when mongod does not go away in time.
+ */
+final class MongodShutdown {
+
+  private static final Logger log = LoggerFactory.getLogger(MongodShutdown.class);
+
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private static final ExecutorService stopper = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "mongod-shutdown-" + threadCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private MongodShutdown() {
+  }
+
+  /**
+   * Gracefully stop the process and kill it if it has not exited within the timeout.
+   *
+   * @param process       the mongod or mongos process to stop
+   * @param timeoutMillis the time mongod is given to exit before it is killed
+   * @return the milliseconds it took for the process to exit
+   */
+  static long stop(AbstractProcess<?, ?, ?> process, long timeoutMillis) {
+
+    final long start = System.nanoTime();
+
+    Future<?> exited = stopper.submit(process::stop);
+
+    try {
+      exited.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      log.warn("mongod did not exit within {} ms, killing it", timeoutMillis);
+      forceKill(process);
+    } catch (ExecutionException e) {
+      log.warn("graceful mongod shutdown failed, killing it", e.getCause());
+      forceKill(process);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      forceKill(process);
+    }
+
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+  }
+
+  private static void forceKill(AbstractProcess<?, ?, ?> process) {
+
+    long pid = process.getProcessId();
+    if (pid <= 0) {
+      log.warn("unable to kill mongod, the process id is unknown");
+      return;
+    }
+
+    ProcessBuilder kill = Platform.detect() == Platform.Windows
+      ? new ProcessBuilder("taskkill", "/F", "/PID", String.valueOf(pid))
+      : new ProcessBuilder("kill", "-9", String.valueOf(pid));
+
+    try {
+      int exitCode = kill.redirectErrorStream(true).start().waitFor();
+      if (exitCode != 0) {
+        log.warn("killing mongod with pid {} returned exit code {}", pid, exitCode);
+      }
+    } catch (IOException e) {
+      log.warn("failed to kill mongod with pid {}", pid, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+  }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps one pre-started mongod per {@link MongodSettings} ready for the next test. Every test still gets a
+ * process of its own, but the next mongod is launched on a background thread while the current test runs,
+ * so a test only waits for mongod when the standby is not ready yet.
+ */
+final class MongodStandby {
+
+  private static final Logger log = LoggerFactory.getLogger(MongodStandby.class);
+
+  private static final MongodStandby INSTANCE = new MongodStandby();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::close, "mongod-standby-shutdown"));
+  }
+
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private final ExecutorService launcher = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "mongod-standby-" + threadCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Map<MongodSettings, Future<MongodInstance>> standby = new HashMap<>();
+
+  static MongodStandby getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Take the pre-started mongod for the settings, or start one if there is none, and launch the standby
+   * for the next consumer.
+   *
+   * @param settings         the instance to take, it should listen on an ephemeral port
+   * @param readinessTimeout the overall deadline in milliseconds for mongod to become ready
+   * @param shutdownTimeout  the time in milliseconds mongod is given to exit when it is stopped
+   * @param output           where the mongod output goes
+   * @return the running instance, the startup timings of a pre-started instance are already taken
+   * @throws IOException mongod could not be started or did not become ready in time
+   */
+  MongodInstance take(MongodSettings settings, long readinessTimeout, long shutdownTimeout, MongodOutput output)
+    throws IOException {
+
+    Future<MongodInstance> ready;
+    synchronized (this) {
+      ready = standby.remove(settings);
+    }
+
+    MongodInstance instance = null;
+
+    if (ready != null) {
+      try {
+        instance = ready.get();
+        // the startup happened while the previous test ran, nobody waited for it
+        instance.takeStartupTimings();
+      } catch (ExecutionException e) {
+        output.getLog().warn("standby {} failed to start, starting it now", settings, e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        ready.cancel(true);
+        throw new InterruptedIOException("interrupted while waiting for standby " + settings);
+      }
+    }
+
+    if (instance == null) {
+      instance = MongodInstance.start(settings, readinessTimeout, shutdownTimeout, output);
+    }
+
+    prestart(settings, readinessTimeout, shutdownTimeout, output);
+
+    return instance;
+
+  }
+
+  private synchronized void prestart(MongodSettings settings, long readinessTimeout, long shutdownTimeout,
+                                     MongodOutput output) {
+    if (!standby.containsKey(settings)) {
+      standby.put(settings, launcher.submit(() -> MongodInstance.start(settings, readinessTimeout, shutdownTimeout,
+        output)));
+    }
+  }
+
+  /**
+   * Stop all standby instances.
+   */
+  void close() {
+
+    List<Future<MongodInstance>> pending;
+    synchronized (this) {
+      pending = new ArrayList<>(standby.values());
+      standby.clear();
+    }
+
+    for (Future<MongodInstance> instance : pending) {
+      try {
+        stopQuietly(instance.get());
+      } catch (ExecutionException e) {
+        // the standby never started, nothing to stop
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+
+  }
+
+  private static void stopQuietly(MongodInstance instance) {
+    try {
+      long elapsed = instance.stop();
+      if (log.isDebugEnabled()) {
+        log.debug("standby {} stopped after {} ms", instance.getSettings(), elapsed);
+      }
+    } catch (RuntimeException e) {
+      log.warn("failed to stop standby {}", instance.getSettings(), e);
+    }
+  }
+
+}
@@ -0,0 +1,244 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import de.flapdoodle.embed.mongo.config.MongoCmdOptionsBuilder;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * How mongod stores its data. By default mongod uses the default engine of its version on disk in a temp
+ * directory without journal. Tests rarely need durability, {@link #fastTest()} keeps all data in memory
+ * for the lowest startup and write latency.
+ * <p>
+ * Instances are immutable, every <code>with</code> method returns a modified copy.
+ */
+public final class MongodStorage {
+
+  /**
+   * The storage engine that keeps all data in memory, available in MongoDB community builds.
+   */
+  public static final String EPHEMERAL_FOR_TEST = "ephemeralForTest";
+
+  /**
+   * The in-memory storage engine of MongoDB Enterprise.
+   */
+  public static final String IN_MEMORY = "inMemory";
+
+  public static final String WIRED_TIGER = "wiredTiger";
+
+  /**
+   * The storage mongod uses when nothing is configured.
+   */
+  public static final MongodStorage DEFAULT = new MongodStorage(null, null, false, 0, null);
+
+  private final String engine;
+
+  private final String dbPath;
+
+  private final boolean journal;
+
+  private final double wiredTigerCacheSizeGB;
+
+  private final Integer syncDelay;
+
+  private MongodStorage(String engine, String dbPath, boolean journal, double wiredTigerCacheSizeGB,
+                        Integer syncDelay) {
+    this.engine = engine;
+    this.dbPath = dbPath;
+    this.journal = journal;
+    this.wiredTigerCacheSizeGB = wiredTigerCacheSizeGB;
+    this.syncDelay = syncDelay;
+  }
+
+  /**
+   * The preset for test speed: the {@link #EPHEMERAL_FOR_TEST} engine without journal and
+   * <code>syncdelay=0</code> so that mongod never flushes data files in the background.
+   *
+   * @return the fast test profile
+   */
+  public static MongodStorage fastTest() {
+    return DEFAULT.withEngine(EPHEMERAL_FOR_TEST).withJournal(false).withSyncDelay(0);
+  }
+
+  /**
+   * @param engine the <code>--storageEngine</code>, for example {@link #EPHEMERAL_FOR_TEST}
+   * @return a copy with the engine
+   */
+  public MongodStorage withEngine(String engine) {
+    return new MongodStorage(engine, dbPath, journal, wiredTigerCacheSizeGB, syncDelay);
+  }
+
+  /**
+   * @param dbPath the directory below which every mongod creates its own data directory, point it at a
+   *               tmpfs like <code>/dev/shm</code> to keep data files off the disk
+   * @return a copy with the data directory
+   */
+  public MongodStorage withDbPath(String dbPath) {
+    return new MongodStorage(engine, dbPath, journal, wiredTigerCacheSizeGB, syncDelay);
+  }
+
+  /**
+   * @param journal <code>true</code> to start mongod with journaling, by default it runs with <code>--nojournal</code>
+   * @return a copy with journaling enabled or disabled
+   */
+  public MongodStorage withJournal(boolean journal) {
+    return new MongodStorage(engine, dbPath, journal, wiredTigerCacheSizeGB, syncDelay);
+  }
+
+  /**
+   * @param cacheSizeGB the WiredTiger cache size in gigabytes, for example <code>0.25</code>
+   * @return a copy with the cache size
+   */
+  public MongodStorage withWiredTigerCacheSizeGB(double cacheSizeGB) {
+    if (cacheSizeGB <= 0) {
+      throw new IllegalArgumentException("cache size must be positive");
+    }
+    return new MongodStorage(engine, dbPath, journal, cacheSizeGB, syncDelay);
+  }
+
+  /**
+   * @param syncDelay the seconds between flushes of the data files, <code>0</code> disables them
+   * @return a copy with the sync delay
+   */
+  public MongodStorage withSyncDelay(int syncDelay) {
+    if (syncDelay < 0) {
+      throw new IllegalArgumentException("sync delay must not be negative");
+    }
+    return new MongodStorage(engine, dbPath, journal, wiredTigerCacheSizeGB, syncDelay);
+  }
+
+  /**
+   * @return the storage engine or <code>null</code> for the default engine of the mongod version
+   */
+  public String getEngine() {
+    return engine;
+  }
+
+  /**
+   * @return the parent of the data directories or <code>null</code> to use the temp directory
+   */
+  public String getDbPath() {
+    return dbPath;
+  }
+
+  public boolean isJournal() {
+    return journal;
+  }
+
+  /**
+   * @return the WiredTiger cache size or <code>0</code> for the mongod default
+   */
+  public double getWiredTigerCacheSizeGB() {
+    return wiredTigerCacheSizeGB;
+  }
+
+  /**
+   * @return the sync delay or <code>null</code> for the mongod default
+   */
+  public Integer getSyncDelay() {
+    return syncDelay;
+  }
+
+  /**
+   * Create the data directory for a new mongod below the configured db path.
+   *
+   * @return the new directory or <code>null</code> if mongod should use a generated temp directory
+   * @throws IOException the directory could not be created
+   */
+  Path createDbDir() throws IOException {
+    if (dbPath == null) {
+      return null;
+    }
+    Path parent = Files.createDirectories(Paths.get(dbPath));
+    return Files.createTempDirectory(parent, "mongod-");
+  }
+
+  /**
+   * Replica set members that use WiredTiger must keep a journal, config servers always use WiredTiger.
+   *
+   * @param configServer <code>true</code> for a config server
+   * @return the storage of a replica set member
+   */
+  MongodStorage forReplicaSetMember(boolean configServer) {
+    MongodStorage member = configServer ? withEngine(null) : this;
+    return member.engine == null || WIRED_TIGER.equals(member.engine) ? member.withJournal(true) : member;
+  }
+
+  /**
+   * @param config     the configuration to apply the storage to
+   * @param dbDir      the data directory or <code>null</code> to use a generated temp directory
+   * @param replicaSet the replica set the mongod is a member of or <code>null</code>
+   */
+  void applyTo(MongodConfigBuilder config, Path dbDir, String replicaSet) {
+
+    MongoCmdOptionsBuilder options = new MongoCmdOptionsBuilder().useNoJournal(!journal);
+    if (engine != null) {
+      options.useStorageEngine(engine);
+    }
+    if (syncDelay != null) {
+      options.syncDelay(syncDelay);
+    }
+    config.cmdOptions(options.build());
+
+    if (dbDir != null || replicaSet != null) {
+      config.replication(new Storage(dbDir == null ? null : dbDir.toString(), replicaSet, 0));
+    }
+
+    if (wiredTigerCacheSizeGB > 0) {
+      config.withLaunchArgument("--wiredTigerCacheSizeGB", String.valueOf(wiredTigerCacheSizeGB));
+    }
+
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    MongodStorage that = (MongodStorage) o;
+    return journal == that.journal
+      && Double.compare(wiredTigerCacheSizeGB, that.wiredTigerCacheSizeGB) == 0
+      && Objects.equals(engine, that.engine)
+      && Objects.equals(dbPath, that.dbPath)
+      && Objects.equals(syncDelay, that.syncDelay);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(engine, dbPath, journal, wiredTigerCacheSizeGB, syncDelay);
+  }
+
+  @Override
+  public String toString() {
+    return "storage " + (engine == null ? "default" : engine)
+      + (dbPath == null ? "" : " in " + dbPath)
+      + (journal ? " with journal" : "")
+      + (wiredTigerCacheSizeGB > 0 ? " cache " + wiredTigerCacheSizeGB + "GB" : "")
+      + (syncDelay == null ? "" : " syncdelay " + syncDelay);
+  }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.Set;
+
+/**
+ * Defines how the test database is brought back to a clean state between tests. Any strategy other than
+ * {@link #NONE} keeps one mongod running for all tests and resets the database instead of restarting the
+ * process.
+ */
+public enum ResetStrategy {
+
+  /**
+   * The database is not reset, per test extensions and rules isolate tests by restarting mongod.
+   */
+  NONE {
+    @Override
+    void reset(MongoDatabase database, Set<String> written) {
+    }
+  },
+
+  /**
+   * Drop the whole test database after each test.
+   */
+  DROP_DATABASE {
+    @Override
+    void reset(MongoDatabase database, Set<String> written) {
+      database.drop();
+    }
+  },
+
+  /**
+   * Delete all documents from collections that were written to, collections and their indexes are kept.
+   */
+  TRUNCATE_COLLECTIONS {
+    @Override
+    void reset(MongoDatabase database, Set<String> written) {
+      for (String name : database.listCollectionNames()) {
+        if (name.startsWith("system.")) {
+          continue;
+        }
+        MongoCollection<Document> collection = database.getCollection(name);
+        if (collection.estimatedDocumentCount() > 0) {
+          collection.deleteMany(new Document());
+        }
+      }
+    }
+  },
+
+  /**
+   * Delete all documents from the collections the test wrote to, all other collections are not touched.
+   * Writes are observed on the client of the extension or rule, writes through other clients are missed.
+   * Fixture collections that were not written to keep their documents and are not restored again.
+   */
+  TRUNCATE_WRITTEN_COLLECTIONS {
+    @Override
+    void reset(MongoDatabase database, Set<String> written) {
+      for (String name : written) {
+        database.getCollection(name).deleteMany(new Document());
+      }
+    }
+
+    @Override
+    boolean tracksWrites() {
+      return true;
+    }
+  },
+
+  /**
+   * Hand each test a fresh uniquely named database which is dropped after the test.
+   */
+  UNIQUE_DATABASE {
+    @Override
+    void reset(MongoDatabase database, Set<String> written) {
+      database.drop();
+    }
+  };
+
+  /**
+   * @param database the test database
+   * @param written  the collections written to since the last reset, empty unless {@link #tracksWrites()}
+   */
+  abstract void reset(MongoDatabase database, Set<String> written);
+
+  /**
+   * @return <code>true</code> if the client has to record which collections a test writes to
+   */
+  boolean tracksWrites() {
+    return false;
+  }
+
+}
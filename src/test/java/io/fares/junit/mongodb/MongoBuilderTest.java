@@ -16,6 +16,7 @@
  */
 package io.fares.junit.mongodb;
 
+import com.mongodb.MongoClientOptions;
 import io.fares.junit.mongodb.MongoForEachExtension.Builder;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -23,7 +24,16 @@ import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -67,4 +77,147 @@ public class MongoBuilderTest {
 
   }
 
+  @Test
+  public void itShouldBuildWithLifecycleTimeouts() {
+
+    MongoForEachExtension extension = builder.readinessTimeout(5, TimeUnit.SECONDS)
+      .shutdownTimeout(1500, TimeUnit.MILLISECONDS)
+      .build();
+
+    assertEquals(5000L, extension.getReadinessTimeout());
+    assertEquals(1500L, extension.getShutdownTimeout());
+    assertEquals(-1L, extension.getTimeToReady());
+
+  }
+
+  @Test
+  public void itShouldShareInstanceWhenResetting() {
+
+    MongoForEachExtension extension = builder.build();
+    assertFalse(extension.isShared());
+    assertEquals(ResetStrategy.NONE, extension.getResetStrategy());
+
+    extension = MongoForEachExtension.builder()
+      .resetStrategy(ResetStrategy.DROP_DATABASE)
+      .build();
+    assertTrue(extension.isShared());
+    assertEquals(MongoExtension.UNIT_TEST_DB, extension.getDatabaseName());
+
+  }
+
+  @Test
+  public void itShouldShardDatabasesPerThreadWhenParallel() throws Exception {
+
+    MongoForAllExtension extension = MongoForAllExtension.builder()
+      .parallel()
+      .build();
+
+    assertTrue(extension.isParallel());
+    assertTrue(extension.isShared());
+    assertEquals(ResetStrategy.DROP_DATABASE, extension.getResetStrategy());
+
+    String mine = extension.getDatabaseName();
+    String theirs = CompletableFuture.supplyAsync(extension::getDatabaseName).get();
+
+    assertEquals(mine, extension.getDatabaseName());
+    assertNotEquals(mine, theirs);
+
+  }
+
+  @Test
+  public void itShouldBuildWithEphemeralPort() {
+
+    MongoForAllExtension extension = MongoForAllExtension.builder()
+      .ephemeralPort()
+      .build();
+
+    // the port is only allocated when mongod starts
+    assertEquals(0, extension.getMongoPort());
+
+  }
+
+  @Test
+  public void itShouldBuildWithFastTestProfile() {
+
+    MongoForAllExtension extension = MongoForAllExtension.builder()
+      .fastTestProfile()
+      .wiredTigerCacheSizeGB(0.25)
+      .build();
+
+    MongodStorage storage = extension.getStorage();
+    assertEquals(MongodStorage.EPHEMERAL_FOR_TEST, storage.getEngine());
+    assertFalse(storage.isJournal());
+    assertEquals(Integer.valueOf(0), storage.getSyncDelay());
+    assertEquals(0.25, storage.getWiredTigerCacheSizeGB());
+
+  }
+
+  @Test
+  public void itShouldBuildAReplicaSet() {
+
+    MongoForAllExtension extension = MongoForAllExtension.builder().replicaSet(3).build();
+
+    assertEquals(MongoTopology.Type.REPLICA_SET, extension.getTopology().getType());
+    assertEquals(3, extension.getTopology().getMembers());
+    assertEquals(MongoTopology.DEFAULT_REPLICA_SET_NAME, extension.getTopology().getReplicaSetName());
+    assertEquals(MongoTopology.sharded(), MongoForEachExtension.builder().sharded().build().getTopology());
+    assertEquals(MongoTopology.STANDALONE, MongoForEachExtension.builder().build().getTopology());
+
+  }
+
+  @Test
+  public void itShouldBuildWithStandby() {
+    assertTrue(MongoForEachExtension.builder().standby().build().isStandby());
+    assertFalse(MongoForEachExtension.builder().build().isStandby());
+  }
+
+  @Test
+  public void itShouldBuildWithClientOptions() {
+
+    MongoClientOptions options = MongoForEachExtension.builder()
+      .clientOptions(MongoClientOptions.builder().applicationName("load-test").build())
+      .connectionPool(200, 1000)
+      .serverSelectionTimeout(2, TimeUnit.SECONDS)
+      .socketTimeouts(500, 5000, TimeUnit.MILLISECONDS)
+      .heartbeatFrequency(1, TimeUnit.SECONDS)
+      .build()
+      .getClientOptions();
+
+    assertEquals("load-test", options.getApplicationName());
+    assertEquals(200, options.getConnectionsPerHost());
+    assertEquals(5, options.getThreadsAllowedToBlockForConnectionMultiplier());
+    assertEquals(2000, options.getServerSelectionTimeout());
+    assertEquals(500, options.getConnectTimeout());
+    assertEquals(5000, options.getSocketTimeout());
+    assertEquals(1000, options.getHeartbeatFrequency());
+
+  }
+
+  @Test
+  public void itShouldBuildAsDaemon() {
+    assertTrue(MongoForAllExtension.builder().daemon().build().isDaemon());
+    assertFalse(MongoForAllExtension.builder().build().isDaemon());
+  }
+
+  @Test
+  public void itShouldBuildWithProfiling() {
+    assertTrue(MongoForEachExtension.builder().profile().build().isProfiling());
+    assertFalse(MongoForAllExtension.builder().build().isProfiling());
+  }
+
+  @Test
+  public void itShouldBuildWithPlanInspection() {
+    Path baseline = Paths.get("src/test/resources/plans.tsv");
+    MongoForEachExtension mongo = MongoForEachExtension.builder().inspectPlans(MongoPlanPolicy.FAIL, baseline).build();
+    assertEquals(MongoPlanPolicy.FAIL, mongo.getPlanPolicy());
+    assertEquals(baseline, mongo.getPlanBaseline());
+    assertNull(MongoForAllExtension.builder().build().getPlanPolicy());
+  }
+
+  @Test
+  public void itShouldBuildWithSynchronousShutdown() {
+    assertTrue(MongoForEachExtension.builder().synchronousShutdown().build().isSynchronousShutdown());
+    assertFalse(MongoForAllExtension.builder().build().isSynchronousShutdown());
+  }
+
 }
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ServerAddress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoClientFactoryTest {
+
+  private final MongoWriteTracker tracker = new MongoWriteTracker();
+
+  private final AtomicInteger connects = new AtomicInteger();
+
+  private final MongoClientFactory factory = new MongoClientFactory(
+    Collections.singletonList(new ServerAddress("localhost", 27099)), null,
+    MongoClientOptions.builder()
+      .connectionsPerHost(50)
+      .threadsAllowedToBlockForConnectionMultiplier(4)
+      .serverSelectionTimeout(1500)
+      .heartbeatFrequency(2000)
+      .addCommandListener(tracker)
+      .build(),
+    elapsed -> connects.incrementAndGet());
+
+  @AfterEach
+  public void closeClients() {
+    factory.close();
+  }
+
+  @Test
+  public void itShouldSupportAllClientTypes() {
+    assertTrue(MongoClientFactory.supports(MongoClient.class));
+    assertTrue(MongoClientFactory.supports(com.mongodb.client.MongoClient.class));
+    assertTrue(MongoClientFactory.supports(com.mongodb.reactivestreams.client.MongoClient.class));
+    assertFalse(MongoClientFactory.supports(String.class));
+  }
+
+  @Test
+  public void itShouldDeriveTheSettingsFromTheLegacyOptions() {
+
+    MongoClientSettings settings = factory.settings();
+
+    assertEquals(Collections.singletonList(new ServerAddress("localhost", 27099)),
+      settings.getClusterSettings().getHosts());
+    assertEquals(1500, settings.getClusterSettings().getServerSelectionTimeout(TimeUnit.MILLISECONDS));
+    assertEquals(50, settings.getConnectionPoolSettings().getMaxSize());
+    assertEquals(200, settings.getConnectionPoolSettings().getMaxWaitQueueSize());
+    assertEquals(2000, settings.getServerSettings().getHeartbeatFrequency(TimeUnit.MILLISECONDS));
+    assertEquals(Collections.singletonList(tracker), settings.getCommandListeners());
+
+  }
+
+  @Test
+  public void itShouldRequireTheReplicaSet() {
+
+    MongoClientFactory replicaSet = new MongoClientFactory(
+      Arrays.asList(new ServerAddress("localhost", 27099), new ServerAddress("localhost", 27100)), "rs0",
+      MongoClientOptions.builder().build(), elapsed -> {
+    });
+
+    try {
+      assertEquals("rs0", replicaSet.settings().getClusterSettings().getRequiredReplicaSetName());
+    } finally {
+      replicaSet.close();
+    }
+
+  }
+
+  @Test
+  public void itShouldCreateEachClientOnce() {
+
+    com.mongodb.client.MongoClient sync = factory.get(com.mongodb.client.MongoClient.class);
+    assertSame(sync, factory.get(com.mongodb.client.MongoClient.class));
+
+    com.mongodb.reactivestreams.client.MongoClient reactive =
+      factory.get(com.mongodb.reactivestreams.client.MongoClient.class);
+    assertSame(reactive, factory.get(com.mongodb.reactivestreams.client.MongoClient.class));
+
+    // the legacy client needs a running mongod for its first round trip
+    assertEquals(0, connects.get());
+
+  }
+
+  @Test
+  public void itShouldRejectOtherTypes() {
+    assertThrows(IllegalArgumentException.class, () -> factory.get(String.class));
+  }
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class MongoClientsIntegrationTest {
+
+  @RegisterExtension
+  static MongoForAllExtension mongo = MongoForAllExtension.builder()
+    .resetStrategy(ResetStrategy.DROP_DATABASE)
+    .build();
+
+  @Test
+  public void itShouldInjectTheReactiveStreamsClient(MongoClient client) throws Exception {
+
+    assertNotNull(client);
+
+    first(client.getDatabase(mongo.getDatabaseName()).getCollection("TestCollection")
+      .insertOne(new Document("n", 1)));
+
+    assertEquals(1L, (long) first(client.getDatabase(mongo.getDatabaseName()).getCollection("TestCollection")
+      .countDocuments()));
+
+    // all clients talk to the same mongod
+    assertEquals(1L, mongo.getDatabase().getCollection("TestCollection").countDocuments());
+
+  }
+
+  @Test
+  public void itShouldInjectTheSyncClient(com.mongodb.client.MongoClient client) {
+
+    client.getDatabase(mongo.getDatabaseName()).getCollection("TestCollection").insertOne(new Document("n", 2));
+
+    assertEquals(1L, mongo.getDatabase().getCollection("TestCollection").countDocuments());
+    assertEquals(client, mongo.getMongoClient(com.mongodb.client.MongoClient.class));
+
+  }
+
+  private static <T> T first(Publisher<T> publisher) throws Exception {
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+
+    publisher.subscribe(new Subscriber<T>() {
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        subscription.request(1);
+      }
+
+      @Override
+      public void onNext(T item) {
+        result.complete(item);
+      }
+
+      @Override
+      public void onError(Throwable failure) {
+        result.completeExceptionally(failure);
+      }
+
+      @Override
+      public void onComplete() {
+        result.complete(null);
+      }
+
+    });
+
+    return result.get(10, TimeUnit.SECONDS);
+
+  }
+
+}
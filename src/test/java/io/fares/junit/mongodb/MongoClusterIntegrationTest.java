@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoClusterIntegrationTest {
+
+  @Test
+  public void itShouldStartAReplicaSet() throws Exception {
+
+    MongoForEachExtension extension = MongoForEachExtension.builder()
+      .version("4.0.2")
+      .ephemeralPort()
+      .replicaSet(3)
+      .build();
+
+    extension.startMongo();
+
+    try {
+
+      assertEquals(3, extension.getServerAddresses().size());
+      assertTrue(extension.getTimings().containsKey(MongoPhase.INITIATE));
+
+      MongoClient client = extension.getMongoClient();
+      Document isMaster = client.getDatabase("admin").runCommand(new Document("isMaster", 1));
+      assertEquals(MongoTopology.DEFAULT_REPLICA_SET_NAME, isMaster.getString("setName"));
+      assertTrue(isMaster.getBoolean("ismaster"));
+
+      MongoCollection<Document> collection = extension.getDatabase().getCollection("TestCollection");
+      collection.insertOne(new Document("n", 0));
+
+      try (MongoCursor<ChangeStreamDocument<Document>> changes = collection.watch().iterator()) {
+
+        try (ClientSession session = client.startSession()) {
+          session.startTransaction();
+          collection.insertOne(session, new Document("n", 1));
+          collection.insertOne(session, new Document("n", 2));
+          session.commitTransaction();
+        }
+
+        assertEquals(1, changes.next().getFullDocument().getInteger("n").intValue());
+        assertEquals(2, changes.next().getFullDocument().getInteger("n").intValue());
+
+      }
+
+    } finally {
+      extension.shutdownMongo();
+    }
+
+  }
+
+  @Test
+  public void itShouldStartAShardedCluster() throws Exception {
+
+    MongoForEachExtension extension = MongoForEachExtension.builder()
+      .version("4.0.2")
+      .ephemeralPort()
+      .sharded()
+      .readinessTimeout(60, TimeUnit.SECONDS)
+      .build();
+
+    extension.startMongo();
+
+    try {
+
+      Document isMaster = extension.getMongoClient().getDatabase("admin").runCommand(new Document("isMaster", 1));
+      assertEquals("isdbgrid", isMaster.getString("msg"));
+
+      Document shards = extension.getMongoClient().getDatabase("admin").runCommand(new Document("listShards", 1));
+      assertEquals(1, ((List<?>) shards.get("shards")).size());
+
+      extension.getDatabase().getCollection("TestCollection").insertOne(new Document("n", 1));
+      assertEquals(1, extension.getDatabase().getCollection("TestCollection").countDocuments());
+
+    } finally {
+      extension.shutdownMongo();
+    }
+
+  }
+
+}
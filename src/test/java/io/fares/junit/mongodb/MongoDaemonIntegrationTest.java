@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoDaemonIntegrationTest {
+
+  @AfterAll
+  public static void stopDaemon() throws IOException {
+    MongodDaemon.getInstance().stop();
+    assertNull(MongodDaemon.getInstance().readState());
+  }
+
+  @Test
+  public void itShouldAttachToTheDaemonOfAnEarlierRun() throws Exception {
+
+    MongodDaemon.getInstance().stop();
+
+    MongoForEachExtension first = MongoForEachExtension.builder().ephemeralPort().daemon().build();
+    first.startMongo();
+    int port = first.getMongoPort();
+    assertTrue(first.getTimings().containsKey(MongoPhase.EXEC));
+    first.getDatabase().getCollection("TestCollection").insertOne(new Document("n", 1));
+    first.shutdownMongo();
+
+    Properties state = MongodDaemon.getInstance().readState();
+    assertNotNull(state);
+    assertEquals(String.valueOf(port), state.getProperty("port"));
+
+    MongoForEachExtension second = MongoForEachExtension.builder().ephemeralPort().daemon().build();
+    second.startMongo();
+    try {
+      assertEquals(port, second.getMongoPort());
+      assertTrue(second.getTimings().containsKey(MongoPhase.ATTACH));
+      assertFalse(second.getTimings().containsKey(MongoPhase.EXEC));
+      // the daemon is wiped when a test attaches
+      assertEquals(0, second.getDatabase().getCollection("TestCollection").countDocuments());
+    } finally {
+      second.shutdownMongo();
+    }
+
+  }
+
+  @Test
+  public void itShouldLeaveADaemonInUseByAnotherJvmAlone() throws Exception {
+
+    MongoForEachExtension first = MongoForEachExtension.builder().ephemeralPort().daemon().build();
+    first.startMongo();
+    try {
+      first.getDatabase().getCollection("TestCollection").insertOne(new Document("n", 1));
+
+      // the daemon as seen from another JVM that wants a different configuration
+      MongodDaemon other = new MongodDaemon(MongodDaemon.DEFAULT_DIR, "other-jvm");
+      assertNull(other.attach(new MongodSettings(Version.Main.PRODUCTION, "localhost", 0,
+        MongodStorage.DEFAULT.withSyncDelay(0)), first.getReadinessTimeout()));
+
+      assertEquals(1, first.getDatabase().getCollection("TestCollection").countDocuments());
+    } finally {
+      first.shutdownMongo();
+    }
+
+  }
+
+  @Test
+  public void itShouldReplaceADaemonWithADifferentConfiguration() throws Exception {
+
+    MongoForEachExtension first = MongoForEachExtension.builder().ephemeralPort().daemon().build();
+    first.startMongo();
+    String pid = MongodDaemon.getInstance().readState().getProperty("pid");
+    first.shutdownMongo();
+
+    MongoForEachExtension second = MongoForEachExtension.builder().ephemeralPort().daemon()
+      .storage(MongodStorage.DEFAULT.withSyncDelay(0))
+      .build();
+    second.startMongo();
+    try {
+      assertTrue(second.getTimings().containsKey(MongoPhase.EXEC));
+      assertFalse(pid.equals(MongodDaemon.getInstance().readState().getProperty("pid")));
+    } finally {
+      second.shutdownMongo();
+    }
+
+  }
+
+}
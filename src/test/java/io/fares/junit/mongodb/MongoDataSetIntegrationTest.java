@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@MongoDataSet(locations = "datasets/customers.json")
+public class MongoDataSetIntegrationTest {
+
+  @RegisterExtension
+  static MongoForEachExtension mongo = MongoForEachExtension.builder()
+    .resetStrategy(ResetStrategy.DROP_DATABASE)
+    .build();
+
+  @AfterAll
+  static void stopSharedInstances() {
+    MongodInstanceRegistry.getInstance().close();
+  }
+
+  @Test
+  public void itShouldLoadTheClassDataSet(MongoDatabase db) {
+    assertEquals(3, db.getCollection("customers").countDocuments());
+    assertEquals(0, db.getCollection("orders").countDocuments());
+  }
+
+  @Test
+  @MongoDataSet(locations = "datasets/orders.json", batchSize = 1)
+  public void itShouldAddTheMethodDataSet(MongoDatabase db) {
+    assertEquals(3, db.getCollection("customers").countDocuments());
+    assertEquals(2, db.getCollection("orders").countDocuments());
+  }
+
+  @Test
+  @MongoDataSet(locations = {"datasets/customers.json", "datasets/orders.json"}, collection = "everything")
+  public void itShouldLoadIntoTheNamedCollection(MongoDatabase db) {
+    assertEquals(5, db.getCollection("everything").countDocuments());
+  }
+
+  @Test
+  @MongoDataSet(locations = "datasets/products.bson", batchSize = 3)
+  public void itShouldLoadAMappedBsonDump(MongoDatabase db) {
+    assertEquals(4, db.getCollection("products").countDocuments());
+    assertEquals(1, db.getCollection("products").countDocuments(new Document("sku", "P-004").append("qty", 4)));
+  }
+
+}
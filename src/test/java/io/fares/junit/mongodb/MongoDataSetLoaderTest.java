@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MongoDataSetLoaderTest {
+
+  private final MongoDataSetLoader loader = new MongoDataSetLoader(getClass().getClassLoader());
+
+  @Test
+  public void itShouldStreamAJsonArray() throws Exception {
+
+    List<RawBsonDocument> documents = readAll(loader.stream("datasets/customers.json"));
+
+    assertEquals(3, documents.size());
+    assertEquals("Alice {the first}", documents.get(0).getString("name").getValue());
+    assertEquals("Bob \"B\" Builder", documents.get(1).getString("name").getValue());
+    assertEquals("Brisbane", documents.get(2).getDocument("address").getString("city").getValue());
+
+  }
+
+  @Test
+  public void itShouldStreamOneDocumentPerLine() throws Exception {
+
+    List<RawBsonDocument> documents = readAll(loader.stream("datasets/orders.json"));
+
+    assertEquals(2, documents.size());
+    assertEquals(2, documents.get(1).getInt32("order").getValue());
+
+  }
+
+  @Test
+  public void itShouldRejectATruncatedJsonDocument() {
+    MongoDataSetLoader.DocumentSource<RawBsonDocument> source =
+      new MongoDataSetLoader.JsonDocumentSource(new StringReader("{\"a\": {\"b\": 1}"));
+    assertThrows(IOException.class, source::next);
+  }
+
+  @Test
+  public void itShouldStreamBsonWithoutDecoding() throws Exception {
+
+    List<RawBsonDocument> documents =
+      readAll(new MongoDataSetLoader.BsonDocumentSource(new ByteArrayInputStream(dump(3))));
+
+    assertEquals(3, documents.size());
+    assertEquals(BsonDocument.parse("{\"n\": 2}"), documents.get(2));
+
+  }
+
+  @Test
+  public void itShouldSliceMappedBsonAcrossWindows() throws Exception {
+
+    Path file = Files.createTempFile("dataset", ".bson");
+    try {
+
+      Files.write(file, dump(5));
+
+      // a window smaller than a document forces a new mapping for every document
+      List<MongoDataSetLoader.MappedBsonDocument> documents =
+        readAll(new MongoDataSetLoader.MappedBsonDocumentSource(file, 8));
+
+      assertEquals(5, documents.size());
+      for (int i = 0; i < documents.size(); i++) {
+        ByteBuffer bytes = documents.get(i).getByteBuffer();
+        byte[] copy = new byte[bytes.remaining()];
+        bytes.get(copy);
+        assertEquals(BsonDocument.parse("{\"n\": " + i + "}"), new RawBsonDocument(copy));
+      }
+
+    } finally {
+      Files.delete(file);
+    }
+
+  }
+
+  @Test
+  public void itShouldRejectATruncatedMappedDocument() throws Exception {
+
+    Path file = Files.createTempFile("dataset", ".bson");
+    try {
+      byte[] bytes = dump(1);
+      Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+      try (MongoDataSetLoader.MappedBsonDocumentSource source =
+             new MongoDataSetLoader.MappedBsonDocumentSource(file, MongoDataSetLoader.MAP_WINDOW_SIZE)) {
+        assertThrows(EOFException.class, source::next);
+      }
+    } finally {
+      Files.delete(file);
+    }
+
+  }
+
+  @Test
+  public void itShouldPipeMappedBytesWithoutDecoding() throws Exception {
+
+    byte[] bytes = dump(1);
+    BasicOutputBuffer out = new BasicOutputBuffer();
+
+    new MongoDataSetLoader.MappedBsonDocumentCodec().encode(new BsonBinaryWriter(out),
+      new MongoDataSetLoader.MappedBsonDocument(ByteBuffer.wrap(bytes)), EncoderContext.builder().build());
+
+    assertArrayEquals(bytes, out.toByteArray());
+
+  }
+
+  @Test
+  public void itShouldMapBsonResourcesOnTheFileSystem() throws Exception {
+    try (MongoDataSetLoader.DocumentSource<?> source = loader.open("datasets/products.bson")) {
+      assertEquals(MongoDataSetLoader.MappedBsonDocument.class, source.documentClass());
+    }
+  }
+
+  @Test
+  public void itShouldNameTheCollectionAfterTheFile() {
+    assertEquals("customers", MongoDataSetLoader.collectionName("datasets/customers.json"));
+    assertEquals("orders", MongoDataSetLoader.collectionName("file:/tmp/orders.bson.gz"));
+  }
+
+  private static byte[] dump(int count) throws IOException {
+    ByteArrayOutputStream dump = new ByteArrayOutputStream();
+    for (int i = 0; i < count; i++) {
+      ByteBuffer bytes = RawBsonDocument.parse("{\"n\": " + i + "}").getByteBuffer().asNIO();
+      byte[] copy = new byte[bytes.remaining()];
+      bytes.get(copy);
+      dump.write(copy);
+    }
+    return dump.toByteArray();
+  }
+
+  private static <T> List<T> readAll(MongoDataSetLoader.DocumentSource<T> source) throws IOException {
+    List<T> documents = new ArrayList<>();
+    try {
+      T document;
+      while ((document = source.next()) != null) {
+        documents.add(document);
+      }
+    } finally {
+      source.close();
+    }
+    return documents;
+  }
+
+}
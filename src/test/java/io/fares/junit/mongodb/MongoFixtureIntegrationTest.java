@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Indexes;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoFixtureIntegrationTest {
+
+  @AfterAll
+  static void stopSharedInstances() {
+    MongodInstanceRegistry.getInstance().close();
+    MongoFixture.clearSnapshots();
+  }
+
+  @Test
+  public void itShouldSeedOnceAndRestoreTheSnapshot() throws Exception {
+
+    AtomicInteger seeded = new AtomicInteger();
+
+    MongoFixture customers = MongoFixture.of("customers", db -> {
+      seeded.incrementAndGet();
+      MongoCollection<Document> collection = db.getCollection("customers");
+      collection.createIndex(Indexes.ascending("name"));
+      for (int i = 0; i < 2500; i++) {
+        collection.insertOne(new Document("name", "customer-" + i));
+      }
+    }).withBatchSize(1000);
+
+    MongoForEachExtension extension = MongoForEachExtension.builder()
+      .resetStrategy(ResetStrategy.DROP_DATABASE)
+      .fixture(customers)
+      .build();
+
+    for (int test = 0; test < 3; test++) {
+
+      extension.startMongo();
+
+      MongoCollection<Document> collection = extension.getDatabase().getCollection("customers");
+      assertEquals(2500, collection.countDocuments());
+
+      List<String> indexes = collection.listIndexes().map(index -> index.getString("name")).into(new ArrayList<>());
+      assertTrue(indexes.contains("name_1"), indexes.toString());
+
+      assertTrue(extension.getTimings().containsKey(MongoPhase.FIXTURE));
+
+      // tests may change the data, the next test still gets the original fixture
+      collection.deleteMany(new Document());
+
+      extension.shutdownMongo();
+
+    }
+
+    assertEquals(1, seeded.get());
+
+  }
+
+  @Test
+  public void itShouldRejectASecondSeederUnderTheSameName() throws Exception {
+
+    MongoFixture first = MongoFixture.of("orders", db -> db.getCollection("orders").insertOne(new Document()));
+    MongoFixture second = MongoFixture.of("orders", db -> db.getCollection("orders").insertOne(new Document()));
+
+    MongoForEachExtension extension = MongoForEachExtension.builder()
+      .resetStrategy(ResetStrategy.DROP_DATABASE)
+      .build();
+
+    extension.startMongo();
+    try {
+      first.load(extension.getDatabase());
+      first.withBatchSize(10).load(extension.getDatabase());
+      assertThrows(IllegalStateException.class, () -> second.load(extension.getDatabase()));
+    } finally {
+      extension.shutdownMongo();
+    }
+
+  }
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoDatabase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every test that loads a data set of its own has to find the same documents no matter which tests ran
+ * before it on the same database.
+ */
+@MongoDataSet(locations = "datasets/customers.json")
+public class MongoForAllDataSetIntegrationTest {
+
+  @RegisterExtension
+  static MongoForAllExtension mongo = MongoForAllExtension.defaultMongo();
+
+  @Test
+  public void itShouldKeepTheClassDataSet(MongoDatabase db) {
+    assertEquals(3, db.getCollection("customers").countDocuments());
+    assertEquals(0, db.getCollection("orders").countDocuments());
+    assertEquals(0, db.getCollection("vip").countDocuments());
+  }
+
+  @Test
+  @MongoDataSet(locations = "datasets/customers.json", collection = "vip")
+  public void itShouldLoadTheMethodDataSet(MongoDatabase db) {
+    assertEquals(3, db.getCollection("vip").countDocuments());
+  }
+
+  @Test
+  @MongoDataSet(locations = "datasets/customers.json", collection = "vip")
+  public void itShouldLoadTheMethodDataSetAgain(MongoDatabase db) {
+    assertEquals(3, db.getCollection("vip").countDocuments());
+  }
+
+  @Test
+  @MongoDataSet(locations = "datasets/orders.json")
+  public void itShouldNotSeeTheOrdersOfOtherTests(MongoDatabase db) {
+    assertEquals(2, db.getCollection("orders").countDocuments());
+  }
+
+  @Test
+  @MongoDataSet(locations = "datasets/orders.json", collection = "customers")
+  public void itShouldRestoreTheClassDataSet(MongoDatabase db) {
+    assertEquals(5, db.getCollection("customers").countDocuments());
+  }
+
+}
@@ -47,10 +47,14 @@ public class MongoForEachExtensionIntegrationTest {
     extension.shutdownMongo();
     verify(extension, times(1)).beforeEach(eq(context));
     verify(extension, times(1)).startMongoWhenEnabled(eq(context));
+    verify(extension, times(1)).isShared();
     verify(extension, times(1)).startMongo();
     verify(extension, times(1)).getMongoHost();
     verify(extension, times(1)).getMongoPort();
     verify(extension, times(1)).getMongoClient();
+    verify(extension, times(1)).startInspections(eq(context));
+    verify(extension, times(1)).startProfiler(eq(false));
+    verify(extension, times(1)).startPlanInspection();
     verify(extension, times(1)).shutdownMongo();
     verifyNoMoreInteractions(extension);
   }
@@ -66,6 +70,12 @@ public class MongoForEachExtensionIntegrationTest {
     verify(extension, times(1)).startMongoWhenEnabled(eq(context));
     verify(extension, times(1)).beforeEach(eq(context));
     verify(extension, times(1)).afterEach(eq(context));
+    verify(extension, times(1)).startInspections(eq(context));
+    verify(extension, times(1)).startProfiler(eq(false));
+    verify(extension, times(1)).startPlanInspection();
+    verify(extension, times(1)).finishInspections(eq(context));
+    verify(extension, times(1)).stopProfiler();
+    verify(extension, times(1)).finishPlanInspection();
     verify(extension, times(1)).stopMongoWhenEnabled(eq(context));
     verifyNoMoreInteractions(extension);
   }
@@ -78,7 +88,11 @@ public class MongoForEachExtensionIntegrationTest {
     verify(extension, times(1)).afterEach(eq(context));
     verify(extension, times(1)).getMongoHost();
     verify(extension, times(1)).getMongoPort();
+    verify(extension, times(1)).finishInspections(eq(context));
+    verify(extension, times(1)).stopProfiler();
+    verify(extension, times(1)).finishPlanInspection();
     verify(extension, times(1)).stopMongoWhenEnabled(eq(context));
+    verify(extension, times(1)).dumpMongodLogOnFailure(eq(context));
     verify(extension, times(1)).shutdownMongo();
     verifyNoMoreInteractions(extension);
   }
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoLatencyHistogramTest {
+
+  @Test
+  public void itShouldReportPercentilesWithinThePrecision() {
+
+    MongoLatencyHistogram histogram = new MongoLatencyHistogram();
+    for (long micros = 1; micros <= 10_000; micros++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+
+    assertEquals(10_000, histogram.getTotalCount());
+    assertWithin(TimeUnit.MICROSECONDS.toNanos(5_000), histogram.getValueAtPercentile(50));
+    assertWithin(TimeUnit.MICROSECONDS.toNanos(9_900), histogram.getValueAtPercentile(99));
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(10_000), histogram.getValueAtPercentile(100));
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(1), histogram.getMin());
+    assertEquals(5_000.5, histogram.getValueAtPercentile(50, TimeUnit.MICROSECONDS), 5_000 * 0.016);
+
+  }
+
+  @Test
+  public void itShouldKeepSmallValuesExact() {
+    for (long value = 0; value < 10_000; value++) {
+      long reported = MongoLatencyHistogram.highestEquivalentValue(MongoLatencyHistogram.index(value));
+      if (value < 128) {
+        assertEquals(value, reported);
+      } else {
+        assertTrue(reported >= value && reported - value <= value / 64, "value " + value + " reported " + reported);
+      }
+    }
+  }
+
+  @Test
+  public void itShouldCombineHistograms() {
+
+    MongoLatencyHistogram first = new MongoLatencyHistogram();
+    MongoLatencyHistogram second = new MongoLatencyHistogram();
+    first.record(100);
+    second.record(300);
+    second.record(MongoLatencyHistogram.MAX_TRACKABLE_NANOS * 2);
+
+    first.add(second);
+
+    assertEquals(3, first.getTotalCount());
+    assertEquals(100, first.getMin());
+    assertEquals(MongoLatencyHistogram.MAX_TRACKABLE_NANOS, first.getMax());
+    assertEquals(MongoLatencyHistogram.MAX_TRACKABLE_NANOS, first.getValueAtPercentile(100));
+
+    first.reset();
+    assertEquals(0, first.getTotalCount());
+    assertEquals(0, first.getValueAtPercentile(99));
+
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(Math.abs(actual - expected) <= expected / 64, "expected " + expected + " but was " + actual);
+  }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoLoadHarnessIntegrationTest {
+
+  @RegisterExtension
+  static MongoForAllExtension mongo = MongoForAllExtension.builder()
+    .resetStrategy(ResetStrategy.DROP_DATABASE)
+    .connectionPool(16, 160)
+    .build();
+
+  @Test
+  public void itShouldDriveMongodFromManyThreads(TestReporter reporter) throws Exception {
+
+    MongoLoadResult result = mongo.loadHarness()
+      .threads(8)
+      .warmup(200, TimeUnit.MILLISECONDS)
+      .duration(1, TimeUnit.SECONDS)
+      .operation("insert", 1, db -> db.getCollection("TestCollection")
+        .insertOne(new Document("n", ThreadLocalRandom.current().nextInt(100))))
+      .operation("find", 4, db -> db.getCollection("TestCollection")
+        .find(Filters.eq("n", ThreadLocalRandom.current().nextInt(100))).first())
+      .maxErrors("insert", 0)
+      .maxErrors("find", 0)
+      .percentileBelow("find", 50, 1, TimeUnit.SECONDS)
+      .run(reporter);
+
+    long inserts = result.getOperation("insert").getLatency().getTotalCount();
+    assertTrue(inserts > 0);
+    assertTrue(mongo.getDatabase().getCollection("TestCollection").countDocuments() >= inserts);
+    assertEquals(0, result.getOperation("find").getErrors());
+
+  }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoDatabase;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class MongoLoadHarnessTest {
+
+  private final MongoDatabase db = mock(MongoDatabase.class);
+
+  @Test
+  public void itShouldMeasureEachOperation() throws Exception {
+
+    AtomicInteger reads = new AtomicInteger();
+    AtomicInteger writes = new AtomicInteger();
+    Map<String, String> published = new HashMap<>();
+
+    MongoLoadResult result = MongoLoadHarness.of(db)
+      .threads(4)
+      .warmup(50, TimeUnit.MILLISECONDS)
+      .duration(200, TimeUnit.MILLISECONDS)
+      .operation("read", 9, database -> {
+        assertSame(db, database);
+        reads.incrementAndGet();
+      })
+      .operation("write", 1, database -> writes.incrementAndGet())
+      .run(published::putAll);
+
+    MongoLoadResult.Operation read = result.getOperation("read");
+    MongoLoadResult.Operation write = result.getOperation("write");
+
+    assertTrue(read.getLatency().getTotalCount() > write.getLatency().getTotalCount());
+    assertTrue(read.getLatency().getTotalCount() <= reads.get());
+    assertTrue(read.getThroughput() > 0);
+    assertEquals(200, result.getDuration(TimeUnit.MILLISECONDS));
+    assertEquals(String.valueOf(read.getLatency().getTotalCount()), published.get("mongo.load.read.ops"));
+    assertTrue(published.containsKey("mongo.load.write.p99"));
+
+  }
+
+  @Test
+  public void itShouldCountErrors() throws Exception {
+
+    IllegalStateException failure = new IllegalStateException("duplicate key");
+
+    MongoLoadResult.Operation insert = MongoLoadHarness.of(db)
+      .threads(1)
+      .duration(50, TimeUnit.MILLISECONDS)
+      .operation("insert", 1, database -> {
+        throw failure;
+      })
+      .run()
+      .getOperation("insert");
+
+    assertTrue(insert.getErrors() > 0);
+    assertEquals(0, insert.getLatency().getTotalCount());
+    assertSame(failure, insert.getFirstError());
+
+  }
+
+  @Test
+  public void itShouldCountErrorsThatAreNotExceptions() throws Exception {
+
+    AssertionError failure = new AssertionError("unexpected document");
+
+    MongoLoadResult.Operation find = MongoLoadHarness.of(db)
+      .threads(1)
+      .duration(50, TimeUnit.MILLISECONDS)
+      .operation("find", 1, database -> {
+        throw failure;
+      })
+      .run()
+      .getOperation("find");
+
+    assertTrue(find.getErrors() > 0);
+    assertSame(failure, find.getFirstError());
+
+  }
+
+  @Test
+  public void itShouldFailWhenAThresholdIsExceeded() {
+
+    AssertionError error = assertThrows(AssertionError.class, () -> MongoLoadHarness.of(db)
+      .threads(2)
+      .duration(100, TimeUnit.MILLISECONDS)
+      .operation("slow", 1, database -> Thread.sleep(5))
+      .percentileBelow("slow", 99, 1, TimeUnit.MILLISECONDS)
+      .throughputAbove("slow", 1_000_000)
+      .maxErrors("slow", 0)
+      .run());
+
+    assertTrue(error.getMessage().startsWith("p99.0 of slow is"), error.getMessage());
+    assertTrue(error.getMessage().contains("expected at least 1000000.0 ops/s"), error.getMessage());
+
+  }
+
+  @Test
+  public void itShouldRejectThresholdsOfUnknownOperations() {
+    assertThrows(IllegalStateException.class, () -> MongoLoadHarness.of(db)
+      .operation("find", 1, database -> {
+      })
+      .percentileBelow("insert", 99, 1, TimeUnit.MILLISECONDS)
+      .run());
+  }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoPlanInspectionIntegrationTest {
+
+  @Test
+  public void itShouldReportCollectionScansAndInMemorySorts() throws Exception {
+
+    MongoForEachExtension mongo = MongoForEachExtension.builder().ephemeralPort()
+      .inspectPlans(MongoPlanPolicy.FAIL)
+      .build();
+    mongo.startMongo();
+
+    try {
+
+      MongoCollection<Document> orders = mongo.getDatabase().getCollection("orders");
+      orders.createIndex(Indexes.ascending("customer"));
+      List<Document> documents = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        documents.add(new Document("customer", i).append("status", i % 2 == 0 ? "open" : "paid"));
+      }
+      orders.insertMany(documents);
+
+      mongo.startPlanInspection();
+      orders.find(Filters.eq("customer", 42)).first();
+      orders.find(Filters.eq("customer", 43)).first();
+      MongoPlanReport indexed = mongo.finishPlanInspection();
+
+      assertNotNull(indexed);
+      assertEquals(1, indexed.getPlans().size());
+      assertEquals("FETCH(IXSCAN[customer_1])", indexed.getPlans().get(0).getSummary());
+      assertFalse(indexed.isFailed());
+
+      mongo.startPlanInspection();
+      orders.find(Filters.eq("status", "open")).sort(Sorts.descending("customer")).first();
+      orders.countDocuments(Filters.eq("status", "paid"));
+      MongoPlanReport scanning = mongo.finishPlanInspection();
+
+      assertEquals(2, scanning.getPlans().size());
+      assertTrue(scanning.getPlans().get(1).isCollectionScan());
+      assertTrue(scanning.isFailed());
+      assertThrows(AssertionError.class, scanning::assertAcceptable);
+      assertEquals(scanning, mongo.getLastPlanReport());
+
+    } finally {
+      mongo.shutdownMongo();
+    }
+
+  }
+
+}
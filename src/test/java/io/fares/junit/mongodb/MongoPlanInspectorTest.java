@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MongoPlanInspectorTest {
+
+  private static final BsonDocument COLLSCAN = BsonDocument.parse("{queryPlanner: {winningPlan: "
+    + "{stage: 'SORT', inputStage: {stage: 'SORT_KEY_GENERATOR', inputStage: {stage: 'COLLSCAN'}}}, "
+    + "rejectedPlans: [{stage: 'FETCH', inputStage: {stage: 'IXSCAN', indexName: 'created_1'}}]}}");
+
+  private static final BsonDocument IXSCAN = BsonDocument.parse("{queryPlanner: {winningPlan: "
+    + "{stage: 'FETCH', inputStage: {stage: 'IXSCAN', indexName: 'customer_1'}}}}");
+
+  @Test
+  public void itShouldShapeQueriesWithoutTheirValues() {
+
+    String first = MongoPlanInspector.shape(BsonDocument.parse(
+      "{find: 'orders', filter: {customer: 42, status: {$in: ['open', 'paid']}}, sort: {created: -1}, $db: 'x'}"));
+    String second = MongoPlanInspector.shape(BsonDocument.parse(
+      "{find: 'orders', filter: {customer: 7, status: {$in: ['open']}}, sort: {created: -1}}"));
+
+    assertEquals(first, second);
+    assertTrue(first.startsWith("find orders "));
+    assertFalse(first.contains("42"));
+    assertTrue(first.contains("created"));
+
+  }
+
+  @Test
+  public void itShouldDistinguishSortDirections() {
+    assertFalse(MongoPlanInspector.shape(BsonDocument.parse("{find: 'orders', sort: {created: -1}}"))
+      .equals(MongoPlanInspector.shape(BsonDocument.parse("{find: 'orders', sort: {created: 1}}"))));
+  }
+
+  @Test
+  public void itShouldNotShapeQueriesForTheWholeCollection() {
+    assertNull(MongoPlanInspector.shape(BsonDocument.parse("{find: 'orders', filter: {}}")));
+    assertNull(MongoPlanInspector.shape(BsonDocument.parse("{delete: 'orders', deletes: [{q: {}, limit: 0}]}")));
+    assertNull(MongoPlanInspector.shape(BsonDocument.parse("{aggregate: 'orders', pipeline: [{$group: {_id: 1}}]}")));
+    assertNull(MongoPlanInspector.shape(BsonDocument.parse("{find: 'system.profile', filter: {ns: 'x'}}")));
+    assertNull(MongoPlanInspector.shape(BsonDocument.parse("{insert: 'orders', documents: [{a: 1}]}")));
+  }
+
+  @Test
+  public void itShouldShapeWritesByTheirFirstStatement() {
+    String shape = MongoPlanInspector.shape(BsonDocument.parse(
+      "{update: 'orders', updates: [{q: {customer: 1}, u: {$set: {a: 1}}}, {q: {_id: 1}, u: {}}]}"));
+    assertEquals("update orders { \"filter\" : { \"customer\" : \"?\" } }", shape);
+  }
+
+  @Test
+  public void itShouldSummarizeTheWinningPlan() {
+
+    MongoQueryPlan scan = MongoQueryPlan.of("shape", COLLSCAN);
+    assertEquals("SORT(SORT_KEY_GENERATOR(COLLSCAN))", scan.getSummary());
+    assertTrue(scan.isCollectionScan());
+    assertTrue(scan.isInMemorySort());
+
+    MongoQueryPlan index = MongoQueryPlan.of("shape", IXSCAN);
+    assertEquals("FETCH(IXSCAN[customer_1])", index.getSummary());
+    assertFalse(index.isCollectionScan());
+    assertFalse(index.isInMemorySort());
+
+  }
+
+  @Test
+  public void itShouldDetectBlockingSortsOfAggregations() {
+    MongoQueryPlan plan = MongoQueryPlan.of("shape", BsonDocument.parse("{stages: [{$cursor: {queryPlanner: "
+      + "{winningPlan: {stage: 'IXSCAN', indexName: 'customer_1'}}}}, {$sort: {sortKey: {created: 1}}}]}"));
+    assertEquals("IXSCAN[customer_1], $sort", plan.getSummary());
+    assertTrue(plan.isInMemorySort());
+  }
+
+  @Test
+  public void itShouldExplainEachShapeOnce() {
+
+    MongoDatabase db = mock(MongoDatabase.class);
+    when(db.runCommand(any(BsonDocument.class), eq(BsonDocument.class))).thenReturn(COLLSCAN);
+    MongoClient client = mock(MongoClient.class);
+    when(client.getDatabase(MongoExtension.UNIT_TEST_DB)).thenReturn(db);
+
+    MongoPlanInspector inspector = new MongoPlanInspector(MongoPlanPolicy.FAIL, null);
+
+    for (int i = 0; i < 2; i++) {
+      inspector.start();
+      inspector.commandStarted(started("{find: 'orders', filter: {customer: " + i + "}, lsid: {id: 1}}"));
+      inspector.commandStarted(started("{find: 'orders', filter: {customer: 99}}"));
+      MongoPlanReport report = inspector.finish(client);
+      assertEquals(1, report.getPlans().size());
+      assertEquals(2, report.getProblems().size());
+      assertTrue(report.isFailed());
+      assertThrows(AssertionError.class, report::assertAcceptable);
+    }
+
+    verify(db, times(1)).runCommand(eq(BsonDocument.parse("{explain: {find: 'orders', filter: {customer: 0}}, "
+      + "verbosity: 'queryPlanner'}")), eq(BsonDocument.class));
+
+    assertNull(inspector.finish(client));
+
+  }
+
+  @Test
+  public void itShouldReportPlansThatDifferFromTheBaseline() throws Exception {
+
+    Path file = Files.createTempDirectory("plans").resolve("plans.tsv");
+
+    MongoQueryPlan scan = MongoQueryPlan.of("find orders {}", COLLSCAN);
+    MongoQueryPlan index = MongoQueryPlan.of("find orders {}", IXSCAN);
+
+    assertNull(MongoPlanBaseline.load(file).compare(index));
+    List<String> lines = Files.readAllLines(file);
+    assertEquals(Arrays.asList("# query shape\twinning plan", "find orders {}\tFETCH(IXSCAN[customer_1])"), lines);
+
+    MongoPlanBaseline baseline = MongoPlanBaseline.load(file);
+    assertNull(baseline.compare(index));
+    assertEquals("FETCH(IXSCAN[customer_1])", baseline.compare(scan));
+    assertEquals(lines, Files.readAllLines(file));
+
+  }
+
+  private static CommandStartedEvent started(String command) {
+    BsonDocument document = BsonDocument.parse(command);
+    ConnectionDescription connection = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+    return new CommandStartedEvent(1, connection, MongoExtension.UNIT_TEST_DB, document.getFirstKey(), document);
+  }
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoPortAllocatorTest {
+
+  @Test
+  public void itShouldNeverHandOutAReservedPort() throws Exception {
+
+    Path reservations = Files.createTempDirectory("ports").resolve("port-reservations");
+
+    // two allocators on the same file behave like two forks on one machine
+    MongoPortAllocator fork1 = new MongoPortAllocator(reservations);
+    MongoPortAllocator fork2 = new MongoPortAllocator(reservations);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> ports = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        MongoPortAllocator allocator = i % 2 == 0 ? fork1 : fork2;
+        ports.add(executor.submit(allocator::reserve));
+      }
+      Set<Integer> distinct = new HashSet<>();
+      for (Future<Integer> port : ports) {
+        int reserved = port.get();
+        assertTrue(reserved > 0);
+        distinct.add(reserved);
+      }
+      assertEquals(20, distinct.size());
+    } finally {
+      executor.shutdownNow();
+    }
+
+  }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoProfileTest {
+
+  private final MongoProfile profile = new MongoProfile(MongoExtension.UNIT_TEST_DB, Arrays.asList(
+    operation("insert", 2, 0, null),
+    operation("query", 40, 5000, "COLLSCAN"),
+    new MongoProfiledOperation(new Document("op", "command").append("ns", "unit_test.orders")
+      .append("command", new Document("aggregate", "orders")).append("millis", 7).append("docsExamined", 10L))));
+
+  @Test
+  public void itShouldListTheSlowestOperationsFirst() {
+    assertEquals(40, profile.getOperations().get(0).getMillis());
+    assertEquals(7, profile.getOperations().get(1).getMillis());
+    assertEquals(1, profile.getSlowest(1).size());
+    assertEquals(3, profile.getSlowest(10).size());
+  }
+
+  @Test
+  public void itShouldNameCommandsAfterTheCommand() {
+    assertEquals("aggregate", profile.getOperations().get(1).getOperation());
+    assertEquals(10, profile.getOperations().get(1).getDocsExamined());
+  }
+
+  @Test
+  public void itShouldFindOperationsExceedingTheLimits() {
+    assertEquals(1, profile.exceeding(10, -1).size());
+    assertEquals(2, profile.exceeding(-1, 5).size());
+    assertTrue(profile.exceeding(-1, -1).isEmpty());
+  }
+
+  @Test
+  @MongoOperationLimits(maxDocsExamined = 100)
+  public void itShouldFailOperationsExceedingTheLimits() throws NoSuchMethodException {
+
+    MongoOperationLimits limits = getClass().getMethod("itShouldFailOperationsExceedingTheLimits")
+      .getAnnotation(MongoOperationLimits.class);
+
+    AssertionError error = assertThrows(AssertionError.class, () -> profile.assertWithin(limits));
+    assertTrue(error.getMessage().contains("100 docs examined"));
+    assertTrue(error.getMessage().contains("query unit_test.orders 40 ms, 5000 docs examined, COLLSCAN"));
+
+  }
+
+  @Test
+  public void itShouldReportTheSlowestOperations() {
+
+    Map<String, String> entries = profile.toReportEntries();
+
+    assertEquals("3", entries.get("mongo.profile.ops"));
+    assertEquals("query unit_test.orders 40 ms, 5000 docs examined, COLLSCAN", entries.get("mongo.profile.slowest.1"));
+    assertEquals(4, entries.size());
+
+  }
+
+  private static MongoProfiledOperation operation(String op, int millis, int docsExamined, String planSummary) {
+    Document entry = new Document("op", op).append("ns", "unit_test.orders")
+      .append("millis", millis).append("docsExamined", docsExamined);
+    if (planSummary != null) {
+      entry.append("planSummary", planSummary);
+    }
+    return new MongoProfiledOperation(entry);
+  }
+
+}
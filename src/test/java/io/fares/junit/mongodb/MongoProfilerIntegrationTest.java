@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoProfilerIntegrationTest {
+
+  @Test
+  public void itShouldProfileTheOperationsOfATest() throws Exception {
+
+    MongoForEachExtension mongo = MongoForEachExtension.builder().ephemeralPort().profile().build();
+    mongo.startMongo();
+
+    try {
+
+      MongoCollection<Document> orders = mongo.getDatabase().getCollection("orders");
+      List<Document> documents = new ArrayList<>();
+      for (int i = 0; i < 500; i++) {
+        documents.add(new Document("customer", i));
+      }
+      orders.insertMany(documents);
+
+      mongo.startProfiler(false);
+      orders.find(Filters.eq("customer", 42)).first();
+      MongoProfile profile = mongo.stopProfiler();
+
+      assertNotNull(profile);
+      assertEquals(profile, mongo.getLastProfile());
+      assertEquals(1, profile.getOperations().size());
+      MongoProfiledOperation find = profile.getOperations().get(0);
+      assertEquals(MongoExtension.UNIT_TEST_DB + ".orders", find.getNamespace());
+      assertEquals(500, find.getDocsExamined());
+      assertTrue(profile.exceeding(-1, 100).contains(find));
+
+    } finally {
+      mongo.shutdownMongo();
+    }
+
+  }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoReadinessProbeTest {
+
+  @Test
+  public void itShouldGiveUpAtTheDeadline() throws Exception {
+
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+
+    MongoReadinessProbe probe = new MongoReadinessProbe("localhost", port);
+
+    long start = System.currentTimeMillis();
+    assertThrows(IOException.class, () -> probe.awaitReady(300));
+    long elapsed = System.currentTimeMillis() - start;
+
+    assertTrue(elapsed >= 300, "gave up before the deadline");
+    assertTrue(elapsed < 5000, "overran the deadline by far: " + elapsed + " ms");
+
+  }
+
+}
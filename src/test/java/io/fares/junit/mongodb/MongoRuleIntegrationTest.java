@@ -21,6 +21,12 @@ import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 import org.mockito.stubbing.Answer;
 
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 
@@ -41,4 +47,23 @@ public class MongoRuleIntegrationTest {
 
   }
 
+  @Test
+  public void testRuleReportsPhaseTimings() throws Throwable {
+
+    Map<MongoPhase, Long> reported = new ConcurrentHashMap<>();
+
+    MongoRule rule = new MongoRule().ephemeralPort().lifecycleListener(reported::put);
+
+    // the client is created when the test first asks for it
+    Statement statement = mock(Statement.class);
+    doAnswer(invocation -> rule.getMongoClient()).when(statement).evaluate();
+
+    rule.apply(statement, mock(Description.class)).evaluate();
+
+    assertTrue(reported.keySet().containsAll(EnumSet.of(MongoPhase.RESOLVE, MongoPhase.EXTRACT, MongoPhase.EXEC,
+      MongoPhase.READINESS, MongoPhase.CLIENT_CONNECT, MongoPhase.SHUTDOWN)));
+    assertEquals(reported, rule.getTimings());
+
+  }
+
 }
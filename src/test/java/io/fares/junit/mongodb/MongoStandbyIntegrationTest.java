@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoStandbyIntegrationTest {
+
+  @Test
+  public void itShouldHandOverAPreStartedMongod() throws Exception {
+
+    MongoForEachExtension extension = MongoForEachExtension.builder().standby().build();
+
+    extension.startMongo();
+    long firstPid = extension.mongod.getProcessId();
+    int firstPort = extension.getMongoPort();
+    extension.getDatabase().getCollection("TestCollection").insertOne(new Document("n", 1));
+    extension.shutdownMongo();
+
+    extension.startMongo();
+    try {
+      assertNotEquals(firstPid, extension.mongod.getProcessId());
+      assertNotEquals(firstPort, extension.getMongoPort());
+      assertEquals(0, extension.getDatabase().getCollection("TestCollection").countDocuments());
+      assertTrue(extension.getTimings().containsKey(MongoPhase.STANDBY));
+      assertFalse(extension.isShared());
+    } finally {
+      extension.shutdownMongo();
+      MongodStandby.getInstance().close();
+    }
+
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoTestPlanTest {
+
+  private static final AtomicBoolean unrelatedInitialized = new AtomicBoolean();
+
+  private final List<MongodSettings> retired = new ArrayList<>();
+
+  private final MongoTestPlan plan = new MongoTestPlan(retired::add);
+
+  @Test
+  public void itShouldGroupClassesBySharedConfiguration() {
+    assertEquals(MongoTestPlan.configurationOf(FirstOnPort.class), MongoTestPlan.configurationOf(SecondOnPort.class));
+    assertNotEquals(MongoTestPlan.configurationOf(FirstOnPort.class), MongoTestPlan.configurationOf(OtherPort.class));
+    assertNull(MongoTestPlan.configurationOf(Unshared.class));
+    assertNull(MongoTestPlan.configurationOf(MongoTestPlanTest.class));
+  }
+
+  @Test
+  public void itShouldRetireAnInstanceAfterItsLastConsumer() {
+
+    plan.plan(names(FirstOnPort.class, SecondOnPort.class, OtherPort.class, Unshared.class),
+      getClass().getClassLoader());
+
+    plan.classFinished(FirstOnPort.class.getName());
+    plan.classFinished(Unshared.class.getName());
+    assertTrue(retired.isEmpty());
+
+    plan.classFinished(OtherPort.class.getName());
+    assertEquals(MongoTestPlan.sharedSettingsOf(OtherPort.class), retired);
+
+    plan.classFinished(SecondOnPort.class.getName());
+    assertEquals(2, retired.size());
+    assertEquals(MongoTestPlan.sharedSettingsOf(FirstOnPort.class).get(0), retired.get(1));
+
+  }
+
+  @Test
+  public void itShouldSkipClassesThatCannotBeLoaded() {
+
+    plan.plan(Arrays.asList("io.fares.junit.mongodb.DoesNotExist", OtherPort.class.getName()),
+      getClass().getClassLoader());
+
+    plan.classFinished(OtherPort.class.getName());
+    assertEquals(1, retired.size());
+
+  }
+
+  @Test
+  public void itShouldNotInitializeUnrelatedClasses() {
+
+    plan.plan(names(Unrelated.class, BrokenInitializer.class, OtherPort.class), getClass().getClassLoader());
+    assertFalse(unrelatedInitialized.get());
+
+    plan.classFinished(Unrelated.class.getName());
+    plan.classFinished(BrokenInitializer.class.getName());
+    assertTrue(retired.isEmpty());
+
+  }
+
+  @Test
+  public void itShouldForgetThePlanWhenCleared() {
+
+    plan.plan(names(OtherPort.class), getClass().getClassLoader());
+    plan.clear();
+
+    plan.classFinished(OtherPort.class.getName());
+    assertTrue(retired.isEmpty());
+
+  }
+
+  private static MongoForAllExtension failToBuild() {
+    throw new IllegalStateException("the extension cannot be built");
+  }
+
+  private static List<String> names(Class<?>... classes) {
+    List<String> names = new ArrayList<>();
+    for (Class<?> type : classes) {
+      names.add(type.getName());
+    }
+    return names;
+  }
+
+  static class FirstOnPort {
+    static MongoForAllExtension mongo = MongoForAllExtension.builder().port(37017).shared().build();
+  }
+
+  static class SecondOnPort {
+    static MongoForAllExtension mongo = MongoForAllExtension.builder().port(37017).shared().build();
+  }
+
+  static class OtherPort {
+    static MongoForAllExtension mongo = MongoForAllExtension.builder().port(37018).shared().build();
+  }
+
+  static class Unrelated {
+    static {
+      unrelatedInitialized.set(true);
+    }
+  }
+
+  static class BrokenInitializer {
+    static MongoForAllExtension mongo = failToBuild();
+  }
+
+  static class Unshared {
+    static MongoForAllExtension mongo = MongoForAllExtension.builder().port(37019).build();
+  }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoTimingSummaryTest {
+
+  @Test
+  public void itShouldListTheSlowestTestClassFirst() {
+
+    MongoTimingSummary summary = new MongoTimingSummary();
+    summary.add("FastTest", timings(MongoPhase.RESET, 5));
+    summary.add("SlowTest", timings(MongoPhase.EXEC, 400));
+    summary.add("SlowTest", timings(MongoPhase.SHUTDOWN, 100));
+    summary.add("FastTest", timings(MongoPhase.RESET, 5));
+
+    List<String> lines = summary.format();
+
+    assertEquals(2, lines.size());
+    assertTrue(lines.get(0).contains("500 ms SlowTest"), lines.get(0));
+    assertTrue(lines.get(1).contains("10 ms FastTest"), lines.get(1));
+
+  }
+
+  @Test
+  public void itShouldPublishPhasesUnderMongoKeys() {
+    assertEquals("mongo.client-connect", MongoPhase.CLIENT_CONNECT.reportKey());
+  }
+
+  private static Map<MongoPhase, Long> timings(MongoPhase phase, long elapsed) {
+    Map<MongoPhase, Long> timings = new EnumMap<>(MongoPhase.class);
+    timings.put(phase, elapsed);
+    return timings;
+  }
+
+}
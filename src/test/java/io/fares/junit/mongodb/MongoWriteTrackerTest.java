@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongoWriteTrackerTest {
+
+  private final MongoWriteTracker tracker = new MongoWriteTracker();
+
+  @Test
+  public void itShouldTrackWriteCommands() {
+
+    started("db", "insert", "{insert: 'orders', documents: [{n: 1}]}");
+    started("db", "update", "{update: 'customers', updates: []}");
+    started("db", "delete", "{delete: 'orders', deletes: []}");
+    started("db", "findAndModify", "{findAndModify: 'counters', update: {$inc: {n: 1}}}");
+    started("other", "insert", "{insert: 'elsewhere', documents: []}");
+
+    assertEquals(new HashSet<>(Arrays.asList("orders", "customers", "counters")), tracker.drain("db"));
+    assertEquals(Collections.singleton("elsewhere"), tracker.drain("other"));
+
+  }
+
+  @Test
+  public void itShouldIgnoreReads() {
+
+    started("db", "find", "{find: 'orders', filter: {}}");
+    started("db", "aggregate", "{aggregate: 'orders', pipeline: [{$match: {}}], cursor: {}}");
+
+    assertTrue(tracker.drain("db").isEmpty());
+
+  }
+
+  @Test
+  public void itShouldTrackAggregationAndRenameTargets() {
+
+    started("db", "aggregate", "{aggregate: 'orders', pipeline: [{$match: {}}, {$out: 'report'}], cursor: {}}");
+    started("db", "mapReduce", "{mapReduce: 'orders', out: {merge: 'totals', db: 'results'}}");
+    started("admin", "renameCollection", "{renameCollection: 'db.report', to: 'db.archive'}");
+
+    assertEquals(new HashSet<>(Arrays.asList("report", "archive")), tracker.drain("db"));
+    assertEquals(Collections.singleton("totals"), tracker.drain("results"));
+
+  }
+
+  @Test
+  public void itShouldForgetDrainedWrites() {
+
+    started("db", "insert", "{insert: 'orders', documents: []}");
+    tracker.drain("db");
+
+    assertTrue(tracker.drain("db").isEmpty());
+
+  }
+
+  private void started(String database, String commandName, String command) {
+    ConnectionDescription connection = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+    tracker.commandStarted(new CommandStartedEvent(1, connection, database, commandName, BsonDocument.parse(command)));
+  }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongodArtifactStoreTest {
+
+  @Test
+  public void itShouldVerifyARecordedExtraction() throws Exception {
+
+    Path extracted = Files.createTempDirectory("Linux-B64--3.6.5");
+    Files.write(extracted.resolve("mongod"), "mongod".getBytes(StandardCharsets.UTF_8));
+
+    assertFalse(MongodArtifactStore.verify(extracted), "an extraction without a manifest is not trusted");
+
+    MongodArtifactStore.record(extracted);
+
+    assertTrue(MongodArtifactStore.verify(extracted));
+    assertEquals(1, Files.readAllLines(extracted.resolve(MongodArtifactStore.MANIFEST)).size());
+
+  }
+
+  @Test
+  public void itShouldRejectATruncatedExecutable() throws Exception {
+
+    Path extracted = Files.createTempDirectory("Linux-B64--3.6.5");
+    Files.write(extracted.resolve("mongod"), "mongod".getBytes(StandardCharsets.UTF_8));
+    MongodArtifactStore.record(extracted);
+
+    Files.write(extracted.resolve("mongod"), "mon".getBytes(StandardCharsets.UTF_8));
+
+    assertFalse(MongodArtifactStore.verify(extracted));
+
+  }
+
+  @Test
+  public void itShouldFailToWarmUpWithoutAnArchive() throws Exception {
+
+    Path cache = Files.createTempDirectory("cache");
+    Path archives = Files.createTempDirectory("archives");
+
+    System.setProperty(MongodDistributionCache.CACHE_DIR_PROPERTY, cache.toString());
+    try {
+      assertThrows(IOException.class, () -> MongodDistributionCache.warmUp(archives, "3.6.5"));
+    } finally {
+      System.clearProperty(MongodDistributionCache.CACHE_DIR_PROPERTY);
+    }
+
+  }
+
+}
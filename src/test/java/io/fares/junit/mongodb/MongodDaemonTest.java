@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongodDaemonTest {
+
+  @Test
+  public void itShouldForgetJvmsThatStoppedRenewingTheirRecord() {
+
+    long now = 1_000_000L;
+    Properties state = new Properties();
+    state.setProperty("pid", "42");
+    state.setProperty(MongodDaemon.JVM_PREFIX + "1@build", String.valueOf(now - MongodDaemon.HEARTBEAT_MILLIS));
+    state.setProperty(MongodDaemon.JVM_PREFIX + "2@ide", String.valueOf(now - MongodDaemon.STALE_MILLIS - 1));
+    state.setProperty(MongodDaemon.JVM_PREFIX + "3@broken", "yesterday");
+
+    List<String> jvms = MongodDaemon.attachedJvms(state, now);
+
+    assertEquals(Collections.singletonList("1@build"), jvms);
+    assertTrue(state.containsKey(MongodDaemon.JVM_PREFIX + "1@build"));
+    assertFalse(state.containsKey(MongodDaemon.JVM_PREFIX + "2@ide"));
+    assertFalse(state.containsKey(MongodDaemon.JVM_PREFIX + "3@broken"));
+    assertEquals("42", state.getProperty("pid"));
+
+  }
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class MongodLogBufferTest {
+
+  private static final String WARNING = "2018-06-10T12:00:00.000+0000 W NETWORK  [conn1] slow connection";
+
+  private static final String ERROR = "2018-06-10T12:00:00.000+0000 E STORAGE  [initandlisten] disk full";
+
+  private static final String INFO = "2018-06-10T12:00:00.000+0000 I CONTROL  [initandlisten] waiting";
+
+  private final Logger log = mock(Logger.class);
+
+  @Test
+  public void itShouldRetainTheMostRecentLines() {
+
+    MongodLogBuffer buffer = new MongodLogBuffer(log, "mongod", 3, null);
+
+    for (int i = 1; i <= 5; i++) {
+      buffer.append("line " + i);
+    }
+
+    assertEquals(Arrays.asList("line 3", "line 4", "line 5"), buffer.snapshot());
+
+  }
+
+  @Test
+  public void itShouldStripLineEndings() {
+
+    MongodLogBuffer buffer = new MongodLogBuffer(log, "mongod", 3, null);
+    buffer.process(INFO + "\r\n");
+
+    assertEquals(Collections.singletonList(INFO), buffer.snapshot());
+
+  }
+
+  @Test
+  public void itShouldForwardMatchingLinesOnly() {
+
+    MongodLogBuffer buffer = new MongodLogBuffer(log, "mongod", 10, MongodOutput.DEFAULT_FILTER);
+    buffer.append(INFO);
+    buffer.append(WARNING);
+    buffer.append(ERROR);
+    buffer.close();
+
+    verify(log).warn("{}", WARNING);
+    verify(log).error("{}", ERROR);
+    verify(log, never()).info(anyString(), any(Object.class));
+
+  }
+
+  @Test
+  public void itShouldForwardEachLineOnce() {
+
+    MongodLogBuffer buffer = new MongodLogBuffer(log, "mongod", 10, MongodOutput.DEFAULT_FILTER);
+    buffer.append(WARNING);
+    buffer.drain();
+    buffer.drain();
+    buffer.close();
+
+    verify(log).warn("{}", WARNING);
+
+  }
+
+  @Test
+  public void itShouldDumpAllRetainedLines() {
+
+    MongodLogBuffer buffer = new MongodLogBuffer(log, "mongod", 2, null);
+    buffer.append(INFO);
+    buffer.append(WARNING);
+    buffer.append(ERROR);
+
+    buffer.dump("failure of test");
+
+    verify(log).warn(anyString(), eq(2), eq("mongod"), eq("failure of test"),
+      contains(System.lineSeparator() + WARNING + System.lineSeparator() + ERROR));
+
+  }
+
+  @Test
+  public void itShouldNotDumpAnEmptyBuffer() {
+
+    MongodLogBuffer buffer = new MongodLogBuffer(log, "mongod", 2, null);
+    buffer.dump("failure of test");
+
+    assertTrue(buffer.snapshot().isEmpty());
+    verify(log, never()).warn(anyString(), any(Object[].class));
+
+  }
+
+}
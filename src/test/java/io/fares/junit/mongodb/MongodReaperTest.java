@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongodReaperTest {
+
+  private final MongodReaper reaper = new MongodReaper();
+
+  @Test
+  public void itShouldWaitForTheAddressToBeReleased() {
+
+    CountDownLatch exited = new CountDownLatch(1);
+
+    reaper.reap("localhost", 27099, () -> {
+      sleep(200);
+      exited.countDown();
+      return 200;
+    });
+
+    reaper.awaitAddress("localhost", 27099, TimeUnit.SECONDS.toMillis(5));
+
+    assertEquals(0, exited.getCount());
+
+  }
+
+  @Test
+  public void itShouldNotWaitForOtherAddresses() {
+
+    CountDownLatch exited = new CountDownLatch(1);
+
+    reaper.reap("localhost", 27099, () -> {
+      await(exited);
+      return 0;
+    });
+
+    long start = System.nanoTime();
+    reaper.awaitAddress("localhost", 27100, TimeUnit.SECONDS.toMillis(5));
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+    exited.countDown();
+    assertTrue(reaper.awaitAll(TimeUnit.SECONDS.toMillis(5)));
+
+  }
+
+  @Test
+  public void itShouldReportFailedStops() {
+
+    reaper.reap("localhost", 27099, () -> {
+      throw new IllegalStateException("mongod refused to stop");
+    });
+
+    assertTrue(reaper.awaitAll(TimeUnit.SECONDS.toMillis(5)));
+    assertEquals(1, reaper.getFailures());
+
+  }
+
+  @Test
+  public void itShouldGiveUpAtTheDeadline() {
+
+    CountDownLatch exited = new CountDownLatch(1);
+
+    reaper.reap("localhost", 27099, () -> {
+      await(exited);
+      return 0;
+    });
+
+    long start = System.nanoTime();
+    assertFalse(reaper.awaitAll(100));
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+    exited.countDown();
+
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import de.flapdoodle.embed.mongo.config.IMongodConfig;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MongodSettingsTest {
+
+  @Test
+  public void itShouldMatchOnVersionHostAndPort() {
+
+    MongodSettings settings = new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099);
+
+    assertEquals(settings, new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099));
+    assertEquals(settings.hashCode(), new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099).hashCode());
+    assertNotEquals(settings, new MongodSettings(Version.Main.PRODUCTION, "localhost", 27100));
+    assertNotEquals(settings, new MongodSettings(Version.Main.DEVELOPMENT, "localhost", 27099));
+
+  }
+
+  @Test
+  public void itShouldMatchOnStorage() throws Exception {
+
+    MongodSettings fast = new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099, MongodStorage.fastTest());
+
+    assertEquals(fast, new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099, MongodStorage.fastTest()));
+    assertNotEquals(fast, new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099));
+
+    IMongodConfig config = fast.toMongodConfig(27099, 1000, null);
+    assertEquals(MongodStorage.EPHEMERAL_FOR_TEST, config.cmdOptions().storageEngine());
+    assertTrue(config.cmdOptions().useNoJournal());
+
+  }
+
+  @Test
+  public void itShouldConfigureClusterMembers() throws Exception {
+
+    MongodSettings cluster = new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099, MongodStorage.DEFAULT,
+      MongoTopology.replicaSet(3));
+
+    assertNotEquals(cluster, new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099));
+    assertEquals(cluster, new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099, MongodStorage.DEFAULT,
+      MongoTopology.replicaSet(3)));
+
+    IMongodConfig member = cluster.member(0, "rs0", MongodSettings.Role.MEMBER).toMongodConfig(27100, 1000, null);
+    assertEquals("rs0", member.replication().getReplSetName());
+    assertFalse(member.cmdOptions().useNoJournal());
+    assertFalse(member.isConfigServer());
+
+    MongodSettings fast = new MongodSettings(Version.Main.PRODUCTION, "localhost", 27099, MongodStorage.fastTest(),
+      MongoTopology.sharded());
+
+    IMongodConfig shard = fast.member(0, "shard0", MongodSettings.Role.SHARD_SERVER).toMongodConfig(27100, 1000, null);
+    assertTrue(shard.isShardServer());
+    assertEquals(MongodStorage.EPHEMERAL_FOR_TEST, shard.cmdOptions().storageEngine());
+
+    IMongodConfig config = fast.member(0, "config", MongodSettings.Role.CONFIG_SERVER).toMongodConfig(27101, 1000, null);
+    assertTrue(config.isConfigServer());
+    assertNull(config.cmdOptions().storageEngine());
+    assertFalse(config.cmdOptions().useNoJournal());
+
+  }
+
+}
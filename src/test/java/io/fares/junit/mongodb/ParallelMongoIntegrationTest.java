@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class ParallelMongoIntegrationTest {
+
+  @RegisterExtension
+  static MongoForEachExtension mongo = MongoForEachExtension.builder().parallel().build();
+
+  private static final Set<String> databases = ConcurrentHashMap.newKeySet();
+
+  private static final CountDownLatch overlapping = new CountDownLatch(2);
+
+  @AfterAll
+  static void assertTestsRanConcurrently() {
+    assertTrue(databases.size() >= 2, "tests ran in " + databases);
+  }
+
+  @RepeatedTest(8)
+  public void itShouldIsolateConcurrentTests(MongoDatabase db) throws InterruptedException {
+    // hold the first tests until a second one runs next to them
+    overlapping.countDown();
+    assertTrue(overlapping.await(30, TimeUnit.SECONDS), "no test ran concurrently");
+    databases.add(mongo.getDatabaseName());
+    MongoCollection<Document> collection = db.getCollection("TestCollection");
+    collection.insertOne(new Document("thread", Thread.currentThread().getName()));
+    assertEquals(1, collection.countDocuments());
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResetStrategyIntegrationTest {
+
+  @AfterAll
+  static void stopSharedInstances() {
+    MongodInstanceRegistry.getInstance().close();
+  }
+
+  @Test
+  public void itShouldDropTheDatabase() throws Exception {
+    assertCleanDatabaseAfterReset(ResetStrategy.DROP_DATABASE);
+  }
+
+  @Test
+  public void itShouldTruncateCollections() throws Exception {
+    assertCleanDatabaseAfterReset(ResetStrategy.TRUNCATE_COLLECTIONS);
+  }
+
+  @Test
+  public void itShouldTruncateWrittenCollections() throws Exception {
+    assertCleanDatabaseAfterReset(ResetStrategy.TRUNCATE_WRITTEN_COLLECTIONS);
+  }
+
+  @Test
+  public void itShouldOnlyTruncateCollectionsTheTestWroteTo() throws Exception {
+
+    MongoForEachExtension extension = MongoForEachExtension.builder()
+      .resetStrategy(ResetStrategy.TRUNCATE_WRITTEN_COLLECTIONS)
+      .build();
+
+    extension.startMongo();
+
+    // written by a client the extension does not observe
+    try (MongoClient other = new MongoClient(extension.getMongoHost(), extension.getMongoPort())) {
+      other.getDatabase(extension.getDatabaseName()).getCollection("Untouched").insertOne(new Document("n", 1));
+    }
+
+    MongoCollection<Document> written = extension.getDatabase().getCollection("Written");
+    written.createIndex(new Document("n", 1));
+    written.insertOne(new Document("n", 1));
+    extension.shutdownMongo();
+
+    extension.startMongo();
+    assertEquals(0, extension.getDatabase().getCollection("Written").countDocuments());
+    assertEquals(2, extension.getDatabase().getCollection("Written").listIndexes().into(new ArrayList<>()).size());
+    assertEquals(1, extension.getDatabase().getCollection("Untouched").countDocuments());
+    extension.getDatabase().drop();
+    extension.shutdownMongo();
+
+  }
+
+  @Test
+  public void itShouldUseUniqueDatabases() throws Exception {
+    assertCleanDatabaseAfterReset(ResetStrategy.UNIQUE_DATABASE);
+  }
+
+  private void assertCleanDatabaseAfterReset(ResetStrategy strategy) throws Exception {
+
+    MongoForEachExtension extension = MongoForEachExtension.builder().resetStrategy(strategy).build();
+
+    extension.startMongo();
+    String firstDatabase = extension.getDatabaseName();
+    long pid = extension.mongod.getProcessId();
+    extension.getDatabase().getCollection("TestCollection").insertOne(new Document("n", 1));
+    extension.shutdownMongo();
+
+    assertTrue(extension.getLastResetTime() >= 0);
+
+    extension.startMongo();
+    MongoCollection<Document> collection = extension.getDatabase().getCollection("TestCollection");
+    assertEquals(0, collection.countDocuments());
+    assertEquals(pid, extension.mongod.getProcessId());
+    if (strategy == ResetStrategy.UNIQUE_DATABASE) {
+      assertNotEquals(firstDatabase, extension.getDatabaseName());
+    }
+    extension.shutdownMongo();
+
+  }
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.fares.junit.mongodb;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SharedMongoIntegrationTest {
+
+  private final MongoForAllExtension first = MongoForAllExtension.builder().shared().build();
+
+  private final MongoForEachExtension second = MongoForEachExtension.builder().shared().build();
+
+  @AfterEach
+  void stopSharedInstances() {
+    MongodInstanceRegistry.getInstance().close();
+  }
+
+  @Test
+  public void itShouldLeaseTheSameProcess() throws Exception {
+
+    first.startMongo();
+    second.startMongo();
+
+    assertEquals(first.mongod.getProcessId(), second.mongod.getProcessId());
+
+    first.shutdownMongo();
+
+    // the other consumer keeps working against the shared server
+    assertTrue(second.mongod.isProcessRunning());
+    second.getMongoClient().getDatabase(MongoExtension.UNIT_TEST_DB).runCommand(new Document("ping", 1));
+
+    second.shutdownMongo();
+
+  }
+
+}